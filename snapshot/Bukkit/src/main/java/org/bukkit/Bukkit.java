@@ -2,6 +2,7 @@ package org.bukkit;
 
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.Collections;
@@ -10,6 +11,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Logger;
 
 import org.bukkit.Warning.WarningState;
@@ -35,6 +37,7 @@ import org.bukkit.inventory.Merchant;
 import org.bukkit.inventory.Recipe;
 import org.bukkit.map.MapView;
 import org.bukkit.block.BlockFactory;
+import org.bukkit.block.BlockImage;
 import org.bukkit.permissions.Permissible;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.plugin.PluginManager;
@@ -559,6 +562,55 @@ public final class Bukkit {
         return server.createWorld(creator);
     }
 
+    /**
+     * Creates or loads a world with the given name using the specified
+     * options, without blocking the main thread.
+     *
+     * @param creator the options to use when creating the world
+     * @return a future that completes with the newly created or loaded world
+     * @see Server#createWorldAsync(WorldCreator)
+     */
+    public static CompletableFuture<World> createWorldAsync(WorldCreator creator) {
+        return server.createWorldAsync(creator);
+    }
+
+    /**
+     * Reads the saved world in the given folder into a {@link WorldTemplate}.
+     *
+     * @param folder the folder of the saved world
+     * @return the new template
+     * @throws IOException if the world could not be read
+     * @see Server#loadWorldTemplate(File)
+     */
+    public static WorldTemplate loadWorldTemplate(File folder) throws IOException {
+        return server.loadWorldTemplate(folder);
+    }
+
+    /**
+     * Saves the given {@link BlockImage} to a file.
+     *
+     * @param image the image to save
+     * @param file the file to write
+     * @throws IOException if the file could not be written
+     * @see Server#saveBlockImage(BlockImage, File)
+     */
+    public static void saveBlockImage(BlockImage image, File file) throws IOException {
+        server.saveBlockImage(image, file);
+    }
+
+    /**
+     * Loads a {@link BlockImage} from a file.
+     *
+     * @param file the file to read
+     * @param mapped whether to map the file instead of reading all of it
+     * @return the loaded image
+     * @throws IOException if the file could not be read
+     * @see Server#loadBlockImage(File, boolean)
+     */
+    public static BlockImage loadBlockImage(File file, boolean mapped) throws IOException {
+        return server.loadBlockImage(file, mapped);
+    }
+
     /**
      * Unloads a world with the given name.
      *
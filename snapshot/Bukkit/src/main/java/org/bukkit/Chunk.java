@@ -4,6 +4,7 @@ import org.bukkit.block.Block;
 import org.bukkit.block.BlockState;
 import org.bukkit.entity.Entity;
 import org.bukkit.material.MaterialData;
+import org.bukkit.region.BlockRegion;
 
 import java.util.Set;
 
@@ -51,6 +52,17 @@ public interface Chunk extends Physical {
      */
     Set<Block> getBlocks(Material material);
 
+    /**
+     * Get the positions of all blocks in this chunk that are made of the given {@link Material}.
+     *
+     * This is faster than {@link #getBlocks(Material)}, because no {@link Block}s are created,
+     * and the positions are stored as a bitmap for each 16x16x16 section of the chunk.
+     *
+     * @param material type of block to search for
+     * @return an immutable region containing the world coordinates of the blocks found
+     */
+    BlockRegion getBlockRegion(Material material);
+
     /**
      * Is this chunk entirely filled with air blocks?
      */
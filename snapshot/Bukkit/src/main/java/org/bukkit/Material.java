@@ -520,6 +520,8 @@ public enum Material {
 
     private final int id;
     private final Constructor<? extends MaterialData> ctor;
+    private volatile MaterialData[] immutableData;
+    private static final int IMMUTABLE_DATA_VALUES = 16;
     private static Material[] byId = new Material[383];
     private final static Map<String, Material> BY_NAME = Maps.newHashMap();
     private final int maxStack;
@@ -607,6 +609,40 @@ public enum Material {
      */
     @Deprecated
     public MaterialData getNewData(final byte raw) {
+        if(raw >= 0 && raw < IMMUTABLE_DATA_VALUES) {
+            // Cloning the shared instance is much faster than calling the constructor reflectively
+            return getImmutableData(raw).clone();
+        }
+        return constructData(raw);
+    }
+
+    /**
+     * Returns a shared, immutable MaterialData for this Material, with the
+     * given data. Data values from 0 to 15 are created once, and the same
+     * instance is returned every time after that.
+     *
+     * @param raw Data of the MaterialData
+     * @return Immutable MaterialData with the given data
+     * @deprecated Magic value
+     */
+    @Deprecated
+    public MaterialData getImmutableData(final byte raw) {
+        if(raw < 0 || raw >= IMMUTABLE_DATA_VALUES) {
+            return constructData(raw).immutable();
+        }
+
+        MaterialData[] table = immutableData;
+        if(table == null) {
+            table = new MaterialData[IMMUTABLE_DATA_VALUES];
+            for(byte data = 0; data < IMMUTABLE_DATA_VALUES; data++) {
+                table[data] = constructData(data).immutable();
+            }
+            immutableData = table;
+        }
+        return table[raw];
+    }
+
+    private MaterialData constructData(final byte raw) {
         try {
             return ctor.newInstance(id, raw);
         } catch (InstantiationException ex) {
@@ -2,6 +2,7 @@ package org.bukkit;
 
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
 import java.time.Duration;
 import java.time.Instant;
@@ -12,10 +13,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Logger;
 import javax.annotation.Nullable;
 
 import org.bukkit.Warning.WarningState;
+import org.bukkit.block.BlockImage;
 import org.bukkit.boss.BarColor;
 import org.bukkit.boss.BarFlag;
 import org.bukkit.boss.BarStyle;
@@ -483,6 +486,64 @@ public interface Server extends PluginMessageRecipient, BukkitRuntime, tc.oc.min
      */
     public World createWorld(WorldCreator creator);
 
+    /**
+     * Creates or loads a world with the given name using the specified
+     * options, without blocking the main thread.
+     * <p>
+     * The world's data is read from disk on a background thread, and the
+     * world is then registered and its spawn area loaded on the main thread,
+     * spread over several ticks. The returned future is completed on the main
+     * thread, after the {@link org.bukkit.event.world.WorldLoadEvent} has been
+     * called. If the world is already loaded, the future is already complete.
+     * <p>
+     * This method must be called from the main thread.
+     *
+     * @param creator the options to use when creating the world
+     * @return a future that completes with the newly created or loaded world
+     */
+    CompletableFuture<World> createWorldAsync(WorldCreator creator);
+
+    /**
+     * Reads the saved world in the given folder into a {@link WorldTemplate},
+     * from which new worlds can be created without reading the saved world
+     * again. See {@link WorldCreator#template(WorldTemplate)}.
+     * <p>
+     * This reads every chunk of the world, and may be called from any thread.
+     *
+     * @param folder the folder of the saved world
+     * @return the new template
+     * @throws IOException if the world could not be read
+     */
+    WorldTemplate loadWorldTemplate(File folder) throws IOException;
+
+    /**
+     * Saves the given {@link BlockImage} to a file, in a compact binary format
+     * that can be read back with {@link #loadBlockImage(File, boolean)}.
+     * <p>
+     * Only images copied from a world, or loaded from a file, can be saved.
+     *
+     * @param image the image to save
+     * @param file the file to write, which is replaced if it exists
+     * @throws IOException if the file could not be written
+     */
+    void saveBlockImage(BlockImage image, File file) throws IOException;
+
+    /**
+     * Loads a {@link BlockImage} saved by {@link #saveBlockImage(BlockImage, File)}.
+     * <p>
+     * If mapped is true, the file is memory-mapped instead of read, and the image
+     * pastes straight from the file without ever being held on the heap. The file
+     * must not be changed while a mapped image is in use.
+     * <p>
+     * This method may be called from any thread.
+     *
+     * @param file the file to read
+     * @param mapped whether to map the file instead of reading all of it
+     * @return the loaded image
+     * @throws IOException if the file could not be read, or is not a block image
+     */
+    BlockImage loadBlockImage(File file, boolean mapped) throws IOException;
+
     /**
      * Unloads a world with the given name.
      *
@@ -3,6 +3,7 @@ package org.bukkit;
 import java.io.File;
 
 import org.bukkit.block.BlockImage;
+import org.bukkit.block.BlockPaste;
 import org.bukkit.geometry.CoarseTransform;
 import org.bukkit.material.MaterialData;
 import org.bukkit.geometry.Vec3;
@@ -1636,6 +1637,25 @@ public interface World extends PluginMessageRecipient, Metadatable, Physical {
      */
     int pasteBlocks(BlockImage image);
 
+    /**
+     * Copy block states in the given saved image into this world over several
+     * ticks, one chunk at a time. Each tick, chunks are pasted until either
+     * budget is used up, but at least one chunk is always pasted.
+     * <p>
+     * This method must be called from the main thread.
+     *
+     * @param image Block image to copy
+     * @param transform Transform from positions in the image to positions in this world
+     * @param maxBlocksPerTick Maximum number of image blocks to paste on each tick
+     * @param maxNanosPerTick Maximum time to spend pasting on each tick, in nanoseconds
+     * @return A handle for the progress of the paste
+     */
+    BlockPaste pasteBlocksIncrementally(BlockImage image, CoarseTransform transform, int maxBlocksPerTick, long maxNanosPerTick);
+
+    default BlockPaste pasteBlocksIncrementally(BlockImage image, CoarseTransform transform, int maxBlocksPerTick) {
+        return pasteBlocksIncrementally(image, transform, maxBlocksPerTick, Long.MAX_VALUE);
+    }
+
     /**
      * Represents various map environment types that a world may be
      */
@@ -1,6 +1,7 @@
 package org.bukkit;
 
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 import org.bukkit.command.CommandSender;
 import org.bukkit.generator.ChunkGenerator;
 import org.bukkit.plugin.Plugin;
@@ -17,6 +18,7 @@ public class WorldCreator {
     private boolean generateStructures = true;
     private String generatorSettings = "";
     private boolean hardcore;
+    private WorldTemplate template;
 
     /**
      * Creates an empty WorldCreationOptions for the given world name
@@ -64,6 +66,7 @@ public class WorldCreator {
         seed = creator.seed();
         environment = creator.environment();
         generator = creator.generator();
+        template = creator.template();
 
         return this;
     }
@@ -259,6 +262,32 @@ public class WorldCreator {
         return hardcore;
     }
 
+    /**
+     * Sets the template that the world will be created from, if it does
+     * not already exist. The world's chunks and level data will be read
+     * from the template, instead of from the world's own folder.
+     * <p>
+     * This may be null, in which case the world is loaded from disk
+     * as usual.
+     *
+     * @param template Template to create the world from
+     * @return This object, for chaining
+     */
+    public WorldCreator template(WorldTemplate template) {
+        this.template = template;
+
+        return this;
+    }
+
+    /**
+     * Gets the template that the world will be created from, if any.
+     *
+     * @return World template, or null
+     */
+    public WorldTemplate template() {
+        return template;
+    }
+
     /**
      * Creates a world with the specified options.
      * <p>
@@ -271,6 +300,16 @@ public class WorldCreator {
         return Bukkit.createWorld(this);
     }
 
+    /**
+     * Creates a world with the specified options, without blocking the main thread.
+     *
+     * @return a future that completes with the newly created or loaded world
+     * @see Server#createWorldAsync(WorldCreator)
+     */
+    public CompletableFuture<World> createWorldAsync() {
+        return Bukkit.createWorldAsync(this);
+    }
+
     /**
      * Creates a new {@link WorldCreator} for the given world name
      *
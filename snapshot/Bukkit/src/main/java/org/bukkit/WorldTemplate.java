@@ -0,0 +1,28 @@
+package org.bukkit;
+
+import java.io.File;
+
+/**
+ * An immutable, in-memory copy of a saved world, from which any number of
+ * new worlds can be created without reading the saved world again.
+ * <p>
+ * A world created from a template reads its chunks from the template until
+ * it saves them itself, so its own folder only contains the chunks that
+ * have changed. Templates hold every chunk of the saved world in memory,
+ * for as long as they are referenced.
+ *
+ * @see Server#loadWorldTemplate(File)
+ * @see WorldCreator#template(WorldTemplate)
+ */
+public interface WorldTemplate {
+
+    /**
+     * @return the folder that this template was loaded from
+     */
+    File getWorldFolder();
+
+    /**
+     * @return the number of chunks in this template, across all dimensions
+     */
+    int getChunkCount();
+}
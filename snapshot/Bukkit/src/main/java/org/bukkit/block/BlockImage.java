@@ -25,6 +25,12 @@ public interface BlockImage {
      */
     BlockRegion region();
 
+    /**
+     * The block at the given position in this image, or null if the position is not in the image.
+     *
+     * The returned {@link MaterialData} may be shared and immutable, so call
+     * {@link MaterialData#clone()} to get a copy that can be modified.
+     */
     MaterialData materialAt(Vec3 pos);
 
     int paste(World world, CoarseTransform transform);
@@ -0,0 +1,65 @@
+package org.bukkit.block;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.bukkit.World;
+
+/**
+ * A {@link BlockImage} paste that is spread over several ticks.
+ * <p>
+ * The image is pasted one chunk at a time, and each chunk is pasted completely
+ * within a single tick, including its tile entities and scheduled ticks. Chunks
+ * are pasted without block updates, so blocks that have not been pasted yet
+ * do not disturb the ones that have.
+ *
+ * @see World#pasteBlocksIncrementally(BlockImage, org.bukkit.geometry.CoarseTransform, int, long)
+ */
+public interface BlockPaste {
+
+    /**
+     * @return the world being pasted into
+     */
+    World getWorld();
+
+    /**
+     * @return the number of blocks in the image that have been pasted so far
+     */
+    int getBlocksPasted();
+
+    /**
+     * @return the total number of blocks in the image
+     */
+    int getBlocksTotal();
+
+    /**
+     * @return the fraction of the image that has been pasted so far, from 0 to 1
+     */
+    default double getProgress() {
+        final int total = getBlocksTotal();
+        return total == 0 ? 1 : (double) getBlocksPasted() / total;
+    }
+
+    /**
+     * @return true if every block has been pasted, or the paste was cancelled or failed
+     */
+    default boolean isDone() {
+        return getCompletion().isDone();
+    }
+
+    /**
+     * Stop the paste before the next chunk. Chunks that have already
+     * been pasted are not reverted.
+     *
+     * @return true if the paste was cancelled, false if it was already done
+     */
+    boolean cancel();
+
+    /**
+     * A future that completes, on the main thread, with the number of blocks in
+     * the world that were changed by the paste. It is cancelled if the paste is
+     * cancelled, or if the world is unloaded first.
+     *
+     * @return the completion future
+     */
+    CompletableFuture<Integer> getCompletion();
+}
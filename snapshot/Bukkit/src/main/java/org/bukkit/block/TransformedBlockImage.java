@@ -19,6 +19,14 @@ public class TransformedBlockImage implements BlockImage {
         this.inverse = transform.inverse();
     }
 
+    public BlockImage getOriginal() {
+        return original;
+    }
+
+    public CoarseTransform getTransform() {
+        return transform;
+    }
+
     @Override
     public BlockRegion region() {
         return original.region().transform(transform);
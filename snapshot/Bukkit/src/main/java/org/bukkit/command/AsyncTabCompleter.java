@@ -0,0 +1,16 @@
+package org.bukkit.command;
+
+/**
+ * A {@link TabCompleter} that is safe to call from any thread.
+ * <p>
+ * When a {@link PluginCommand}'s completers all implement this interface,
+ * its arguments may be completed on a network or console thread, instead
+ * of waiting for the main thread. The completer must not touch anything
+ * that is only safe to use from the main thread, such as worlds, entities
+ * or most of the Bukkit API, and must synchronize any state of its own.
+ * <p>
+ * If the completer returns null on another thread, the command completes
+ * nothing, instead of falling back to player names.
+ */
+public interface AsyncTabCompleter extends TabCompleter {
+}
@@ -88,6 +88,20 @@ public abstract class Command {
         return tabComplete(sender, alias, args);
     }
 
+    /**
+     * Can {@link #tabComplete(CommandSender, String, String[], Location)} be
+     * called from threads other than the main thread?
+     * <p>
+     * This is false by default, because subclasses can complete arguments
+     * however they like. Subclasses with thread-safe completion can override
+     * it to return true.
+     *
+     * @return true if this command's arguments can be completed from any thread
+     */
+    public boolean canTabCompleteAsync() {
+        return false;
+    }
+
     private List<String> tabComplete0(CommandSender sender, String alias, String[] args, Location location) throws IllegalArgumentException {
         Validate.notNull(sender, "Sender cannot be null");
         Validate.notNull(args, "Arguments cannot be null");
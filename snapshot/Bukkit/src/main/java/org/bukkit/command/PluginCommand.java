@@ -2,8 +2,11 @@ package org.bukkit.command;
 
 import java.util.List;
 
+import com.google.common.collect.ImmutableList;
 import org.apache.commons.lang.Validate;
+import org.bukkit.Bukkit;
 import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.java.JavaPlugin;
 
 /**
  * Represents a {@link Command} belonging to a plugin
@@ -112,7 +115,9 @@ public final class PluginCommand extends Command implements PluginIdentifiableCo
      * command executor if it implements {@link TabCompleter}. If a non-null
      * list has not been found, will default to standard player name
      * completion in {@link
-     * Command#tabComplete(CommandSender, String, String[])}.
+     * Command#tabComplete(CommandSender, String, String[])}. That completion
+     * is only done on the main thread, and on other threads an empty list is
+     * returned instead.
      * <p>
      * This method does not consider permissions.
      *
@@ -145,11 +150,48 @@ public final class PluginCommand extends Command implements PluginIdentifiableCo
         }
 
         if (completions == null) {
+            if (!Bukkit.isPrimaryThread()) {
+                return ImmutableList.of(); // Player name completion is not thread-safe
+            }
             return super.tabComplete(sender, alias, args);
         }
         return completions;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * True if the command has an {@link AsyncTabCompleter}, and every other
+     * completer that {@link #tabComplete(CommandSender, String, String[])}
+     * might call is also an {@link AsyncTabCompleter}, or a {@link JavaPlugin}
+     * that doesn't override {@link JavaPlugin#onTabComplete}. Commands that
+     * only have the default player name completion need the main thread.
+     */
+    @Override
+    public boolean canTabCompleteAsync() {
+        if (completer != null && !isThreadSafe(completer)) {
+            return false;
+        }
+        if (executor instanceof TabCompleter && !isThreadSafe((TabCompleter) executor)) {
+            return false;
+        }
+        return completer instanceof AsyncTabCompleter || executor instanceof AsyncTabCompleter;
+    }
+
+    private static boolean isThreadSafe(TabCompleter completer) {
+        if (completer instanceof AsyncTabCompleter) {
+            return true;
+        } else if (completer instanceof JavaPlugin) {
+            // The plugin's main class is the default executor, and usually doesn't complete anything
+            try {
+                return completer.getClass().getMethod("onTabComplete", CommandSender.class, Command.class, String.class, String[].class).getDeclaringClass() == JavaPlugin.class;
+            } catch (NoSuchMethodException ex) {
+                return false;
+            }
+        }
+        return false;
+    }
+
     @Override
     public String toString() {
         StringBuilder stringBuilder = new StringBuilder(super.toString());
@@ -4,10 +4,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
 
@@ -20,7 +22,12 @@ import org.bukkit.util.StringUtil;
 
 public class SimpleCommandMap implements CommandMap {
     private static final Pattern PATTERN_ON_SPACE = Pattern.compile(" ", Pattern.LITERAL);
-    protected final Map<String, Command> knownCommands = new HashMap<String, Command>();
+    // Sorts labels case-insensitively, so all labels starting with a given prefix are together
+    private static final Comparator<String> LABEL_ORDER = String.CASE_INSENSITIVE_ORDER.thenComparing(Comparator.<String>naturalOrder());
+
+    // Concurrent, so that commands can be looked up while tab completing on other threads
+    private final NavigableMap<String, Command> sortedCommands = new ConcurrentSkipListMap<String, Command>(LABEL_ORDER);
+    protected final Map<String, Command> knownCommands = sortedCommands;
     private final Server server;
 
     public SimpleCommandMap(final Server server) {
@@ -34,6 +41,7 @@ public class SimpleCommandMap implements CommandMap {
         register("bukkit", new PluginsCommand("plugins"));
         register("bukkit", new TimingsCommand("timings"));
         register("bukkit", new SuspendCommand());
+        register("bukkit", new EventTimingsCommand());
     }
 
     public void setFallbackCommands() {
@@ -192,25 +200,21 @@ public class SimpleCommandMap implements CommandMap {
 
         if (spaceIndex == -1) {
             ArrayList<String> completions = new ArrayList<String>();
-            Map<String, Command> knownCommands = this.knownCommands;
 
             final String prefix = (sender instanceof Player ? "/" : "");
 
-            for (Map.Entry<String, Command> commandEntry : knownCommands.entrySet()) {
-                Command command = commandEntry.getValue();
-
-                if (!command.testPermissionSilent(sender)) {
-                    continue;
-                }
-
-                String name = commandEntry.getKey(); // Use the alias, not command name
+            // Labels that differ from cmdLine only by case can sort just before it
+            for (Map.Entry<String, Command> commandEntry : sortedCommands.headMap(cmdLine, false).descendingMap().entrySet()) {
+                if (String.CASE_INSENSITIVE_ORDER.compare(commandEntry.getKey(), cmdLine) != 0) break;
+                addCompletion(completions, sender, prefix, commandEntry);
+            }
+            Collections.reverse(completions);
 
-                if (StringUtil.startsWithIgnoreCase(name, cmdLine)) {
-                    completions.add(prefix + name);
-                }
+            for (Map.Entry<String, Command> commandEntry : sortedCommands.tailMap(cmdLine, true).entrySet()) {
+                if (!StringUtil.startsWithIgnoreCase(commandEntry.getKey(), cmdLine)) break;
+                addCompletion(completions, sender, prefix, commandEntry);
             }
 
-            Collections.sort(completions, String.CASE_INSENSITIVE_ORDER);
             return completions;
         }
 
@@ -237,6 +241,32 @@ public class SimpleCommandMap implements CommandMap {
         }
     }
 
+    /**
+     * Can the given command line be tab completed from a thread other than the
+     * main thread? This is only true when completing the arguments of a command
+     * that {@link Command#canTabCompleteAsync() allows it}. Command names are
+     * always completed on the main thread.
+     *
+     * @param cmdLine the command line that will be completed, without the '/'-prefix
+     * @return true if {@link #tabComplete(CommandSender, String, Location)} may be
+     *     called from any thread for the given command line
+     */
+    public boolean canTabCompleteAsync(String cmdLine) {
+        int spaceIndex = cmdLine.indexOf(' ');
+        if (spaceIndex == -1) {
+            return false;
+        }
+
+        Command target = getCommand(cmdLine.substring(0, spaceIndex));
+        return target != null && target.canTabCompleteAsync();
+    }
+
+    private static void addCompletion(List<String> completions, CommandSender sender, String prefix, Map.Entry<String, Command> commandEntry) {
+        if (commandEntry.getValue().testPermissionSilent(sender)) {
+            completions.add(prefix + commandEntry.getKey()); // Use the alias, not command name
+        }
+    }
+
     public Collection<Command> getCommands() {
         return Collections.unmodifiableCollection(knownCommands.values());
     }
@@ -0,0 +1,125 @@
+package org.bukkit.command.defaults;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.commons.lang.Validate;
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.event.BoundEventHandler;
+import org.bukkit.event.HandlerTimings;
+import org.bukkit.event.RegisteredHandler;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.RegisteredListener;
+import org.bukkit.util.StringUtil;
+
+public class EventTimingsCommand extends BukkitCommand {
+    private static final List<String> SUBCOMMANDS = ImmutableList.of("on", "off", "reset", "report");
+    private static final int REPORT_SIZE = 10;
+
+    public EventTimingsCommand() {
+        super(
+            "eventtimings",
+            "Records latency histograms for all event handlers",
+            "/eventtimings <on|off|reset|report [plugin]>",
+            Collections.emptyList()
+        );
+        this.setPermission("bukkit.command.eventtimings");
+    }
+
+    @Override
+    public boolean execute(CommandSender sender, String currentAlias, String[] args) {
+        if(!testPermission(sender)) return true;
+        if(args.length < 1) {
+            sender.sendMessage(ChatColor.RED + "Usage: " + usageMessage);
+            return false;
+        }
+
+        final PluginManager pluginManager = sender.getServer().getPluginManager();
+        if("on".equalsIgnoreCase(args[0])) {
+            pluginManager.setHandlerTimingsEnabled(true);
+            sender.sendMessage("Event timings enabled");
+        } else if("off".equalsIgnoreCase(args[0])) {
+            pluginManager.setHandlerTimingsEnabled(false);
+            sender.sendMessage("Event timings disabled");
+        } else if("reset".equalsIgnoreCase(args[0])) {
+            pluginManager.resetHandlerTimings();
+            sender.sendMessage("Event timings reset");
+        } else if("report".equalsIgnoreCase(args[0])) {
+            final Map<RegisteredHandler<?>, HandlerTimings> timings;
+            if(args.length > 1) {
+                final Plugin plugin = pluginManager.getPlugin(args[1]);
+                if(plugin == null) {
+                    sender.sendMessage(ChatColor.RED + "Unknown plugin " + args[1]);
+                    return true;
+                }
+                timings = pluginManager.getHandlerTimings(plugin);
+            } else {
+                timings = pluginManager.getHandlerTimings();
+            }
+            report(sender, timings);
+        } else {
+            sender.sendMessage(ChatColor.RED + "Usage: " + usageMessage);
+            return false;
+        }
+        return true;
+    }
+
+    private void report(CommandSender sender, Map<RegisteredHandler<?>, HandlerTimings> timings) {
+        if(timings.isEmpty()) {
+            sender.sendMessage("No event timings have been recorded");
+            return;
+        }
+
+        final List<Map.Entry<RegisteredHandler<?>, HandlerTimings>> entries = new ArrayList<>(timings.entrySet());
+        entries.sort(Comparator.comparingLong((Map.Entry<RegisteredHandler<?>, HandlerTimings> entry) -> entry.getValue().totalNanos()).reversed());
+
+        sender.sendMessage(ChatColor.GOLD + "Slowest event handlers by total time (times in us):");
+        for(Map.Entry<RegisteredHandler<?>, HandlerTimings> entry : entries.subList(0, Math.min(REPORT_SIZE, entries.size()))) {
+            final HandlerTimings t = entry.getValue();
+            sender.sendMessage(
+                ChatColor.YELLOW + describe(entry.getKey()) + ChatColor.WHITE +
+                " count=" + t.count() +
+                " total=" + micros(t.totalNanos()) +
+                " mean=" + micros(t.meanNanos()) +
+                " p50=" + micros(t.percentileNanos(0.5)) +
+                " p99=" + micros(t.percentileNanos(0.99)) +
+                " max=" + micros(t.maxNanos())
+            );
+        }
+    }
+
+    private static String describe(RegisteredHandler<?> handler) {
+        final StringBuilder text = new StringBuilder();
+        if(handler instanceof RegisteredListener) {
+            text.append(((RegisteredListener) handler).getPlugin().getName()).append(' ');
+        }
+        if(handler instanceof BoundEventHandler) {
+            text.append(((BoundEventHandler<?>) handler).listener().getClass().getName()).append(' ');
+        }
+        return text.append(handler.meta().event().getSimpleName())
+                   .append('@').append(handler.meta().priority())
+                   .toString();
+    }
+
+    private static long micros(long nanos) {
+        return nanos / 1000;
+    }
+
+    @Override
+    public List<String> tabComplete(CommandSender sender, String alias, String[] args) {
+        Validate.notNull(sender, "Sender cannot be null");
+        Validate.notNull(args, "Arguments cannot be null");
+        Validate.notNull(alias, "Alias cannot be null");
+
+        if(args.length == 1) {
+            return StringUtil.copyPartialMatches(args[0], SUBCOMMANDS, new ArrayList<String>(SUBCOMMANDS.size()));
+        }
+        return ImmutableList.of();
+    }
+}
@@ -1,5 +1,6 @@
 package org.bukkit.event;
 
+import java.util.concurrent.CompletableFuture;
 import javax.annotation.Nullable;
 
 import tc.oc.exception.ExceptionHandler;
@@ -41,6 +42,26 @@ public interface EventBus {
      */
     <T extends Event, X extends Throwable> void callEvent(T event, @Nullable EventPriority priority, @Nullable EventBody<? super T, X> body) throws X;
 
+    <T extends Event> CompletableFuture<T> callEventAsync(T event);
+
+    /**
+     * Dispatch the given event in the same way as {@link #callEvent(Event, EventPriority, EventBody)},
+     * without waiting for the dispatch to finish.
+     *
+     * If this is called from a thread other than the primary thread with a synchronous event,
+     * the event is queued for dispatch on the primary thread, and this method returns immediately.
+     * All events queued this way are dispatched together, by a single task on the primary thread.
+     *
+     * In any other case, the event is dispatched immediately, on the calling thread.
+     *
+     * @return a future that is completed with the event after it has been dispatched,
+     *         or completed exceptionally with any exception thrown from the event body.
+     *
+     * @throws IllegalStateException Thrown when an asynchronous event is
+     *     fired from the primary thread.
+     */
+    <T extends Event, X extends Throwable> CompletableFuture<T> callEventAsync(T event, @Nullable EventPriority priority, @Nullable EventBody<? super T, X> body);
+
     /**
      * Dispatch the given event to a single {@link RegisteredHandler}.
      *
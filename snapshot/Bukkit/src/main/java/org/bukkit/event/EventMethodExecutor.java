@@ -1,6 +1,5 @@
 package org.bukkit.event;
 
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Objects;
 import java.util.stream.Stream;
@@ -12,9 +11,12 @@ import tc.oc.minecraft.api.event.Listener;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
- * An {@link EventExecutor} that reflectively calls an instance {@link Method}
+ * An {@link EventExecutor} that calls an instance {@link Method}
  * on the {@link Listener} passed to it with the event.
  *
+ * The method is called through an {@link EventMethodInvoker}, which avoids
+ * reflection whenever possible.
+ *
  * Events that do not match the provided {@link EventHandlerMeta} are silently ignored.
  *
  * Exceptions thrown by the method are passed to the provided {@link ExceptionHandler},
@@ -24,6 +26,7 @@ public class EventMethodExecutor<T extends Event> implements EventExecutor<T> {
 
     private final EventHandlerMeta<T> meta;
     private final Method method;
+    private final EventMethodInvoker invoker;
     private final ExceptionHandler exceptionHandler;
 
     public EventMethodExecutor(EventHandlerMeta<T> meta, Method method, ExceptionHandler exceptionHandler) {
@@ -33,6 +36,7 @@ public class EventMethodExecutor<T extends Event> implements EventExecutor<T> {
 
         this.meta.assertCanCall(this.method);
         this.method.setAccessible(true);
+        this.invoker = EventMethodInvoker.forMethod(this.method);
     }
 
     public EventHandlerMeta<T> meta() {
@@ -43,6 +47,10 @@ public class EventMethodExecutor<T extends Event> implements EventExecutor<T> {
         return method;
     }
 
+    public EventMethodInvoker invoker() {
+        return invoker;
+    }
+
     public BoundEventHandler<T> bind(Listener listener) {
         return new BoundEventHandler<>(meta, this, listener);
     }
@@ -50,12 +58,9 @@ public class EventMethodExecutor<T extends Event> implements EventExecutor<T> {
     public void execute(Listener listener, T event) throws EventException {
         if(meta.canHandle(event, null)) {
             try {
-                method.invoke(listener, event);
-            } catch(InvocationTargetException ex) {
-                if(ex.getCause() instanceof EventException) {
-                    throw (EventException) ex.getCause();
-                }
-                handleException(listener, event, ex.getCause());
+                invoker.invoke(listener, event);
+            } catch(EventException ex) {
+                throw ex;
             } catch(Throwable ex) {
                 handleException(listener, event, ex);
             }
@@ -0,0 +1,73 @@
+package org.bukkit.event;
+
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Calls an event handler method on a listener.
+ *
+ * Instances created by {@link #forMethod(Method)} call the method directly, through
+ * a class generated by {@link LambdaMetafactory}, so dispatching an event costs about
+ * the same as a regular virtual call. If the class cannot be generated, which is always
+ * the case for plugin classes on Java 15 and later, the method is called through a
+ * {@link java.lang.invoke.MethodHandle} instead. Only if that fails too, a reflective
+ * implementation is returned.
+ *
+ * In either case, any exception thrown by the handler method is propagated as-is,
+ * without being wrapped in an {@link InvocationTargetException}.
+ */
+@FunctionalInterface
+public interface EventMethodInvoker {
+
+    void invoke(Object listener, Object event) throws Throwable;
+
+    /**
+     * Return true if this invoker calls its method through reflection,
+     * rather than through a generated class or a method handle.
+     */
+    default boolean isReflective() {
+        return false;
+    }
+
+    /**
+     * Create an invoker that calls the given method directly, or reflectively
+     * if that is not possible. The method must already be accessible.
+     */
+    static EventMethodInvoker forMethod(Method method) {
+        if(!Modifier.isStatic(method.getModifiers())) {
+            try {
+                return GeneratedEventMethodInvoker.create(method);
+            } catch(Throwable ex) {
+                Logger.getLogger(EventMethodInvoker.class.getName()).log(
+                    Level.WARNING, "Falling back to reflection for event handler " + method.toGenericString(), ex
+                );
+            }
+        }
+        return reflective(method);
+    }
+
+    /**
+     * Create an invoker that calls the given method through {@link Method#invoke}.
+     */
+    static EventMethodInvoker reflective(Method method) {
+        return new EventMethodInvoker() {
+            @Override
+            public void invoke(Object listener, Object event) throws Throwable {
+                try {
+                    method.invoke(listener, event);
+                } catch(InvocationTargetException ex) {
+                    throw ex.getCause();
+                }
+            }
+
+            @Override
+            public boolean isReflective() {
+                return true;
+            }
+        };
+    }
+}
@@ -0,0 +1,110 @@
+package org.bukkit.event;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Generates {@link EventMethodInvoker}s that call their handler method directly,
+ * using {@link LambdaMetafactory}.
+ *
+ * Since Java 15, {@link LambdaMetafactory} only accepts lookups with full privilege
+ * access, which a private lookup into a class from another class loader does not have.
+ * Handlers in plugin classes are called through a {@link MethodHandle} instead.
+ */
+final class GeneratedEventMethodInvoker {
+    private GeneratedEventMethodInvoker() {}
+
+    private static final MethodType INVOKE_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+    private static final MethodType FACTORY_TYPE = MethodType.methodType(EventMethodInvoker.class);
+
+    private static final int ALL_MODES = MethodHandles.Lookup.PUBLIC |
+                                         MethodHandles.Lookup.PRIVATE |
+                                         MethodHandles.Lookup.PROTECTED |
+                                         MethodHandles.Lookup.PACKAGE;
+
+    private static volatile boolean loggedHandleFallback;
+
+    private static final Method PRIVATE_LOOKUP_IN; // Java 9+
+    private static final Constructor<MethodHandles.Lookup> LOOKUP_CTOR; // Java 8
+
+    static {
+        Method privateLookupIn = null;
+        Constructor<MethodHandles.Lookup> lookupCtor = null;
+        try {
+            privateLookupIn = MethodHandles.class.getMethod("privateLookupIn", Class.class, MethodHandles.Lookup.class);
+        } catch(NoSuchMethodException ex) {
+            try {
+                lookupCtor = MethodHandles.Lookup.class.getDeclaredConstructor(Class.class, int.class);
+                lookupCtor.setAccessible(true);
+            } catch(ReflectiveOperationException | RuntimeException ignored) {}
+        }
+        PRIVATE_LOOKUP_IN = privateLookupIn;
+        LOOKUP_CTOR = lookupCtor;
+    }
+
+    /**
+     * Get a {@link MethodHandles.Lookup} with private access to the given class,
+     * which is required to generate a class that can call non-public handler methods.
+     */
+    private static MethodHandles.Lookup lookupIn(Class<?> type) throws ReflectiveOperationException {
+        if(PRIVATE_LOOKUP_IN != null) {
+            return (MethodHandles.Lookup) PRIVATE_LOOKUP_IN.invoke(null, type, MethodHandles.lookup());
+        } else if(LOOKUP_CTOR != null) {
+            return LOOKUP_CTOR.newInstance(type, ALL_MODES);
+        } else {
+            throw new IllegalAccessException("No private lookup available for " + type.getName());
+        }
+    }
+
+    /**
+     * Create a generated invoker for the given method, or a method handle invoker if
+     * a class cannot be generated for it. The method must already be accessible.
+     */
+    static EventMethodInvoker create(Method method) throws Throwable {
+        try {
+            return generate(method);
+        } catch(Throwable ex) {
+            if(!loggedHandleFallback) {
+                loggedHandleFallback = true;
+                Logger.getLogger(EventMethodInvoker.class.getName()).log(
+                    Level.INFO, "Calling event handlers through method handles, because an invoker could not be generated for " + method.toGenericString(), ex
+                );
+            }
+            return new HandleInvoker(MethodHandles.lookup().unreflect(method).asType(INVOKE_TYPE));
+        }
+    }
+
+    private static EventMethodInvoker generate(Method method) throws Throwable {
+        final MethodHandles.Lookup lookup = lookupIn(method.getDeclaringClass());
+        final MethodHandle target = lookup.unreflect(method);
+        final CallSite site = LambdaMetafactory.metafactory(
+            lookup,
+            "invoke",
+            FACTORY_TYPE,
+            INVOKE_TYPE,
+            target,
+            MethodType.methodType(void.class, method.getDeclaringClass(), method.getParameterTypes()[0])
+        );
+        return (EventMethodInvoker) site.getTarget().invokeExact();
+    }
+
+    private static final class HandleInvoker implements EventMethodInvoker {
+        private final MethodHandle handle;
+
+        HandleInvoker(MethodHandle handle) {
+            this.handle = handle;
+        }
+
+        @Override
+        public void invoke(Object listener, Object event) throws Throwable {
+            handle.invokeExact(listener, event);
+        }
+    }
+}
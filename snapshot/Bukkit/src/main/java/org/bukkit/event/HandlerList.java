@@ -4,6 +4,7 @@ import org.bukkit.plugin.*;
 
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 
 /**
@@ -17,6 +18,12 @@ public class HandlerList<T extends Event> {
      */
     private volatile RegisteredHandler<? super T>[] handlers = null;
 
+    /**
+     * True if any handlers are registered. This is kept up to date on every change,
+     * so it can be checked without baking, before an event is even created.
+     */
+    private volatile boolean hasHandlers = false;
+
     /**
      * Dynamic handler lists. These are changed using register() and
      * unregister() and are automatically baked to the handlers array any time
@@ -24,11 +31,60 @@ public class HandlerList<T extends Event> {
      */
     private final EnumMap<EventPriority, List<RegisteredHandler<? super T>>> handlerslots;
 
+    /**
+     * Timings for each handler, created when the handler is first called while
+     * timings are enabled, and removed when the handler is unregistered.
+     */
+    private final Map<RegisteredHandler<?>, HandlerTimings> timings = new ConcurrentHashMap<>();
+
     /**
      * List of all HandlerLists which have been created, for use in bakeAll()
      */
     private static final ArrayList<HandlerList<?>> allLists = new ArrayList<>();
 
+    private static volatile boolean timingsEnabled = false;
+
+    /**
+     * Enable or disable recording of {@link HandlerTimings} for all handlers.
+     *
+     * When disabled, the only cost to event dispatch is a single volatile read.
+     * Existing timings are kept when disabled, until they are reset.
+     */
+    public static void setTimingsEnabled(boolean enabled) {
+        timingsEnabled = enabled;
+    }
+
+    public static boolean timingsEnabled() {
+        return timingsEnabled;
+    }
+
+    /**
+     * Reset the timings of all handlers in all handler lists.
+     */
+    public static void resetAllTimings() {
+        synchronized(allLists) {
+            for(HandlerList<?> list : allLists) {
+                list.timings.clear();
+            }
+        }
+    }
+
+    /**
+     * Return the timings recorded for all handlers matching the given filter,
+     * in all handler lists.
+     */
+    public static Map<RegisteredHandler<?>, HandlerTimings> getAllTimings(Predicate<? super RegisteredHandler<?>> filter) {
+        final Map<RegisteredHandler<?>, HandlerTimings> results = new HashMap<>();
+        synchronized(allLists) {
+            for(HandlerList<?> list : allLists) {
+                list.timings.forEach((handler, timings) -> {
+                    if(filter.test(handler)) results.put(handler, timings);
+                });
+            }
+        }
+        return results;
+    }
+
     /**
      * Bake all handler lists. Best used just after all normal event
      * registration is complete, ie just after all plugins are loaded if
@@ -51,6 +107,8 @@ public class HandlerList<T extends Event> {
                 synchronized (h) {
                     h.handlerslots.values().forEach(List::clear);
                     h.handlers = null;
+                    h.hasHandlers = false;
+                    h.timings.clear();
                 }
             }
         }
@@ -112,6 +170,7 @@ public class HandlerList<T extends Event> {
         }
         handlers = null;
         handlerslots.get(priority).add(handler);
+        hasHandlers = true;
     }
 
     // For legacy binary compatibility
@@ -138,6 +197,8 @@ public class HandlerList<T extends Event> {
     public synchronized void unregister(RegisteredHandler<? super T> handler) {
         if(handlerslots.get(handler.meta().priority()).remove(handler)) {
             handlers = null;
+            timings.remove(handler);
+            updateHasHandlers();
         }
     }
 
@@ -154,13 +215,43 @@ public class HandlerList<T extends Event> {
         boolean changed = false;
         for(List<RegisteredHandler<? super T>> list : handlerslots.values()) {
             for(ListIterator<RegisteredHandler<? super T>> i = list.listIterator(); i.hasNext();) {
-                if (filter.test(i.next())) {
+                final RegisteredHandler<? super T> handler = i.next();
+                if (filter.test(handler)) {
                     i.remove();
+                    timings.remove(handler);
                     changed = true;
                 }
             }
         }
-        if(changed) handlers = null;
+        if(changed) {
+            handlers = null;
+            updateHasHandlers();
+        }
+    }
+
+    private void updateHasHandlers() {
+        hasHandlers = handlerslots.values().stream().anyMatch(list -> !list.isEmpty());
+    }
+
+    /**
+     * Test if any handlers are registered in this list. This is cheaper than
+     * {@link #getRegisteredListeners()}, and can be used to avoid creating and
+     * calling an event that nothing is listening to.
+     *
+     * Note that some handlers may still ignore the event, e.g. because it is
+     * cancelled, or because they are disabled.
+     */
+    public boolean hasHandlers() {
+        return hasHandlers;
+    }
+
+    /**
+     * Get the timings for the given handler, creating them if they don't exist yet.
+     * The handler should be registered with this list.
+     */
+    public HandlerTimings timings(RegisteredHandler<? super T> handler) {
+        final HandlerTimings existing = timings.get(handler);
+        return existing != null ? existing : timings.computeIfAbsent(handler, h -> new HandlerTimings());
     }
 
     /**
@@ -202,6 +293,7 @@ public class HandlerList<T extends Event> {
                 }
             }
             this.handlers = handlers;
+            this.hasHandlers = handlers.length > 0;
             return handlers;
         }
     }
@@ -0,0 +1,101 @@
+package org.bukkit.event;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A latency histogram for a single {@link RegisteredHandler}, recorded by the
+ * {@link SimpleEventBus} while timings are enabled in {@link HandlerList}.
+ *
+ * Durations are counted in logarithmic buckets, with four buckets for each power of two,
+ * so percentiles are accurate to within 25%. The count, total and maximum are exact.
+ *
+ * Recording is lock-free, and safe to do from any number of threads at once.
+ */
+public class HandlerTimings {
+
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = 64 * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    static int bucket(long nanos) {
+        if(nanos < SUB_BUCKETS) return (int) Math.max(0, nanos);
+        final int msb = 63 - Long.numberOfLeadingZeros(nanos);
+        final int sub = (int) (nanos >>> (msb - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (msb - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Return the largest duration that falls into the given bucket
+     */
+    static long bucketLimit(int bucket) {
+        if(bucket < SUB_BUCKETS) return bucket;
+        final int msb = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        final long sub = bucket % SUB_BUCKETS;
+        return ((SUB_BUCKETS + sub + 1) << (msb - SUB_BUCKET_BITS)) - 1;
+    }
+
+    public void record(long nanos) {
+        buckets.incrementAndGet(bucket(nanos));
+        count.increment();
+        total.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    public void reset() {
+        for(int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        total.reset();
+        max.reset();
+    }
+
+    /**
+     * Number of times the handler was called
+     */
+    public long count() {
+        return count.sum();
+    }
+
+    /**
+     * Total time spent in the handler
+     */
+    public long totalNanos() {
+        return total.sum();
+    }
+
+    /**
+     * Longest single call to the handler
+     */
+    public long maxNanos() {
+        return max.get();
+    }
+
+    public long meanNanos() {
+        final long count = count();
+        return count == 0 ? 0 : totalNanos() / count;
+    }
+
+    /**
+     * Return an upper bound for the given fraction of calls to the handler,
+     * e.g. 0.99 for the 99th percentile.
+     */
+    public long percentileNanos(double fraction) {
+        long remaining = (long) Math.ceil(count() * Math.min(1, Math.max(0, fraction)));
+        if(remaining <= 0) return 0;
+        for(int i = 0; i < BUCKETS; i++) {
+            remaining -= buckets.get(i);
+            if(remaining <= 0) {
+                return Math.min(bucketLimit(i), maxNanos());
+            }
+        }
+        return maxNanos();
+    }
+}
@@ -1,16 +1,26 @@
 package org.bukkit.event;
 
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.Nullable;
 
-import com.google.common.util.concurrent.SettableFuture;
-
 public class SimpleEventBus implements EventBus {
 
     private final Thread primaryThread;
     private final Executor syncExecutor;
 
+    /**
+     * Sync events called from other threads, waiting to be dispatched on the primary thread.
+     * These are all dispatched by a single task, so a burst of events only occupies
+     * one slot in the sync executor.
+     */
+    private final Queue<Runnable> pendingSyncEvents = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean pendingSyncDrain = new AtomicBoolean();
+
     public SimpleEventBus() {
         this(null, null);
     }
@@ -43,16 +53,7 @@ public class SimpleEventBus implements EventBus {
             }
             callEvent0(event, priority, body);
         } else {
-            final SettableFuture future = SettableFuture.create();
-            syncExecutor.execute(() -> {
-                try {
-                    callEvent0(event, priority, body);
-                    future.set(null);
-                } catch(Throwable ex) {
-                    future.setException(ex);
-                }
-            });
-
+            final CompletableFuture<T> future = callEventAsync(event, priority, body);
             for(;;) {
                 try {
                     future.get();
@@ -66,15 +67,60 @@ public class SimpleEventBus implements EventBus {
         }
     }
 
+    @Override
+    public <T extends Event> CompletableFuture<T> callEventAsync(T event) {
+        return callEventAsync(event, null, null);
+    }
+
+    @Override
+    public <T extends Event, X extends Throwable> CompletableFuture<T> callEventAsync(T event, @Nullable EventPriority priority, @Nullable EventBody<? super T, X> body) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        final Runnable dispatch = () -> {
+            try {
+                callEvent0(event, priority, body);
+                future.complete(event);
+            } catch(Throwable ex) {
+                future.completeExceptionally(ex);
+            }
+        };
+
+        final boolean primary = Thread.currentThread().equals(primaryThread);
+        if(event.isAsynchronous()) {
+            if(primary) {
+                throw new IllegalStateException(event.getEventName() + " cannot be called asynchronously from primary thread.");
+            }
+            dispatch.run();
+        } else if(primary || (body == null && !event.getHandlers().hasHandlers())) {
+            // Nothing would run on the primary thread, so don't wait for it
+            dispatch.run();
+        } else {
+            pendingSyncEvents.add(dispatch);
+            if(pendingSyncDrain.compareAndSet(false, true)) {
+                syncExecutor.execute(this::drainSyncEvents);
+            }
+        }
+        return future;
+    }
+
+    private void drainSyncEvents() {
+        // Clear the flag before polling, so that any event queued after
+        // the last poll is guaranteed to schedule another drain.
+        pendingSyncDrain.set(false);
+        for(Runnable dispatch; (dispatch = pendingSyncEvents.poll()) != null;) {
+            dispatch.run();
+        }
+    }
+
     public <T extends Event, X extends Throwable> void callEvent0(T event, @Nullable EventPriority priority, @Nullable EventBody<? super T, X> body) throws X {
         try {
-            callEvent0(event, priority, event.getHandlers().getRegisteredListeners(), 0, body);
+            final HandlerList<T> list = event.getHandlers();
+            callEvent0(event, priority, list, list.getRegisteredListeners(), 0, body);
         } catch(EventException e) {
             throw (X) e.getCause();
         }
     }
 
-    private <T extends Event, X extends Throwable> void callEvent0(T event, @Nullable EventPriority priority, RegisteredHandler<? super T>[] handlers, int index, @Nullable EventBody<? super T, X> body) throws EventException {
+    private <T extends Event, X extends Throwable> void callEvent0(T event, @Nullable EventPriority priority, HandlerList<T> list, RegisteredHandler<? super T>[] handlers, int index, @Nullable EventBody<? super T, X> body) throws EventException {
         for(int i = index; i < handlers.length; i++) {
             final RegisteredHandler<? super T> handler = handlers[i];
             if(handler.canHandle(event, priority)) {
@@ -87,7 +133,7 @@ public class SimpleEventBus implements EventBus {
                 // which can be appreciated when reading stack traces.
 
                 final int nextIndex = i + 1;
-                if(callEventHandler0(event, handler, ev -> callEvent0(event, priority, handlers, nextIndex, body))) return;
+                if(callEventHandler0(event, list, handler, ev -> callEvent0(event, priority, list, handlers, nextIndex, body))) return;
             }
         }
 
@@ -111,7 +157,7 @@ public class SimpleEventBus implements EventBus {
     public <T extends Event, X extends Throwable> boolean callEventHandler(T event, @Nullable EventPriority priority, RegisteredHandler<? super T> handler, @Nullable EventBody<? super T, X> body) throws X {
         if(handler.canHandle(event, priority)) {
             try {
-                return callEventHandler0(event, handler, body);
+                return callEventHandler0(event, event.getHandlers(), handler, body);
             } catch(EventException e) {
                 throw (X) e.getCause();
             }
@@ -119,9 +165,35 @@ public class SimpleEventBus implements EventBus {
         return false;
     }
 
-    private <T extends Event> boolean callEventHandler0(T event, RegisteredHandler<? super T> handler, @Nullable EventCallable yielder) throws EventException {
-        final EventCallable oldYielder = event.yielder;
+    private <T extends Event> boolean callEventHandler0(T event, HandlerList<T> list, RegisteredHandler<? super T> handler, @Nullable EventCallable yielder) throws EventException {
         if(yielder == null) yielder = EventCallable.EMPTY;
+        if(!HandlerList.timingsEnabled()) {
+            return invokeHandler(event, handler, yielder);
+        }
+
+        // If the handler yields, the time spent in the rest of the dispatch
+        // is excluded from the handler's own time.
+        final EventCallable innerYielder = yielder;
+        final long[] yieldedNanos = new long[1];
+        final EventCallable timedYielder = ev -> {
+            final long start = System.nanoTime();
+            try {
+                innerYielder.callEvent(ev);
+            } finally {
+                yieldedNanos[0] += System.nanoTime() - start;
+            }
+        };
+
+        final long start = System.nanoTime();
+        try {
+            return invokeHandler(event, handler, timedYielder);
+        } finally {
+            list.timings(handler).record(System.nanoTime() - start - yieldedNanos[0]);
+        }
+    }
+
+    private <T extends Event> boolean invokeHandler(T event, RegisteredHandler<? super T> handler, EventCallable yielder) throws EventException {
+        final EventCallable oldYielder = event.yielder;
         event.yielder = yielder;
         try {
             handler.callEvent(event);
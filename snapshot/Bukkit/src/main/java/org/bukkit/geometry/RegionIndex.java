@@ -0,0 +1,278 @@
+package org.bukkit.geometry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * A set of {@link Region}s that can quickly find the regions containing a point,
+ * or the regions whose bounds intersect a {@link Cuboid}.
+ *
+ * Space is divided into square columns on the X/Z plane, and each region is listed in
+ * every column that its {@link Region#bounds()} overlap. A point query only tests the
+ * regions listed in the column containing the point. Regions that would cover too many
+ * columns, including unbounded ones, are kept in a separate list that is always tested.
+ *
+ * The bounds of each region are read when it is added, so a region must not change its
+ * bounds while it is in the index. Regions are compared by {@link Object#equals(Object)}.
+ * This class is not thread-safe.
+ */
+public class RegionIndex<R extends Region> {
+
+    public static final int DEFAULT_COLUMN_BITS = 4;
+    public static final int DEFAULT_MAX_COLUMNS = 1024;
+
+    private static class Entry<R> {
+        final R region;
+        final double minX, minY, minZ, maxX, maxY, maxZ;
+        final int minColumnX, minColumnZ, maxColumnX, maxColumnZ;
+        final boolean oversized;
+
+        Entry(R region, Cuboid bounds, int columnBits, int maxColumns) {
+            this.region = region;
+            final Vec3 min = bounds.minimum(), max = bounds.maximum();
+            minX = min.fineX(); minY = min.fineY(); minZ = min.fineZ();
+            maxX = max.fineX(); maxY = max.fineY(); maxZ = max.fineZ();
+
+            if(bounds.isBlockFinite()) {
+                minColumnX = column(minX, columnBits);
+                minColumnZ = column(minZ, columnBits);
+                maxColumnX = column(maxX, columnBits);
+                maxColumnZ = column(maxZ, columnBits);
+                oversized = (long) (maxColumnX - minColumnX + 1) * (maxColumnZ - minColumnZ + 1) > maxColumns;
+            } else {
+                minColumnX = minColumnZ = maxColumnX = maxColumnZ = 0;
+                oversized = true;
+            }
+        }
+
+        boolean boundsContain(Vec3 point) {
+            final double x = point.fineX(), y = point.fineY(), z = point.fineZ();
+            return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+        }
+
+        boolean boundsIntersect(Entry<?> box) {
+            return minX <= box.maxX && maxX >= box.minX &&
+                   minY <= box.maxY && maxY >= box.minY &&
+                   minZ <= box.maxZ && maxZ >= box.minZ;
+        }
+    }
+
+    private final int columnBits;
+    private final int maxColumns;
+
+    private final Map<R, Entry<R>> entries = new LinkedHashMap<>();
+    private final Map<Long, List<Entry<R>>> columns = new HashMap<>();
+    private final List<Entry<R>> oversized = new ArrayList<>();
+
+    /**
+     * Create an index with columns of 2^{@link #DEFAULT_COLUMN_BITS} blocks
+     */
+    public RegionIndex() {
+        this(DEFAULT_COLUMN_BITS, DEFAULT_MAX_COLUMNS);
+    }
+
+    /**
+     * @param columnBits The width of each column is 2 to the power of this
+     * @param maxColumns Regions that overlap more than this many columns are
+     *                   tested for every query, instead of being listed in columns
+     */
+    public RegionIndex(int columnBits, int maxColumns) {
+        if(columnBits < 0 || columnBits > 30) {
+            throw new IllegalArgumentException("Column bits must be between 0 and 30");
+        }
+        if(maxColumns < 1) {
+            throw new IllegalArgumentException("Max columns must be positive");
+        }
+        this.columnBits = columnBits;
+        this.maxColumns = maxColumns;
+    }
+
+    private static int column(double coordinate, int columnBits) {
+        final double column = Math.floor(coordinate) / (1 << columnBits);
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, Math.floor(column)));
+    }
+
+    private static long key(int columnX, int columnZ) {
+        return (long) columnX << 32 | (columnZ & 0xFFFFFFFFL);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public boolean contains(R region) {
+        return entries.containsKey(region);
+    }
+
+    /**
+     * Return an unmodifiable view of the regions in this index
+     */
+    public Set<R> regions() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+
+    /**
+     * Add the given region to the index
+     *
+     * @return false if the region was already in the index
+     */
+    public boolean add(R region) {
+        if(entries.containsKey(region)) return false;
+
+        final Cuboid bounds = region.bounds();
+        if(bounds.isEmpty()) {
+            // Contains nothing, so it never needs to be found by a query
+            entries.put(region, null);
+            return true;
+        }
+
+        final Entry<R> entry = new Entry<>(region, bounds, columnBits, maxColumns);
+        entries.put(region, entry);
+        if(entry.oversized) {
+            oversized.add(entry);
+        } else {
+            for(int x = entry.minColumnX; x <= entry.maxColumnX; x++) {
+                for(int z = entry.minColumnZ; z <= entry.maxColumnZ; z++) {
+                    columns.computeIfAbsent(key(x, z), key -> new ArrayList<>(4)).add(entry);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Remove the given region from the index
+     *
+     * @return false if the region was not in the index
+     */
+    public boolean remove(R region) {
+        if(!entries.containsKey(region)) return false;
+        final Entry<R> entry = entries.remove(region);
+        if(entry == null) return true;
+
+        if(entry.oversized) {
+            oversized.remove(entry);
+        } else {
+            for(int x = entry.minColumnX; x <= entry.maxColumnX; x++) {
+                for(int z = entry.minColumnZ; z <= entry.maxColumnZ; z++) {
+                    final long key = key(x, z);
+                    final List<Entry<R>> column = columns.get(key);
+                    column.remove(entry);
+                    if(column.isEmpty()) columns.remove(key);
+                }
+            }
+        }
+        return true;
+    }
+
+    public void clear() {
+        entries.clear();
+        columns.clear();
+        oversized.clear();
+    }
+
+    /**
+     * Pass every region that contains the given point to the given consumer, in no particular order.
+     * Unlike {@link #containing(Vec3)}, this does not build a list.
+     */
+    public void forEachContaining(Vec3 point, Consumer<? super R> consumer) {
+        final List<Entry<R>> column = columns.get(key(column(point.fineX(), columnBits),
+                                                      column(point.fineZ(), columnBits)));
+        if(column != null) {
+            for(int i = 0; i < column.size(); i++) {
+                final Entry<R> entry = column.get(i);
+                if(entry.boundsContain(point) && entry.region.contains(point)) {
+                    consumer.accept(entry.region);
+                }
+            }
+        }
+        for(int i = 0; i < oversized.size(); i++) {
+            final Entry<R> entry = oversized.get(i);
+            if(entry.boundsContain(point) && entry.region.contains(point)) {
+                consumer.accept(entry.region);
+            }
+        }
+    }
+
+    /**
+     * Return a new list of the regions that contain the given point, in no particular order
+     */
+    public List<R> containing(Vec3 point) {
+        final List<R> list = new ArrayList<>();
+        forEachContaining(point, list::add);
+        return list;
+    }
+
+    /**
+     * Is the given point inside any region in this index?
+     */
+    public boolean anyContains(Vec3 point) {
+        final List<Entry<R>> column = columns.get(key(column(point.fineX(), columnBits),
+                                                      column(point.fineZ(), columnBits)));
+        if(column != null) {
+            for(int i = 0; i < column.size(); i++) {
+                final Entry<R> entry = column.get(i);
+                if(entry.boundsContain(point) && entry.region.contains(point)) return true;
+            }
+        }
+        for(int i = 0; i < oversized.size(); i++) {
+            final Entry<R> entry = oversized.get(i);
+            if(entry.boundsContain(point) && entry.region.contains(point)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Return a new list of the regions whose bounds intersect the given cuboid, in no particular order.
+     *
+     * Only the bounds of the regions are tested, so a region's bounds may intersect
+     * the cuboid even though the region itself does not.
+     */
+    public List<R> intersecting(Cuboid cuboid) {
+        final List<R> list = new ArrayList<>();
+        if(cuboid.isEmpty() || entries.isEmpty()) return list;
+
+        final Entry<Cuboid> box = new Entry<>(cuboid, cuboid, columnBits, maxColumns);
+        if(box.oversized || (long) (box.maxColumnX - box.minColumnX + 1) * (box.maxColumnZ - box.minColumnZ + 1) > columns.size()) {
+            // Cheaper to test every region than to look up every column
+            for(Entry<R> entry : entries.values()) {
+                if(entry != null && entry.boundsIntersect(box)) {
+                    list.add(entry.region);
+                }
+            }
+            return list;
+        }
+
+        // A region can be listed in several columns, but it is only added from the
+        // first column that it has in common with the cuboid.
+        for(int x = box.minColumnX; x <= box.maxColumnX; x++) {
+            for(int z = box.minColumnZ; z <= box.maxColumnZ; z++) {
+                final List<Entry<R>> column = columns.get(key(x, z));
+                if(column == null) continue;
+                for(Entry<R> entry : column) {
+                    if(x == Math.max(box.minColumnX, entry.minColumnX) &&
+                       z == Math.max(box.minColumnZ, entry.minColumnZ) &&
+                       entry.boundsIntersect(box)) {
+                        list.add(entry.region);
+                    }
+                }
+            }
+        }
+        for(Entry<R> entry : oversized) {
+            if(entry.boundsIntersect(box)) {
+                list.add(entry.region);
+            }
+        }
+        return list;
+    }
+}
@@ -1,12 +1,26 @@
 package org.bukkit.metadata;
 
+import com.google.common.collect.ImmutableList;
 import org.apache.commons.lang.Validate;
 import org.bukkit.plugin.Plugin;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+/**
+ * Metadata is stored in a {@link ConcurrentMap} from each subject's key to a
+ * map of its metadata keys, and each metadata key holds an immutable list with
+ * the value of each plugin that has set it. Reads take no locks, and writes
+ * only lock the entry of the subject being changed.
+ * <p>
+ * Subclasses should identify each subject with {@link #subjectKey(Object)},
+ * which should be cheap to compute and compare. Older subclasses that only
+ * implement {@link #disambiguate(Object, String)} still work, with one subject
+ * per disambiguated string.
+ */
 public abstract class MetadataStoreBase<T> {
-    private Map<String, Map<Plugin, MetadataValue>> metadataMap = new HashMap<String, Map<Plugin, MetadataValue>>();
+    private final ConcurrentMap<Object, ConcurrentMap<String, List<MetadataValue>>> metadataMap = new ConcurrentHashMap<Object, ConcurrentMap<String, List<MetadataValue>>>();
 
     /**
      * Adds a metadata value to an object. Each metadata value is owned by a
@@ -14,14 +28,6 @@ public abstract class MetadataStoreBase<T> {
      * to an object, that value will be replaced with the value of {@code
      * newMetadataValue}. Multiple plugins can set independent values for the
      * same {@code metadataKey} without conflict.
-     * <p>
-     * Implementation note: I considered using a {@link
-     * java.util.concurrent.locks.ReadWriteLock} for controlling access to
-     * {@code metadataMap}, but decided that the added overhead wasn't worth
-     * the finer grained access control.
-     * <p>
-     * Bukkit is almost entirely single threaded so locking overhead shouldn't
-     * pose a problem.
      *
      * @param subject The object receiving the metadata.
      * @param metadataKey A unique key to identify this metadata.
@@ -30,23 +36,28 @@ public abstract class MetadataStoreBase<T> {
      * @throws IllegalArgumentException If value is null, or the owning plugin
      *     is null
      */
-    public synchronized void setMetadata(T subject, String metadataKey, MetadataValue newMetadataValue) {
+    public void setMetadata(T subject, final String metadataKey, final MetadataValue newMetadataValue) {
         Validate.notNull(newMetadataValue, "Value cannot be null");
-        Plugin owningPlugin = newMetadataValue.getOwningPlugin();
+        final Plugin owningPlugin = newMetadataValue.getOwningPlugin();
         Validate.notNull(owningPlugin, "Plugin cannot be null");
-        String key = disambiguate(subject, metadataKey);
-        Map<Plugin, MetadataValue> entry = metadataMap.get(key);
-        if (entry == null) {
-            entry = new WeakHashMap<Plugin, MetadataValue>(1);
-            metadataMap.put(key, entry);
-        }
-        entry.put(owningPlugin, newMetadataValue);
+        metadataMap.compute(key(subject, metadataKey), (key, entries) -> {
+            if (entries == null) {
+                entries = new ConcurrentHashMap<String, List<MetadataValue>>(4);
+                subjectAdded(key);
+            }
+            entries.put(metadataKey, with(entries.get(metadataKey), owningPlugin, newMetadataValue));
+            return entries;
+        });
     }
 
-    public synchronized MetadataValue getMetadata(T subject, String metadataKey, Plugin owningPlugin) {
-        String key = disambiguate(subject, metadataKey);
-        Map<Plugin, MetadataValue> values = metadataMap.get(key);
-        return values == null ? null : values.get(owningPlugin);
+    public MetadataValue getMetadata(T subject, String metadataKey, Plugin owningPlugin) {
+        final List<MetadataValue> values = values(subject, metadataKey);
+        if (values != null) {
+            for (MetadataValue value : values) {
+                if (value.getOwningPlugin() == owningPlugin) return value;
+            }
+        }
+        return null;
     }
 
     /**
@@ -59,14 +70,9 @@ public abstract class MetadataStoreBase<T> {
      *     requested value.
      * @see MetadataStore#getMetadata(Object, String)
      */
-    public synchronized List<MetadataValue> getMetadata(T subject, String metadataKey) {
-        String key = disambiguate(subject, metadataKey);
-        if (metadataMap.containsKey(key)) {
-            Collection<MetadataValue> values = metadataMap.get(key).values();
-            return Collections.unmodifiableList(new ArrayList<MetadataValue>(values));
-        } else {
-            return Collections.emptyList();
-        }
+    public List<MetadataValue> getMetadata(T subject, String metadataKey) {
+        final List<MetadataValue> values = values(subject, metadataKey);
+        return values == null ? Collections.<MetadataValue>emptyList() : values;
     }
 
     /**
@@ -77,9 +83,8 @@ public abstract class MetadataStoreBase<T> {
      * @param metadataKey the unique metadata key being queried.
      * @return the existence of the metadataKey within subject.
      */
-    public synchronized boolean hasMetadata(T subject, String metadataKey) {
-        String key = disambiguate(subject, metadataKey);
-        return metadataMap.containsKey(key);
+    public boolean hasMetadata(T subject, String metadataKey) {
+        return values(subject, metadataKey) != null;
     }
 
     /**
@@ -93,18 +98,19 @@ public abstract class MetadataStoreBase<T> {
      *     org.bukkit.plugin.Plugin)
      * @throws IllegalArgumentException If plugin is null
      */
-    public synchronized void removeMetadata(T subject, String metadataKey, Plugin owningPlugin) {
+    public void removeMetadata(T subject, final String metadataKey, final Plugin owningPlugin) {
         Validate.notNull(owningPlugin, "Plugin cannot be null");
-        String key = disambiguate(subject, metadataKey);
-        Map<Plugin, MetadataValue> entry = metadataMap.get(key);
-        if (entry == null) {
-            return;
-        }
-
-        entry.remove(owningPlugin);
-        if (entry.isEmpty()) {
-            metadataMap.remove(key);
-        }
+        metadataMap.computeIfPresent(key(subject, metadataKey), (key, entries) -> {
+            final List<MetadataValue> values = without(entries.get(metadataKey), owningPlugin);
+            if (values == null) {
+                entries.remove(metadataKey);
+            } else {
+                entries.put(metadataKey, values);
+            }
+            if (!entries.isEmpty()) return entries;
+            subjectRemoved(key);
+            return null;
+        });
     }
 
     /**
@@ -116,15 +122,123 @@ public abstract class MetadataStoreBase<T> {
      * @see MetadataStore#invalidateAll(org.bukkit.plugin.Plugin)
      * @throws IllegalArgumentException If plugin is null
      */
-    public synchronized void invalidateAll(Plugin owningPlugin) {
+    public void invalidateAll(Plugin owningPlugin) {
         Validate.notNull(owningPlugin, "Plugin cannot be null");
-        for (Map<Plugin, MetadataValue> values : metadataMap.values()) {
-            if (values.containsKey(owningPlugin)) {
-                values.get(owningPlugin).invalidate();
+        for (Map<String, List<MetadataValue>> entries : metadataMap.values()) {
+            for (List<MetadataValue> values : entries.values()) {
+                for (MetadataValue value : values) {
+                    if (value.getOwningPlugin() == owningPlugin) {
+                        value.invalidate();
+                    }
+                }
             }
         }
     }
 
+    /**
+     * Removes all metadata from the subject with the given key, as returned
+     * by {@link #subjectKey(Object)}.
+     *
+     * @param subjectKey the key of the subject to remove metadata from.
+     * @return true if the subject had any metadata.
+     */
+    protected boolean removeSubject(Object subjectKey) {
+        final boolean[] removed = new boolean[1];
+        metadataMap.computeIfPresent(subjectKey, (key, entries) -> {
+            subjectRemoved(key);
+            removed[0] = true;
+            return null;
+        });
+        return removed[0];
+    }
+
+    /**
+     * Removes all metadata from every subject in this store.
+     */
+    public void clear() {
+        for (Object subjectKey : metadataMap.keySet()) {
+            removeSubject(subjectKey);
+        }
+    }
+
+    /**
+     * Called when a subject gets its first metadata value. This is called
+     * while the subject's entry is locked, so calls for the same subject
+     * happen in order, and this method must not use the store itself.
+     *
+     * @param subjectKey the key of the subject.
+     */
+    protected void subjectAdded(Object subjectKey) {}
+
+    /**
+     * Called when a subject loses its last metadata value, in the same way
+     * as {@link #subjectAdded(Object)}.
+     *
+     * @param subjectKey the key of the subject.
+     */
+    protected void subjectRemoved(Object subjectKey) {}
+
+    /**
+     * Returns an object that identifies the given subject. Any two equivalent
+     * subjects must have equal keys, and keys should be cheap to create and
+     * compare, e.g. boxed primitives or {@link UUID}s.
+     * <p>
+     * The default implementation returns null, in which case the subject is
+     * identified by {@link #disambiguate(Object, String)} instead.
+     *
+     * @param subject the object receiving metadata.
+     * @return a key for the given subject, or null.
+     */
+    protected Object subjectKey(T subject) {
+        return null;
+    }
+
+    private Object key(T subject, String metadataKey) {
+        final Object key = subjectKey(subject);
+        return key != null ? key : disambiguate(subject, metadataKey);
+    }
+
+    private List<MetadataValue> values(T subject, String metadataKey) {
+        final Map<String, List<MetadataValue>> entries = metadataMap.get(key(subject, metadataKey));
+        return entries == null ? null : entries.get(metadataKey);
+    }
+
+    /**
+     * Copies the given values, replacing the value owned by the given plugin,
+     * and dropping values whose plugin no longer exists.
+     */
+    private static List<MetadataValue> with(List<MetadataValue> values, Plugin owningPlugin, MetadataValue newValue) {
+        if (values == null) {
+            return ImmutableList.of(newValue);
+        }
+        final ImmutableList.Builder<MetadataValue> builder = ImmutableList.builder();
+        for (MetadataValue value : values) {
+            final Plugin plugin = value.getOwningPlugin();
+            if (plugin != null && plugin != owningPlugin) {
+                builder.add(value);
+            }
+        }
+        return builder.add(newValue).build();
+    }
+
+    /**
+     * Copies the given values without the value owned by the given plugin,
+     * or returns null if there are none left.
+     */
+    private static List<MetadataValue> without(List<MetadataValue> values, Plugin owningPlugin) {
+        if (values == null) return null;
+        final ImmutableList.Builder<MetadataValue> builder = ImmutableList.builder();
+        boolean empty = true;
+        for (MetadataValue value : values) {
+            final Plugin plugin = value.getOwningPlugin();
+            if (plugin != null && plugin != owningPlugin) {
+                builder.add(value);
+                empty = false;
+            }
+        }
+        return empty ? null : builder.build();
+    }
+
     /**
      * Creates a unique name for the object receiving metadata by combining
      * unique data from the subject with a metadataKey.
@@ -133,6 +247,8 @@ public abstract class MetadataStoreBase<T> {
      * two equivalent objects must generate the same unique name. For example,
      * two Player objects must generate the same string if they represent the
      * same player, even if the objects would fail a reference equality test.
+     * <p>
+     * This is only called if {@link #subjectKey(Object)} returns null.
      *
      * @param subject The object for which this key is being generated.
      * @param metadataKey The name identifying the metadata value.
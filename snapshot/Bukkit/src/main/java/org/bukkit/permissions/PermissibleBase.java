@@ -1,5 +1,6 @@
 package org.bukkit.permissions;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -17,12 +18,35 @@ import org.bukkit.plugin.Plugin;
 
 /**
  * Base Permissible for use in any Permissible object via proxy or extension
+ * <p>
+ * Permission checks are safe to make from any thread. Checks of a {@link
+ * Permission} object don't need to take any lock.
  */
 public class PermissibleBase implements Permissible {
     private ServerOperator opable = null;
     private Permissible parent = this;
     private final Set<PermissionAttachment> attachments = new LinkedHashSet<PermissionAttachment>();
     private final ListMultimap<String, PermissionAttachmentInfo> permissions = ArrayListMultimap.create();
+    private long nextAttachmentOrder = 0;
+    private volatile CompiledPermissions compiled = null;
+
+    /**
+     * The effective values of {@link #permissions}, indexed by {@link Permission#getId()},
+     * so that checking a {@link Permission} needs no string operations. This is built
+     * the first time it is needed after the permissions change, and covers all IDs
+     * that had been assigned at that time.
+     */
+    private static class CompiledPermissions {
+        final int idCount;
+        final long[] set;
+        final long[] values;
+
+        CompiledPermissions(int idCount) {
+            this.idCount = idCount;
+            this.set = new long[(idCount + 63) >> 6];
+            this.values = new long[set.length];
+        }
+    }
 
     public PermissibleBase(ServerOperator opable) {
         this.opable = opable;
@@ -50,7 +74,7 @@ public class PermissibleBase implements Permissible {
         }
     }
 
-    public boolean isPermissionSet(String name) {
+    public synchronized boolean isPermissionSet(String name) {
         if (name == null) {
             throw new IllegalArgumentException("Permission name cannot be null");
         }
@@ -63,18 +87,24 @@ public class PermissibleBase implements Permissible {
             throw new IllegalArgumentException("Permission cannot be null");
         }
 
-        return isPermissionSet(perm.getName());
+        int id = perm.getId();
+        if (id < 0) {
+            // Unregistered permissions have no ID
+            return isPermissionSet(perm.getName());
+        }
+        return (compiledPermissions(id).set[id >> 6] & (1L << id)) != 0;
     }
 
-    public boolean hasPermission(String inName) {
+    public synchronized boolean hasPermission(String inName) {
         if (inName == null) {
             throw new IllegalArgumentException("Permission name cannot be null");
         }
 
         String name = inName.toLowerCase(java.util.Locale.ENGLISH);
+        List<PermissionAttachmentInfo> infos = permissions.get(name);
 
-        if (isPermissionSet(name)) {
-            return getEffectivePermission(name).getValue();
+        if (!infos.isEmpty()) {
+            return infos.get(infos.size() - 1).getValue();
         } else {
             Permission perm = Bukkit.getServer().getPluginManager().getPermission(name);
 
@@ -91,14 +121,59 @@ public class PermissibleBase implements Permissible {
             throw new IllegalArgumentException("Permission cannot be null");
         }
 
-        String name = perm.getName().toLowerCase(java.util.Locale.ENGLISH);
+        int id = perm.getId();
+        if (id < 0) {
+            // Unregistered permissions have no ID
+            String name = perm.getName().toLowerCase(java.util.Locale.ENGLISH);
+            if (isPermissionSet(name)) {
+                return getEffectivePermission(name).getValue();
+            }
+            return perm.getDefault().getValue(isOp());
+        }
+
+        CompiledPermissions compiled = compiledPermissions(id);
+        long bit = 1L << id;
 
-        if (isPermissionSet(name)) {
-            return getEffectivePermission(name).getValue();
+        if ((compiled.set[id >> 6] & bit) != 0) {
+            return (compiled.values[id >> 6] & bit) != 0;
         }
         return perm.getDefault().getValue(isOp());
     }
 
+    /**
+     * Get the compiled permissions, rebuilding them if they are out of date
+     * or don't cover the given ID.
+     */
+    private CompiledPermissions compiledPermissions(int id) {
+        CompiledPermissions compiled = this.compiled;
+        if (compiled != null && id < compiled.idCount) {
+            return compiled;
+        }
+        return compilePermissions(id);
+    }
+
+    private synchronized CompiledPermissions compilePermissions(int id) {
+        CompiledPermissions compiled = this.compiled;
+        if (compiled != null && id < compiled.idCount) {
+            return compiled; // Compiled by another thread while we were waiting
+        }
+
+        // Read the count first, so any name given an ID after this is not assumed to be unset
+        compiled = new CompiledPermissions(Permission.getIdCount());
+        for (Map.Entry<String, Collection<PermissionAttachmentInfo>> entry : permissions.asMap().entrySet()) {
+            int nameId = Permission.getId(entry.getKey());
+            if (nameId < 0 || nameId >= compiled.idCount) continue;
+
+            List<PermissionAttachmentInfo> infos = (List<PermissionAttachmentInfo>) entry.getValue();
+            long bit = 1L << nameId;
+            compiled.set[nameId >> 6] |= bit;
+            if (infos.get(infos.size() - 1).getValue()) {
+                compiled.values[nameId >> 6] |= bit;
+            }
+        }
+        return this.compiled = compiled;
+    }
+
     public PermissionAttachment addAttachment(Plugin plugin, String name, boolean value) {
         if (name == null) {
             throw new IllegalArgumentException("Permission name cannot be null");
@@ -111,12 +186,10 @@ public class PermissibleBase implements Permissible {
         PermissionAttachment result = addAttachment(plugin);
         result.setPermission(name, value);
 
-        recalculatePermissions();
-
         return result;
     }
 
-    public PermissionAttachment addAttachment(Plugin plugin) {
+    public synchronized PermissionAttachment addAttachment(Plugin plugin) {
         if (plugin == null) {
             throw new IllegalArgumentException("Plugin cannot be null");
         } else if (!plugin.isEnabled()) {
@@ -124,14 +197,16 @@ public class PermissibleBase implements Permissible {
         }
 
         PermissionAttachment result = new PermissionAttachment(plugin, parent);
+        result.base = this;
+        result.order = nextAttachmentOrder++;
 
+        // An empty attachment doesn't change any permissions, so there is nothing to recalculate
         attachments.add(result);
-        recalculatePermissions();
 
         return result;
     }
 
-    public void removeAttachment(PermissionAttachment attachment) {
+    public synchronized void removeAttachment(PermissionAttachment attachment) {
         if (attachment == null) {
             throw new IllegalArgumentException("Attachment cannot be null");
         }
@@ -144,14 +219,15 @@ public class PermissibleBase implements Permissible {
                 ex.attachmentRemoved(attachment);
             }
 
-            recalculatePermissions();
+            List<String> removed = removeAttachmentPermissions(attachment);
+            unsubscribeUnused(removed);
         } else {
             throw new IllegalArgumentException("Given attachment is not part of Permissible object " + parent);
         }
     }
 
     @Override
-    public boolean removeAttachments(Plugin plugin) {
+    public synchronized boolean removeAttachments(Plugin plugin) {
         boolean changed = false;
         for(Iterator<PermissionAttachment> iterator = attachments.iterator(); iterator.hasNext(); ) {
             PermissionAttachment attachment = iterator.next();
@@ -165,7 +241,7 @@ public class PermissibleBase implements Permissible {
     }
 
     @Override
-    public boolean removeAttachments(String name) {
+    public synchronized boolean removeAttachments(String name) {
         boolean changed = false;
         for(PermissionAttachmentInfo info : permissions.get(name.toLowerCase())) {
             attachments.remove(info.getAttachment());
@@ -181,7 +257,7 @@ public class PermissibleBase implements Permissible {
     }
 
     @Override
-    public boolean removeAttachments(Plugin plugin, String name) {
+    public synchronized boolean removeAttachments(Plugin plugin, String name) {
         boolean changed = false;
         for(PermissionAttachmentInfo info : permissions.get(name.toLowerCase())) {
             if(info.getAttachment().getPlugin() == plugin) {
@@ -198,7 +274,7 @@ public class PermissibleBase implements Permissible {
         return removeAttachments(plugin, permission.getName());
     }
 
-    public void recalculatePermissions() {
+    public synchronized void recalculatePermissions() {
         clearPermissions();
         Set<Permission> defaults = Bukkit.getServer().getPluginManager().getDefaultPermissions(isOp());
         Bukkit.getServer().getPluginManager().subscribeToDefaultPerms(isOp(), parent);
@@ -206,12 +282,109 @@ public class PermissibleBase implements Permissible {
         for (Permission perm : defaults) {
             String name = perm.getName().toLowerCase(java.util.Locale.ENGLISH);
             permissions.put(name, new PermissionAttachmentInfo(parent, name, null, true));
-            Bukkit.getServer().getPluginManager().subscribeToPermission(name, parent);
-            calculateChildPermissions(perm.getChildren(), false, null);
+            calculateChildPermissions(perm.getChildren(), false, null, permissions);
         }
 
         for (PermissionAttachment attachment : attachments) {
-            calculateChildPermissions(attachment.getPermissions(), false, attachment);
+            calculateChildPermissions(attachment.getPermissions(), false, attachment, permissions);
+        }
+
+        for (String name : permissions.keySet()) {
+            Bukkit.getServer().getPluginManager().subscribeToPermission(name, parent);
+        }
+    }
+
+    /**
+     * Recalculate only the permissions granted by the given attachment,
+     * leaving the defaults and all other attachments alone.
+     * <p>
+     * The result is the same as {@link #recalculatePermissions()}, as long as
+     * nothing but the attachment has changed since the last recalculation.
+     *
+     * @param attachment Attachment that has changed
+     */
+    synchronized void recalculatePermissions(PermissionAttachment attachment) {
+        if (!attachments.contains(attachment)) return;
+
+        List<String> removed = removeAttachmentPermissions(attachment);
+        insertPermissions(attachment, attachment.getPermissions());
+        unsubscribeUnused(removed);
+    }
+
+    /**
+     * Add the permissions granted by the given entries, which have just been
+     * added to the end of the given attachment.
+     *
+     * @param attachment Attachment that the entries were added to
+     * @param added New entries in the attachment
+     */
+    synchronized void appendPermissions(PermissionAttachment attachment, Map<String, Boolean> added) {
+        if (!attachments.contains(attachment)) return;
+
+        insertPermissions(attachment, added);
+    }
+
+    /**
+     * Insert the permission trees of the given entries of an attachment, in the
+     * same place that a full recalculation would put them: after everything
+     * from older attachments and the defaults, and before everything from newer
+     * attachments.
+     */
+    private void insertPermissions(PermissionAttachment attachment, Map<String, Boolean> entries) {
+        compiled = null;
+        ListMultimap<String, PermissionAttachmentInfo> calculated = ArrayListMultimap.create();
+        calculateChildPermissions(entries, false, attachment, calculated);
+
+        for (Map.Entry<String, Collection<PermissionAttachmentInfo>> entry : calculated.asMap().entrySet()) {
+            String name = entry.getKey();
+            List<PermissionAttachmentInfo> existing = permissions.get(name);
+
+            if (existing.isEmpty()) {
+                Bukkit.getServer().getPluginManager().subscribeToPermission(name, parent);
+            }
+
+            int index = existing.size();
+            while (index > 0) {
+                PermissionAttachment other = existing.get(index - 1).getAttachment();
+                if (other == null || other.order <= attachment.order) break;
+                index--;
+            }
+            existing.addAll(index, entry.getValue());
+        }
+    }
+
+    /**
+     * Remove every permission granted by the given attachment
+     *
+     * @return Names of the permissions that were removed
+     */
+    private List<String> removeAttachmentPermissions(PermissionAttachment attachment) {
+        compiled = null;
+        List<String> names = new ArrayList<String>();
+        for (Map.Entry<String, Collection<PermissionAttachmentInfo>> entry : permissions.asMap().entrySet()) {
+            for (PermissionAttachmentInfo info : entry.getValue()) {
+                if (info.getAttachment() == attachment) {
+                    names.add(entry.getKey());
+                    break;
+                }
+            }
+        }
+
+        for (String name : names) {
+            for (Iterator<PermissionAttachmentInfo> iterator = permissions.get(name).iterator(); iterator.hasNext(); ) {
+                if (iterator.next().getAttachment() == attachment) {
+                    iterator.remove();
+                }
+            }
+        }
+        return names;
+    }
+
+    private void unsubscribeUnused(Collection<String> names) {
+        for (String name : names) {
+            if (!permissions.containsKey(name)) {
+                Bukkit.getServer().getPluginManager().unsubscribeFromPermission(name, parent);
+            }
         }
     }
 
@@ -226,9 +399,10 @@ public class PermissibleBase implements Permissible {
         Bukkit.getServer().getPluginManager().unsubscribeFromDefaultPerms(true, parent);
 
         permissions.clear();
+        compiled = null;
     }
 
-    private void calculateChildPermissions(Map<String, Boolean> children, boolean invert, PermissionAttachment attachment) {
+    private void calculateChildPermissions(Map<String, Boolean> children, boolean invert, PermissionAttachment attachment, ListMultimap<String, PermissionAttachmentInfo> target) {
         Set<String> keys = children.keySet();
 
         for (String name : keys) {
@@ -236,11 +410,10 @@ public class PermissibleBase implements Permissible {
             boolean value = children.get(name) ^ invert;
             String lname = name.toLowerCase(java.util.Locale.ENGLISH);
 
-            permissions.put(lname, new PermissionAttachmentInfo(parent, lname, attachment, value));
-            Bukkit.getServer().getPluginManager().subscribeToPermission(name, parent);
+            target.put(lname, new PermissionAttachmentInfo(parent, lname, attachment, value));
 
             if (perm != null) {
-                calculateChildPermissions(perm.getChildren(), !value, attachment);
+                calculateChildPermissions(perm.getChildren(), !value, attachment, target);
             }
         }
     }
@@ -281,7 +454,7 @@ public class PermissibleBase implements Permissible {
         }
     }
 
-    public Set<PermissionAttachmentInfo> getEffectivePermissions() {
+    public synchronized Set<PermissionAttachmentInfo> getEffectivePermissions() {
         HashSet<PermissionAttachmentInfo> effective = new HashSet<PermissionAttachmentInfo>(permissions.keySet().size());
         for(String name : permissions.keySet()) {
             effective.add(getEffectivePermission(name));
@@ -290,18 +463,18 @@ public class PermissibleBase implements Permissible {
     }
 
     @Override
-    public PermissionAttachmentInfo getEffectivePermission(String name) {
+    public synchronized PermissionAttachmentInfo getEffectivePermission(String name) {
         List<PermissionAttachmentInfo> list = permissions.get(name.toLowerCase());
         return list.isEmpty() ? null : list.get(list.size() - 1);
     }
 
     @Override
-    public Collection<PermissionAttachmentInfo> getAttachments() {
+    public synchronized Collection<PermissionAttachmentInfo> getAttachments() {
         return ImmutableList.copyOf(permissions.values());
     }
 
     @Override
-    public Collection<PermissionAttachmentInfo> getAttachments(Plugin plugin) {
+    public synchronized Collection<PermissionAttachmentInfo> getAttachments(Plugin plugin) {
         ImmutableList.Builder<PermissionAttachmentInfo> builder = ImmutableList.builder();
         for(PermissionAttachmentInfo info : permissions.values()) {
             if(info.getAttachment() != null && info.getAttachment().getPlugin() == plugin) {
@@ -312,7 +485,7 @@ public class PermissibleBase implements Permissible {
     }
 
     @Override
-    public Collection<PermissionAttachmentInfo> getAttachments(String name) {
+    public synchronized Collection<PermissionAttachmentInfo> getAttachments(String name) {
         return ImmutableList.copyOf(permissions.get(name.toLowerCase()));
     }
 
@@ -322,7 +495,7 @@ public class PermissibleBase implements Permissible {
     }
 
     @Override
-    public Collection<PermissionAttachmentInfo> getAttachments(Plugin plugin, String name) {
+    public synchronized Collection<PermissionAttachmentInfo> getAttachments(Plugin plugin, String name) {
         ImmutableList.Builder<PermissionAttachmentInfo> builder = ImmutableList.builder();
         for(PermissionAttachmentInfo info : permissions.get(name.toLowerCase())) {
             if(info.getAttachment() != null && info.getAttachment().getPlugin() == plugin) {
@@ -1,6 +1,7 @@
 package org.bukkit.permissions;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -18,7 +19,11 @@ import org.bukkit.plugin.PluginManager;
 public class Permission {
     public static final PermissionDefault DEFAULT_PERMISSION = PermissionDefault.OP;
 
+    // Lower case names of registered permissions to their IDs, which are never removed or reused
+    private static final Map<String, Integer> ids = new HashMap<String, Integer>();
+
     private final String name;
+    private volatile int id = -1;
     private final Map<String, Boolean> children = new LinkedHashMap<String, Boolean>();
     private PermissionDefault defaultValue = DEFAULT_PERMISSION;
     private String description;
@@ -76,6 +81,65 @@ public class Permission {
         return name;
     }
 
+    /**
+     * Gets a small number identifying the name of this permission. All
+     * permissions with the same name, ignoring case, have the same ID, and
+     * IDs are never reused.
+     * <p>
+     * Only names that have been registered with the {@link PluginManager}
+     * have IDs, so checking arbitrary permissions does not make new IDs.
+     *
+     * @return ID of this permission's name, or -1 if no permission with
+     *     this name has been registered
+     */
+    public int getId() {
+        int id = this.id;
+        if (id < 0) {
+            String lowerName = name.toLowerCase(java.util.Locale.ENGLISH);
+            id = getId(lowerName);
+            if (id < 0) {
+                if (Bukkit.getServer() == null || Bukkit.getServer().getPluginManager().getPermission(lowerName) == null) {
+                    return -1;
+                }
+                id = internId(lowerName);
+            }
+            this.id = id;
+        }
+        return id;
+    }
+
+    private static int internId(String name) {
+        synchronized (ids) {
+            Integer id = ids.get(name);
+            if (id == null) {
+                id = ids.size();
+                ids.put(name, id);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * Gets the ID of the given lower case permission name, without assigning one
+     *
+     * @return ID of the name, or -1 if it has never been given one
+     */
+    static int getId(String name) {
+        synchronized (ids) {
+            Integer id = ids.get(name);
+            return id == null ? -1 : id;
+        }
+    }
+
+    /**
+     * Gets the number of IDs assigned so far. Every ID is less than this.
+     */
+    static int getIdCount() {
+        synchronized (ids) {
+            return ids.size();
+        }
+    }
+
     /**
      * Gets the children of this permission.
      * <p>
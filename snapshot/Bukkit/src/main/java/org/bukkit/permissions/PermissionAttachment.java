@@ -1,5 +1,6 @@
 package org.bukkit.permissions;
 
+import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import org.bukkit.plugin.Plugin;
@@ -14,6 +15,14 @@ public class PermissionAttachment {
     private final Permissible permissible;
     private final Plugin plugin;
 
+    // Set by the PermissibleBase that created this attachment, so changes can be recalculated incrementally
+    PermissibleBase base;
+    long order;
+
+    private int batchDepth = 0;
+    private boolean rebuild = false;
+    private final Map<String, Boolean> appended = new LinkedHashMap<String, Boolean>();
+
     public PermissionAttachment(Plugin plugin, Permissible Permissible) {
         if (plugin == null) {
             throw new IllegalArgumentException("Plugin cannot be null");
@@ -83,8 +92,17 @@ public class PermissionAttachment {
      * @param value New value of the permission
      */
     public void setPermission(String name, boolean value) {
-        permissions.put(name.toLowerCase(java.util.Locale.ENGLISH), value);
-        permissible.recalculatePermissions();
+        String lname = name.toLowerCase(java.util.Locale.ENGLISH);
+        Boolean old = permissions.put(lname, value);
+
+        if (old == null) {
+            appended.put(lname, value);
+        } else if (old != value) {
+            rebuild = true;
+        } else {
+            return;
+        }
+        recalculate();
     }
 
     /**
@@ -106,8 +124,10 @@ public class PermissionAttachment {
      * @param name Name of the permission to remove
      */
     public void unsetPermission(String name) {
-        permissions.remove(name.toLowerCase(java.util.Locale.ENGLISH));
-        permissible.recalculatePermissions();
+        if (permissions.remove(name.toLowerCase(java.util.Locale.ENGLISH)) != null) {
+            rebuild = true;
+            recalculate();
+        }
     }
 
     /**
@@ -122,6 +142,77 @@ public class PermissionAttachment {
         unsetPermission(perm.getName());
     }
 
+    /**
+     * Sets all of the given permissions, recalculating the {@link Permissible}
+     * only once at the end.
+     *
+     * @param permissions Names and new values of the permissions to set
+     */
+    public void setPermissions(final Map<String, Boolean> permissions) {
+        batch(new Runnable() {
+            public void run() {
+                for (Map.Entry<String, Boolean> entry : permissions.entrySet()) {
+                    setPermission(entry.getKey(), entry.getValue());
+                }
+            }
+        });
+    }
+
+    /**
+     * Removes all of the given permissions from this attachment,
+     * recalculating the {@link Permissible} only once at the end.
+     *
+     * @param names Names of the permissions to remove
+     */
+    public void unsetPermissions(final Collection<String> names) {
+        batch(new Runnable() {
+            public void run() {
+                for (String name : names) {
+                    unsetPermission(name);
+                }
+            }
+        });
+    }
+
+    /**
+     * Runs the given edits to this attachment, and recalculates the
+     * {@link Permissible} once after they are all done, instead of after
+     * each one. Batches can be nested, in which case the recalculation
+     * happens at the end of the outermost batch.
+     * <p>
+     * If this attachment belongs to a {@link PermissibleBase}, only the
+     * permissions granted by this attachment are recalculated, and if the
+     * edits only added new permissions, only those are calculated.
+     *
+     * @param edits Code that changes this attachment
+     */
+    public void batch(Runnable edits) {
+        batchDepth++;
+        try {
+            edits.run();
+        } finally {
+            batchDepth--;
+            recalculate();
+        }
+    }
+
+    private void recalculate() {
+        if (batchDepth > 0 || (!rebuild && appended.isEmpty())) return;
+
+        boolean rebuild = this.rebuild;
+        Map<String, Boolean> appended = new LinkedHashMap<String, Boolean>(this.appended);
+        this.rebuild = false;
+        this.appended.clear();
+
+        if (base == null) {
+            permissible.recalculatePermissions();
+        } else if (rebuild) {
+            base.recalculatePermissions(this);
+        } else {
+            base.appendPermissions(this, appended);
+        }
+    }
+
     /**
      * Removes this attachment from its registered {@link Permissible}
      *
@@ -1,11 +1,14 @@
 package org.bukkit.plugin;
 
 import java.io.File;
+import java.util.Map;
 import java.util.Set;
 
 import org.bukkit.event.Event;
 import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerTimings;
 import org.bukkit.event.Listener;
+import org.bukkit.event.RegisteredHandler;
 import org.bukkit.permissions.Permissible;
 import org.bukkit.permissions.Permission;
 import tc.oc.minecraft.api.plugin.PluginFinder;
@@ -292,4 +295,39 @@ public interface PluginManager extends PluginFinder {
      * @return True if event timings are to be used
      */
     public boolean useTimings();
+
+    /**
+     * Enable or disable per-handler event timings. While enabled, a latency
+     * histogram is recorded for every event handler, for both sync and async events.
+     *
+     * This is independent of the legacy timings enabled by {@link #useTimings()}.
+     *
+     * @param enabled True to start recording timings, false to stop
+     */
+    public void setHandlerTimingsEnabled(boolean enabled);
+
+    /**
+     * @return True if per-handler event timings are being recorded
+     */
+    public boolean handlerTimingsEnabled();
+
+    /**
+     * Discard all per-handler event timings recorded so far
+     */
+    public void resetHandlerTimings();
+
+    /**
+     * Gets the timings recorded for all event handlers registered by the given plugin
+     *
+     * @param plugin Plugin to get timings for
+     * @return Map of each handler to its timings
+     */
+    public Map<RegisteredHandler<?>, HandlerTimings> getHandlerTimings(Plugin plugin);
+
+    /**
+     * Gets the timings recorded for all event handlers
+     *
+     * @return Map of each handler to its timings
+     */
+    public Map<RegisteredHandler<?>, HandlerTimings> getHandlerTimings();
 }
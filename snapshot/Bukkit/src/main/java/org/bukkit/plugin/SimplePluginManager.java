@@ -28,7 +28,9 @@ import org.bukkit.event.Event;
 import org.bukkit.event.EventHandlerMeta;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.HandlerList;
+import org.bukkit.event.HandlerTimings;
 import org.bukkit.event.Listener;
+import org.bukkit.event.RegisteredHandler;
 import org.bukkit.permissions.Permissible;
 import org.bukkit.permissions.Permission;
 import org.bukkit.permissions.PermissionDefault;
@@ -537,6 +539,7 @@ public final class SimplePluginManager implements PluginManager {
         }
 
         permissions.put(name, perm);
+        perm.getId(); // Assign the ID now, rather than during a permission check
         calculatePermissionDefault(perm);
     }
 
@@ -656,4 +659,30 @@ public final class SimplePluginManager implements PluginManager {
     public boolean useTimings() {
         return server.pluginProfiling();
     }
+
+    @Override
+    public void setHandlerTimingsEnabled(boolean enabled) {
+        HandlerList.setTimingsEnabled(enabled);
+    }
+
+    @Override
+    public boolean handlerTimingsEnabled() {
+        return HandlerList.timingsEnabled();
+    }
+
+    @Override
+    public void resetHandlerTimings() {
+        HandlerList.resetAllTimings();
+    }
+
+    @Override
+    public Map<RegisteredHandler<?>, HandlerTimings> getHandlerTimings(Plugin plugin) {
+        return HandlerList.getAllTimings(handler -> handler instanceof RegisteredListener &&
+                                                    plugin.equals(((RegisteredListener) handler).getPlugin()));
+    }
+
+    @Override
+    public Map<RegisteredHandler<?>, HandlerTimings> getHandlerTimings() {
+        return HandlerList.getAllTimings(handler -> true);
+    }
 }
@@ -9,7 +9,7 @@ import org.bukkit.event.Listener;
 /**
  * Extends RegisteredListener to include timing information
  *
- * @deprecated legacy compatibility
+ * @deprecated legacy compatibility, use {@link PluginManager#setHandlerTimingsEnabled}
  */
 @Deprecated
 public class TimedRegisteredListener extends RegisteredListener {
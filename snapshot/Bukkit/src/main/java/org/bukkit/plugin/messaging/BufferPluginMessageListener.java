@@ -0,0 +1,30 @@
+package org.bukkit.plugin.messaging;
+
+import java.nio.ByteBuffer;
+
+import org.bukkit.entity.Player;
+
+/**
+ * A {@link PluginMessageListener} that can read messages directly from the
+ * buffer they arrived in, rather than from a copy.
+ */
+public interface BufferPluginMessageListener extends PluginMessageListener {
+
+    /**
+     * Called when a client sends a plugin message on a registered channel.
+     * <p>
+     * The buffer is a read-only view of the message, between its position and
+     * limit. It is only valid until this method returns, so a listener that
+     * needs the message later must copy it.
+     *
+     * @param channel Channel that the message was sent through.
+     * @param player Source of the message.
+     * @param message The raw message that was sent.
+     */
+    void onPluginMessageReceived(String channel, Player player, ByteBuffer message);
+
+    @Override
+    default void onPluginMessageReceived(String channel, Player player, byte[] message) {
+        onPluginMessageReceived(channel, player, ByteBuffer.wrap(message).asReadOnlyBuffer());
+    }
+}
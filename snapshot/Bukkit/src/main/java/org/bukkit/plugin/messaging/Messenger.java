@@ -1,5 +1,6 @@
 package org.bukkit.plugin.messaging;
 
+import java.nio.ByteBuffer;
 import java.util.Set;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
@@ -213,4 +214,24 @@ public interface Messenger {
      * @param message Raw payload of the message.
      */
     public void dispatchIncomingMessage(Player source, String channel, byte[] message);
+
+    /**
+     * Dispatches the specified incoming message to any registered listeners.
+     * <p>
+     * A {@link BufferPluginMessageListener} is given a read-only view of the
+     * buffer, other listeners are given a copy of its remaining bytes.
+     * <p>
+     * The default implementation, for messengers that don't handle buffers,
+     * copies the remaining bytes of the buffer and passes them to {@link
+     * #dispatchIncomingMessage(Player, String, byte[])}.
+     *
+     * @param source Source of the message.
+     * @param channel Channel that the message was sent by.
+     * @param message Payload of the message, between its position and limit.
+     */
+    public default void dispatchIncomingMessage(Player source, String channel, ByteBuffer message) {
+        byte[] array = new byte[message.remaining()];
+        message.duplicate().get(array);
+        dispatchIncomingMessage(source, channel, array);
+    }
 }
@@ -1,9 +1,9 @@
 package org.bukkit.plugin.messaging;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSet.Builder;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.nio.ByteBuffer;
 import java.util.Map;
 import java.util.Set;
 import org.bukkit.entity.Player;
@@ -11,56 +11,75 @@ import org.bukkit.plugin.Plugin;
 
 /**
  * Standard implementation to {@link Messenger}
+ * <p>
+ * Registrations are kept in immutable maps that are replaced whenever they
+ * change, so that messages can be dispatched and validated without locking.
  */
 public class StandardMessenger implements Messenger {
-    private final Map<String, Set<PluginMessageListenerRegistration>> incomingByChannel = new HashMap<String, Set<PluginMessageListenerRegistration>>();
-    private final Map<Plugin, Set<PluginMessageListenerRegistration>> incomingByPlugin = new HashMap<Plugin, Set<PluginMessageListenerRegistration>>();
-    private final Map<String, Set<Plugin>> outgoingByChannel = new HashMap<String, Set<Plugin>>();
-    private final Map<Plugin, Set<String>> outgoingByPlugin = new HashMap<Plugin, Set<String>>();
+    private volatile ImmutableMap<String, ImmutableSet<PluginMessageListenerRegistration>> incomingByChannel = ImmutableMap.of();
+    private volatile ImmutableMap<Plugin, ImmutableSet<PluginMessageListenerRegistration>> incomingByPlugin = ImmutableMap.of();
+    private volatile ImmutableMap<String, ImmutableSet<Plugin>> outgoingByChannel = ImmutableMap.of();
+    private volatile ImmutableMap<Plugin, ImmutableSet<String>> outgoingByPlugin = ImmutableMap.of();
     private final Object incomingLock = new Object();
     private final Object outgoingLock = new Object();
 
-    private void addToOutgoing(Plugin plugin, String channel) {
-        synchronized (outgoingLock) {
-            Set<Plugin> plugins = outgoingByChannel.get(channel);
-            Set<String> channels = outgoingByPlugin.get(plugin);
-
-            if (plugins == null) {
-                plugins = new HashSet<Plugin>();
-                outgoingByChannel.put(channel, plugins);
-            }
+    private static <K, V> ImmutableMap<K, ImmutableSet<V>> with(ImmutableMap<K, ImmutableSet<V>> map, K key, V value) {
+        ImmutableSet<V> values = map.get(key);
 
-            if (channels == null) {
-                channels = new HashSet<String>();
-                outgoingByPlugin.put(plugin, channels);
-            }
+        if (values != null && values.contains(value)) {
+            return map;
+        }
 
-            plugins.add(plugin);
-            channels.add(channel);
+        Builder<V> builder = ImmutableSet.builder();
+        if (values != null) {
+            builder.addAll(values);
         }
+        return replace(map, key, builder.add(value).build());
     }
 
-    private void removeFromOutgoing(Plugin plugin, String channel) {
-        synchronized (outgoingLock) {
-            Set<Plugin> plugins = outgoingByChannel.get(channel);
-            Set<String> channels = outgoingByPlugin.get(plugin);
+    private static <K, V> ImmutableMap<K, ImmutableSet<V>> without(ImmutableMap<K, ImmutableSet<V>> map, K key, V value) {
+        ImmutableSet<V> values = map.get(key);
 
-            if (plugins != null) {
-                plugins.remove(plugin);
+        if (values == null || !values.contains(value)) {
+            return map;
+        }
 
-                if (plugins.isEmpty()) {
-                    outgoingByChannel.remove(channel);
-                }
+        Builder<V> builder = ImmutableSet.builder();
+        for (V existing : values) {
+            if (!existing.equals(value)) {
+                builder.add(existing);
             }
+        }
+        return replace(map, key, builder.build());
+    }
 
-            if (channels != null) {
-                channels.remove(channel);
+    private static <K, V> ImmutableMap<K, ImmutableSet<V>> replace(ImmutableMap<K, ImmutableSet<V>> map, K key, ImmutableSet<V> values) {
+        ImmutableMap.Builder<K, ImmutableSet<V>> builder = ImmutableMap.builder();
 
-                if (channels.isEmpty()) {
-                    outgoingByChannel.remove(channel);
-                }
+        for (Map.Entry<K, ImmutableSet<V>> entry : map.entrySet()) {
+            if (!entry.getKey().equals(key)) {
+                builder.put(entry);
             }
         }
+
+        if (!values.isEmpty()) {
+            builder.put(key, values);
+        }
+        return builder.build();
+    }
+
+    private void addToOutgoing(Plugin plugin, String channel) {
+        synchronized (outgoingLock) {
+            outgoingByChannel = with(outgoingByChannel, channel, plugin);
+            outgoingByPlugin = with(outgoingByPlugin, plugin, channel);
+        }
+    }
+
+    private void removeFromOutgoing(Plugin plugin, String channel) {
+        synchronized (outgoingLock) {
+            outgoingByChannel = without(outgoingByChannel, channel, plugin);
+            outgoingByPlugin = without(outgoingByPlugin, plugin, channel);
+        }
     }
 
     private void removeFromOutgoing(Plugin plugin) {
@@ -68,11 +87,7 @@ public class StandardMessenger implements Messenger {
             Set<String> channels = outgoingByPlugin.get(plugin);
 
             if (channels != null) {
-                String[] toRemove = channels.toArray(new String[0]);
-
-                outgoingByPlugin.remove(plugin);
-
-                for (String channel : toRemove) {
+                for (String channel : channels) {
                     removeFromOutgoing(plugin, channel);
                 }
             }
@@ -83,53 +98,25 @@ public class StandardMessenger implements Messenger {
         synchronized (incomingLock) {
             Set<PluginMessageListenerRegistration> registrations = incomingByChannel.get(registration.getChannel());
 
-            if (registrations == null) {
-                registrations = new HashSet<PluginMessageListenerRegistration>();
-                incomingByChannel.put(registration.getChannel(), registrations);
-            } else {
-                if (registrations.contains(registration)) {
-                    throw new IllegalArgumentException("This registration already exists");
-                }
+            if (registrations != null && registrations.contains(registration)) {
+                throw new IllegalArgumentException("This registration already exists");
             }
 
-            registrations.add(registration);
-
             registrations = incomingByPlugin.get(registration.getPlugin());
 
-            if (registrations == null) {
-                registrations = new HashSet<PluginMessageListenerRegistration>();
-                incomingByPlugin.put(registration.getPlugin(), registrations);
-            } else {
-                if (registrations.contains(registration)) {
-                    throw new IllegalArgumentException("This registration already exists");
-                }
+            if (registrations != null && registrations.contains(registration)) {
+                throw new IllegalArgumentException("This registration already exists");
             }
 
-            registrations.add(registration);
+            incomingByChannel = with(incomingByChannel, registration.getChannel(), registration);
+            incomingByPlugin = with(incomingByPlugin, registration.getPlugin(), registration);
         }
     }
 
     private void removeFromIncoming(PluginMessageListenerRegistration registration) {
         synchronized (incomingLock) {
-            Set<PluginMessageListenerRegistration> registrations = incomingByChannel.get(registration.getChannel());
-
-            if (registrations != null) {
-                registrations.remove(registration);
-
-                if (registrations.isEmpty()) {
-                    incomingByChannel.remove(registration.getChannel());
-                }
-            }
-
-            registrations = incomingByPlugin.get(registration.getPlugin());
-
-            if (registrations != null) {
-                registrations.remove(registration);
-
-                if (registrations.isEmpty()) {
-                    incomingByPlugin.remove(registration.getPlugin());
-                }
-            }
+            incomingByChannel = without(incomingByChannel, registration.getChannel(), registration);
+            incomingByPlugin = without(incomingByPlugin, registration.getPlugin(), registration);
         }
     }
 
@@ -138,9 +125,7 @@ public class StandardMessenger implements Messenger {
             Set<PluginMessageListenerRegistration> registrations = incomingByPlugin.get(plugin);
 
             if (registrations != null) {
-                PluginMessageListenerRegistration[] toRemove = registrations.toArray(new PluginMessageListenerRegistration[0]);
-
-                for (PluginMessageListenerRegistration registration : toRemove) {
+                for (PluginMessageListenerRegistration registration : registrations) {
                     if (registration.getChannel().equals(channel)) {
                         removeFromIncoming(registration);
                     }
@@ -154,11 +139,7 @@ public class StandardMessenger implements Messenger {
             Set<PluginMessageListenerRegistration> registrations = incomingByPlugin.get(plugin);
 
             if (registrations != null) {
-                PluginMessageListenerRegistration[] toRemove = registrations.toArray(new PluginMessageListenerRegistration[0]);
-
-                incomingByPlugin.remove(plugin);
-
-                for (PluginMessageListenerRegistration registration : toRemove) {
+                for (PluginMessageListenerRegistration registration : registrations) {
                     removeFromIncoming(registration);
                 }
             }
@@ -249,10 +230,7 @@ public class StandardMessenger implements Messenger {
     }
 
     public Set<String> getOutgoingChannels() {
-        synchronized (outgoingLock) {
-            Set<String> keys = outgoingByChannel.keySet();
-            return ImmutableSet.copyOf(keys);
-        }
+        return outgoingByChannel.keySet();
     }
 
     public Set<String> getOutgoingChannels(Plugin plugin) {
@@ -260,22 +238,17 @@ public class StandardMessenger implements Messenger {
             throw new IllegalArgumentException("Plugin cannot be null");
         }
 
-        synchronized (outgoingLock) {
-            Set<String> channels = outgoingByPlugin.get(plugin);
+        Set<String> channels = outgoingByPlugin.get(plugin);
 
-            if (channels != null) {
-                return ImmutableSet.copyOf(channels);
-            } else {
-                return ImmutableSet.of();
-            }
+        if (channels != null) {
+            return channels;
+        } else {
+            return ImmutableSet.of();
         }
     }
 
     public Set<String> getIncomingChannels() {
-        synchronized (incomingLock) {
-            Set<String> keys = incomingByChannel.keySet();
-            return ImmutableSet.copyOf(keys);
-        }
+        return incomingByChannel.keySet();
     }
 
     public Set<String> getIncomingChannels(Plugin plugin) {
@@ -283,20 +256,18 @@ public class StandardMessenger implements Messenger {
             throw new IllegalArgumentException("Plugin cannot be null");
         }
 
-        synchronized (incomingLock) {
-            Set<PluginMessageListenerRegistration> registrations = incomingByPlugin.get(plugin);
-
-            if (registrations != null) {
-                Builder<String> builder = ImmutableSet.builder();
+        Set<PluginMessageListenerRegistration> registrations = incomingByPlugin.get(plugin);
 
-                for (PluginMessageListenerRegistration registration : registrations) {
-                    builder.add(registration.getChannel());
-                }
+        if (registrations != null) {
+            Builder<String> builder = ImmutableSet.builder();
 
-                return builder.build();
-            } else {
-                return ImmutableSet.of();
+            for (PluginMessageListenerRegistration registration : registrations) {
+                builder.add(registration.getChannel());
             }
+
+            return builder.build();
+        } else {
+            return ImmutableSet.of();
         }
     }
 
@@ -305,28 +276,24 @@ public class StandardMessenger implements Messenger {
             throw new IllegalArgumentException("Plugin cannot be null");
         }
 
-        synchronized (incomingLock) {
-            Set<PluginMessageListenerRegistration> registrations = incomingByPlugin.get(plugin);
+        Set<PluginMessageListenerRegistration> registrations = incomingByPlugin.get(plugin);
 
-            if (registrations != null) {
-                return ImmutableSet.copyOf(registrations);
-            } else {
-                return ImmutableSet.of();
-            }
+        if (registrations != null) {
+            return registrations;
+        } else {
+            return ImmutableSet.of();
         }
     }
 
     public Set<PluginMessageListenerRegistration> getIncomingChannelRegistrations(String channel) {
         validateChannel(channel);
 
-        synchronized (incomingLock) {
-            Set<PluginMessageListenerRegistration> registrations = incomingByChannel.get(channel);
+        Set<PluginMessageListenerRegistration> registrations = incomingByChannel.get(channel);
 
-            if (registrations != null) {
-                return ImmutableSet.copyOf(registrations);
-            } else {
-                return ImmutableSet.of();
-            }
+        if (registrations != null) {
+            return registrations;
+        } else {
+            return ImmutableSet.of();
         }
     }
 
@@ -336,22 +303,20 @@ public class StandardMessenger implements Messenger {
         }
         validateChannel(channel);
 
-        synchronized (incomingLock) {
-            Set<PluginMessageListenerRegistration> registrations = incomingByPlugin.get(plugin);
+        Set<PluginMessageListenerRegistration> registrations = incomingByPlugin.get(plugin);
 
-            if (registrations != null) {
-                Builder<PluginMessageListenerRegistration> builder = ImmutableSet.builder();
+        if (registrations != null) {
+            Builder<PluginMessageListenerRegistration> builder = ImmutableSet.builder();
 
-                for (PluginMessageListenerRegistration registration : registrations) {
-                    if (registration.getChannel().equals(channel)) {
-                        builder.add(registration);
-                    }
+            for (PluginMessageListenerRegistration registration : registrations) {
+                if (registration.getChannel().equals(channel)) {
+                    builder.add(registration);
                 }
-
-                return builder.build();
-            } else {
-                return ImmutableSet.of();
             }
+
+            return builder.build();
+        } else {
+            return ImmutableSet.of();
         }
     }
 
@@ -360,15 +325,13 @@ public class StandardMessenger implements Messenger {
             throw new IllegalArgumentException("Registration cannot be null");
         }
 
-        synchronized (incomingLock) {
-            Set<PluginMessageListenerRegistration> registrations = incomingByPlugin.get(registration.getPlugin());
+        Set<PluginMessageListenerRegistration> registrations = incomingByPlugin.get(registration.getPlugin());
 
-            if (registrations != null) {
-                return registrations.contains(registration);
-            }
-
-            return false;
+        if (registrations != null) {
+            return registrations.contains(registration);
         }
+
+        return false;
     }
 
     public boolean isIncomingChannelRegistered(Plugin plugin, String channel) {
@@ -377,19 +340,17 @@ public class StandardMessenger implements Messenger {
         }
         validateChannel(channel);
 
-        synchronized (incomingLock) {
-            Set<PluginMessageListenerRegistration> registrations = incomingByPlugin.get(plugin);
+        Set<PluginMessageListenerRegistration> registrations = incomingByPlugin.get(plugin);
 
-            if (registrations != null) {
-                for (PluginMessageListenerRegistration registration : registrations) {
-                    if (registration.getChannel().equals(channel)) {
-                        return true;
-                    }
+        if (registrations != null) {
+            for (PluginMessageListenerRegistration registration : registrations) {
+                if (registration.getChannel().equals(channel)) {
+                    return true;
                 }
             }
-
-            return false;
         }
+
+        return false;
     }
 
     public boolean isOutgoingChannelRegistered(Plugin plugin, String channel) {
@@ -398,15 +359,13 @@ public class StandardMessenger implements Messenger {
         }
         validateChannel(channel);
 
-        synchronized (outgoingLock) {
-            Set<String> channels = outgoingByPlugin.get(plugin);
+        Set<String> channels = outgoingByPlugin.get(plugin);
 
-            if (channels != null) {
-                return channels.contains(channel);
-            }
-
-            return false;
+        if (channels != null) {
+            return channels.contains(channel);
         }
+
+        return false;
     }
 
     public void dispatchIncomingMessage(Player source, String channel, byte[] message) {
@@ -418,10 +377,43 @@ public class StandardMessenger implements Messenger {
         }
         validateChannel(channel);
 
-        Set<PluginMessageListenerRegistration> registrations = getIncomingChannelRegistrations(channel);
+        Set<PluginMessageListenerRegistration> registrations = incomingByChannel.get(channel);
+
+        if (registrations != null) {
+            for (PluginMessageListenerRegistration registration : registrations) {
+                registration.getListener().onPluginMessageReceived(channel, source, message);
+            }
+        }
+    }
 
-        for (PluginMessageListenerRegistration registration : registrations) {
-            registration.getListener().onPluginMessageReceived(channel, source, message);
+    public void dispatchIncomingMessage(Player source, String channel, ByteBuffer message) {
+        if (source == null) {
+            throw new IllegalArgumentException("Player source cannot be null");
+        }
+        if (message == null) {
+            throw new IllegalArgumentException("Message cannot be null");
+        }
+        validateChannel(channel);
+
+        Set<PluginMessageListenerRegistration> registrations = incomingByChannel.get(channel);
+
+        if (registrations != null) {
+            byte[] array = null;
+
+            for (PluginMessageListenerRegistration registration : registrations) {
+                PluginMessageListener listener = registration.getListener();
+
+                if (listener instanceof BufferPluginMessageListener) {
+                    ((BufferPluginMessageListener) listener).onPluginMessageReceived(channel, source, message.asReadOnlyBuffer());
+                } else {
+                    // Copy the message once, for all the listeners that need an array
+                    if (array == null) {
+                        array = new byte[message.remaining()];
+                        message.duplicate().get(array);
+                    }
+                    listener.onPluginMessageReceived(channel, source, array);
+                }
+            }
         }
     }
 
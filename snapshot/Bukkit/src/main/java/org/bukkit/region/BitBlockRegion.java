@@ -0,0 +1,536 @@
+package org.bukkit.region;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.google.common.collect.Iterators;
+import org.bukkit.geometry.MutableVec3;
+import org.bukkit.geometry.Vec3;
+
+/**
+ * An immutable {@link BlockRegion} stored as a bitset.
+ *
+ * Space is divided into 16x16x16 cells, aligned like chunk sections, and each cell
+ * containing any positions has a bitset of {@link #CELL_WORDS} words. Cells with no
+ * more than {@link #MAX_SPARSE_BITS} positions keep a sorted list of their bit indexes
+ * instead, so scattered positions cost a couple of bytes each rather than a whole
+ * bitset per position. Each cell has exactly one of the two forms, decided by its
+ * size alone, so equal regions store equal cells.
+ *
+ * The cells are kept in a table sorted by key. If the bounding box of the cells is
+ * not much larger than the number of cells, there is also a grid over that box, so
+ * finding a cell is a little arithmetic instead of a binary search.
+ *
+ * All bit regions use the same cells, so the union, intersection, and difference of
+ * two of them is found by combining the words of matching cells.
+ */
+final class BitBlockRegion implements BlockRegion {
+
+    static final int CELL_WORDS = 64;
+
+    /**
+     * The most positions a cell can have and still be stored as a list. At this
+     * size, the list is a quarter of the size of the bitset, and is searched in
+     * at most eight steps.
+     */
+    static final int MAX_SPARSE_BITS = 128;
+
+    // Range of cell coordinates that fit in a key
+    private static final int MAX_CELL_XZ = (1 << 23) - 1, MIN_CELL_XZ = -(1 << 23);
+    private static final int MAX_CELL_Y = Short.MAX_VALUE, MIN_CELL_Y = Short.MIN_VALUE;
+
+    private final long[] keys;
+    private final long[][] dense; // Bitset of each cell, or null if the cell is sparse
+    private final short[][] sparse; // Sorted bit indexes of each sparse cell, or null if the cell is dense
+    private final int size;
+
+    // Grid over the bounds of the cells, holding the index of each cell, or -1
+    private final int[] grid;
+    private final int gridX, gridY, gridZ, gridSizeX, gridSizeY, gridSizeZ;
+
+    private int hashCode;
+
+    static long key(int cellX, int cellY, int cellZ) {
+        return ((long) cellX << 40) | ((long) (cellY & 0xFFFF) << 24) | (cellZ & 0xFFFFFF);
+    }
+
+    static int cellX(long key) { return (int) (key >> 40); }
+    static int cellY(long key) { return (short) (key >> 24); }
+    static int cellZ(long key) { return (int) (key << 40 >> 40); }
+
+    static boolean inRange(int x, int y, int z) {
+        x >>= 4; y >>= 4; z >>= 4;
+        return x >= MIN_CELL_XZ && x <= MAX_CELL_XZ &&
+               y >= MIN_CELL_Y && y <= MAX_CELL_Y &&
+               z >= MIN_CELL_XZ && z <= MAX_CELL_XZ;
+    }
+
+    /**
+     * Index of the bit for a position within its cell
+     */
+    static int bit(int x, int y, int z) {
+        return (y & 15) << 8 | (z & 15) << 4 | (x & 15);
+    }
+
+    /**
+     * The positions of one cell while a region is built. They are kept as a
+     * sorted list until there are too many, and then as a bitset.
+     */
+    private static final class CellBuilder {
+        short[] bits;
+        int count;
+        long[] words;
+
+        CellBuilder() {
+            bits = new short[4];
+        }
+
+        /**
+         * Start with the given bitset, which is kept if it has too many positions for a list
+         */
+        CellBuilder(long[] words) {
+            for(long word : words) {
+                count += Long.bitCount(word);
+            }
+            if(count > MAX_SPARSE_BITS) {
+                this.words = words;
+            } else {
+                bits = new short[count];
+                int i = 0;
+                for(int w = 0; w < CELL_WORDS; w++) {
+                    for(long word = words[w]; word != 0; word &= word - 1) {
+                        bits[i++] = (short) (w << 6 | Long.numberOfTrailingZeros(word));
+                    }
+                }
+            }
+        }
+
+        void add(int bit) {
+            if(words != null) {
+                words[bit >> 6] |= 1L << bit;
+                return;
+            }
+
+            int i = Arrays.binarySearch(bits, 0, count, (short) bit);
+            if(i >= 0) return;
+            i = -i - 1;
+
+            if(count == MAX_SPARSE_BITS) {
+                words = new long[CELL_WORDS];
+                for(int j = 0; j < count; j++) {
+                    words[bits[j] >> 6] |= 1L << bits[j];
+                }
+                words[bit >> 6] |= 1L << bit;
+                bits = null;
+                return;
+            }
+
+            if(count == bits.length) {
+                bits = Arrays.copyOf(bits, count * 2);
+            }
+            System.arraycopy(bits, i, bits, i + 1, count - i);
+            bits[i] = (short) bit;
+            count++;
+        }
+
+        boolean isEmpty() {
+            return words == null && count == 0;
+        }
+    }
+
+    /**
+     * Collects positions for a new region
+     */
+    static class Builder {
+        private final Map<Long, CellBuilder> cells = new HashMap<>();
+        private long lastKey;
+        private CellBuilder last;
+
+        /**
+         * Add the given position. Return false if it is too far away to be stored in a bit region.
+         */
+        boolean add(int x, int y, int z) {
+            if(!inRange(x, y, z)) return false;
+            final long key = key(x >> 4, y >> 4, z >> 4);
+            CellBuilder cell = last;
+            if(cell == null || key != lastKey) {
+                cell = cells.get(key);
+                if(cell == null) {
+                    cells.put(key, cell = new CellBuilder());
+                }
+                lastKey = key;
+                last = cell;
+            }
+            cell.add(bit(x, y, z));
+            return true;
+        }
+
+        /**
+         * Set the positions of the given cell to a bitset. The bitset is kept
+         * if the cell is dense, so it must not be changed afterwards.
+         */
+        void put(long key, long[] cell) {
+            cells.put(key, new CellBuilder(cell));
+            last = null;
+        }
+
+        BlockRegion build() {
+            final long[] keys = new long[cells.size()];
+            int count = 0;
+            for(Map.Entry<Long, CellBuilder> entry : cells.entrySet()) {
+                if(!entry.getValue().isEmpty()) {
+                    keys[count++] = entry.getKey();
+                }
+            }
+            if(count == 0) return EmptyBlockRegion.INSTANCE;
+
+            final long[] sorted = Arrays.copyOf(keys, count);
+            Arrays.sort(sorted);
+            final long[][] dense = new long[count][];
+            final short[][] sparse = new short[count][];
+            for(int i = 0; i < count; i++) {
+                final CellBuilder cell = cells.get(sorted[i]);
+                if(cell.words != null) {
+                    dense[i] = cell.words;
+                } else {
+                    sparse[i] = cell.count == cell.bits.length ? cell.bits : Arrays.copyOf(cell.bits, cell.count);
+                }
+            }
+            return new BitBlockRegion(sorted, dense, sparse);
+        }
+    }
+
+    /**
+     * Copy the given positions into a bit region. If any of them are too far
+     * away to be stored in one, they are all copied into a {@link BakedBlockRegion}.
+     */
+    static BlockRegion copyOf(Iterator<? extends Vec3> positions) {
+        final Builder builder = new Builder();
+        while(positions.hasNext()) {
+            final Vec3 pos = positions.next();
+            if(!builder.add(pos.coarseX(), pos.coarseY(), pos.coarseZ())) {
+                return BakedBlockRegion.of(Iterators.concat(builder.build().iterator(),
+                                                            Iterators.singletonIterator(pos.copy()),
+                                                            Iterators.transform(positions, Vec3::copy)));
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * @see BlockRegion#ofChunkSections(int, int, long[][])
+     */
+    static BlockRegion ofChunkSections(int chunkX, int chunkZ, long[][] sections) {
+        if(!inRange(chunkX << 4, 0, chunkZ << 4)) {
+            throw new IllegalArgumentException("Chunk " + chunkX + ", " + chunkZ + " is too far away for a bit region");
+        }
+        final Builder builder = new Builder();
+        for(int y = 0; y < sections.length; y++) {
+            final long[] cell = sections[y];
+            if(cell == null) continue;
+            if(cell.length != CELL_WORDS) {
+                throw new IllegalArgumentException("Section bitmaps must be " + CELL_WORDS + " words long");
+            }
+            builder.put(key(chunkX, y, chunkZ), cell);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Return the given region as a bit region, or null if it can't be stored in one
+     */
+    private static BitBlockRegion convert(BlockRegion region) {
+        if(region instanceof BitBlockRegion) return (BitBlockRegion) region;
+        final BlockRegion copy = copyOf(region.mutableIterator());
+        return copy instanceof BitBlockRegion ? (BitBlockRegion) copy : null;
+    }
+
+    private BitBlockRegion(long[] keys, long[][] dense, short[][] sparse) {
+        this.keys = keys;
+        this.dense = dense;
+        this.sparse = sparse;
+
+        int size = 0;
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+        for(int i = 0; i < keys.length; i++) {
+            if(dense[i] != null) {
+                for(long word : dense[i]) {
+                    size += Long.bitCount(word);
+                }
+            } else {
+                size += sparse[i].length;
+            }
+            final int x = cellX(keys[i]), y = cellY(keys[i]), z = cellZ(keys[i]);
+            minX = Math.min(minX, x); minY = Math.min(minY, y); minZ = Math.min(minZ, z);
+            maxX = Math.max(maxX, x); maxY = Math.max(maxY, y); maxZ = Math.max(maxZ, z);
+        }
+        this.size = size;
+
+        final long gridVolume = (long) (maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
+        if(gridVolume <= Math.max(4096, 8L * keys.length)) {
+            gridX = minX;
+            gridY = minY;
+            gridZ = minZ;
+            gridSizeX = maxX - minX + 1;
+            gridSizeY = maxY - minY + 1;
+            gridSizeZ = maxZ - minZ + 1;
+            grid = new int[(int) gridVolume];
+            Arrays.fill(grid, -1);
+            for(int i = 0; i < keys.length; i++) {
+                grid[gridIndex(cellX(keys[i]), cellY(keys[i]), cellZ(keys[i]))] = i;
+            }
+        } else {
+            gridX = gridY = gridZ = gridSizeX = gridSizeY = gridSizeZ = 0;
+            grid = null;
+        }
+    }
+
+    private int gridIndex(int cellX, int cellY, int cellZ) {
+        return ((cellZ - gridZ) * gridSizeY + (cellY - gridY)) * gridSizeX + (cellX - gridX);
+    }
+
+    /**
+     * Return the index of the given cell in the table, or -1 if it is empty
+     */
+    private int cell(int cellX, int cellY, int cellZ) {
+        if(grid != null) {
+            if(cellX < gridX || cellY < gridY || cellZ < gridZ ||
+               cellX - gridX >= gridSizeX || cellY - gridY >= gridSizeY || cellZ - gridZ >= gridSizeZ) return -1;
+            return grid[gridIndex(cellX, cellY, cellZ)];
+        }
+        final int index = Arrays.binarySearch(keys, key(cellX, cellY, cellZ));
+        return index < 0 ? -1 : index;
+    }
+
+    private int cell(long key) {
+        return cell(cellX(key), cellY(key), cellZ(key));
+    }
+
+    /**
+     * Return true if the given bit is set in the cell at the given index
+     */
+    private boolean hasBit(int cell, int bit) {
+        final long[] words = dense[cell];
+        if(words != null) {
+            return (words[bit >> 6] & (1L << bit)) != 0;
+        }
+        return Arrays.binarySearch(sparse[cell], (short) bit) >= 0;
+    }
+
+    /**
+     * Write the bitset of the cell at the given index into the given array
+     */
+    private void copyWords(int cell, long[] words) {
+        if(dense[cell] != null) {
+            System.arraycopy(dense[cell], 0, words, 0, CELL_WORDS);
+        } else {
+            Arrays.fill(words, 0);
+            for(short bit : sparse[cell]) {
+                words[bit >> 6] |= 1L << bit;
+            }
+        }
+    }
+
+    /**
+     * Estimate the number of bytes of heap used by the region's tables, assuming
+     * 8 byte references and 16 byte array headers
+     */
+    long estimateBytes() {
+        long bytes = 3 * (16 + 8L * keys.length);
+        for(int i = 0; i < keys.length; i++) {
+            bytes += dense[i] != null ? 16 + 8 * CELL_WORDS : 16 + 2 * sparse[i].length;
+        }
+        if(grid != null) {
+            bytes += 16 + 4L * grid.length;
+        }
+        return bytes;
+    }
+
+    @Override
+    public boolean isMutable() {
+        return false;
+    }
+
+    @Override
+    public BlockRegion copy() {
+        return this;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(Vec3 pos) {
+        final int x = pos.coarseX(), y = pos.coarseY(), z = pos.coarseZ();
+        if(!inRange(x, y, z)) return false;
+        final int cell = cell(x >> 4, y >> 4, z >> 4);
+        return cell >= 0 && hasBit(cell, bit(x, y, z));
+    }
+
+    @Override
+    public boolean containsAll(BlockRegion region) {
+        if(region instanceof BitBlockRegion) {
+            final BitBlockRegion that = (BitBlockRegion) region;
+            if(that.size > size) return false;
+            final long[] mine = new long[CELL_WORDS];
+            for(int i = 0; i < that.keys.length; i++) {
+                final int cell = cell(that.keys[i]);
+                if(cell < 0) return false;
+                if(that.sparse[i] != null) {
+                    for(short bit : that.sparse[i]) {
+                        if(!hasBit(cell, bit)) return false;
+                    }
+                } else {
+                    copyWords(cell, mine);
+                    final long[] theirs = that.dense[i];
+                    for(int w = 0; w < CELL_WORDS; w++) {
+                        if((theirs[w] & ~mine[w]) != 0) return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return BlockRegion.super.containsAll(region);
+    }
+
+    @Override
+    public Iterator<Vec3> mutableIterator() {
+        return new MutableBlockIterator() {
+            int cell = 0, word = -1, next = 0; // Position in the current cell's bitset or list
+            long bits;
+            int bit = findBit();
+
+            /**
+             * Return the next bit in the current cell, moving on to the next cell
+             * when it runs out, or -1 if there are no more cells
+             */
+            int findBit() {
+                for(; cell < keys.length; cell++, word = -1, next = 0, bits = 0) {
+                    if(sparse[cell] != null) {
+                        if(next < sparse[cell].length) return sparse[cell][next++];
+                    } else {
+                        while(bits == 0 && ++word < CELL_WORDS) {
+                            bits = dense[cell][word];
+                        }
+                        if(bits != 0) {
+                            final int found = word << 6 | Long.numberOfTrailingZeros(bits);
+                            bits &= bits - 1;
+                            return found;
+                        }
+                    }
+                }
+                return -1;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return bit >= 0;
+            }
+
+            @Override
+            protected void advance(MutableVec3 value) {
+                if(!hasNext()) throw new NoSuchElementException();
+
+                final long key = keys[cell];
+                value.set(cellX(key) << 4 | (bit & 15),
+                          cellY(key) << 4 | (bit >> 8),
+                          cellZ(key) << 4 | ((bit >> 4) & 15));
+
+                bit = findBit();
+            }
+        };
+    }
+
+    private interface WordOperator {
+        long apply(long a, long b);
+    }
+
+    /**
+     * Combine the cells of two regions. Cells missing from either region are
+     * treated as empty, and the operator must return zero for two empty words.
+     */
+    private static BlockRegion combine(BitBlockRegion a, BitBlockRegion b, WordOperator operator) {
+        final long[] cellA = new long[CELL_WORDS], cellB = new long[CELL_WORDS];
+        final Builder builder = new Builder();
+        int i = 0, j = 0;
+        while(i < a.keys.length || j < b.keys.length) {
+            final long key;
+            if(j == b.keys.length || (i < a.keys.length && a.keys[i] < b.keys[j])) {
+                key = a.keys[i];
+                a.copyWords(i++, cellA);
+                Arrays.fill(cellB, 0);
+            } else if(i == a.keys.length || b.keys[j] < a.keys[i]) {
+                key = b.keys[j];
+                Arrays.fill(cellA, 0);
+                b.copyWords(j++, cellB);
+            } else {
+                key = a.keys[i];
+                a.copyWords(i++, cellA);
+                b.copyWords(j++, cellB);
+            }
+
+            final long[] cell = new long[CELL_WORDS];
+            for(int w = 0; w < CELL_WORDS; w++) {
+                cell[w] = operator.apply(cellA[w], cellB[w]);
+            }
+            builder.put(key, cell);
+        }
+        return builder.build();
+    }
+
+    static BlockRegion union(BlockRegion a, BlockRegion b) {
+        if(a.isEmpty()) return b.copy();
+        if(b.isEmpty()) return a.copy();
+        final BitBlockRegion bitsA = convert(a), bitsB = convert(b);
+        if(bitsA == null || bitsB == null) {
+            return BakedBlockRegion.of(Iterators.concat(a.iterator(), b.iterator()));
+        }
+        return combine(bitsA, bitsB, (x, y) -> x | y);
+    }
+
+    static BlockRegion intersect(BlockRegion a, BlockRegion b) {
+        if(a.isEmpty() || b.isEmpty()) return EmptyBlockRegion.INSTANCE;
+        final BitBlockRegion bitsA = convert(a), bitsB = convert(b);
+        if(bitsA == null || bitsB == null) {
+            return a.filter(b::contains).copy();
+        }
+        return combine(bitsA, bitsB, (x, y) -> x & y);
+    }
+
+    static BlockRegion difference(BlockRegion a, BlockRegion b) {
+        if(a.isEmpty() || b.isEmpty()) return a.copy();
+        final BitBlockRegion bitsA = convert(a), bitsB = convert(b);
+        if(bitsA == null || bitsB == null) {
+            return a.filter(pos -> !b.contains(pos)).copy();
+        }
+        return combine(bitsA, bitsB, (x, y) -> x & ~y);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hashCode;
+        if(h == 0) {
+            h = hashCode = standardHashCode();
+        }
+        return h;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if(this == obj) return true;
+        if(obj instanceof BitBlockRegion) {
+            final BitBlockRegion that = (BitBlockRegion) obj;
+            return size == that.size &&
+                   Arrays.equals(keys, that.keys) &&
+                   Arrays.deepEquals(dense, that.dense) &&
+                   Arrays.deepEquals(sparse, that.sparse);
+        }
+        return standardEquals(obj);
+    }
+}
@@ -87,7 +87,10 @@ public interface BlockRegion extends SetBase<Vec3> {
      *
      * This region may return itself if it would be unaffected by the transform.
      */
-    BlockRegion transform(CoarseTransform transform);
+    default BlockRegion transform(CoarseTransform transform) {
+        if(transform.isIdentity()) return this;
+        return new TransformedBlockRegion(this, transform);
+    }
 
     /**
      * Return a region containing the elements of this region that pass the given predicate.
@@ -97,7 +100,9 @@ public interface BlockRegion extends SetBase<Vec3> {
      *
      * This region may return itself if it would be unaffected by the filter.
      */
-    BlockRegion filter(Predicate<? super Vec3> predicate);
+    default BlockRegion filter(Predicate<? super Vec3> predicate) {
+        return new FilteredBlockRegion(this, predicate);
+    }
 
     default int standardHashCode() {
         int h = 0;
@@ -137,22 +142,70 @@ public interface BlockRegion extends SetBase<Vec3> {
 
     /**
      * Return an immutable region containing exactly the given set of block positions.
+     *
+     * The positions are stored as a bitset, which takes about one bit per block in
+     * dense areas of the region, and about two bytes per block in sparse areas. It can
+     * be combined with other copied regions word by word.
      */
     static BlockRegion copyOf(Stream<Vec3> positions) {
-        return BakedBlockRegion.of(positions);
+        return BitBlockRegion.copyOf(positions.iterator());
     }
 
     /**
      * Return an immutable region containing exactly the given set of block positions.
+     *
+     * @see #copyOf(Stream)
      */
     static BlockRegion copyOf(Iterator<Vec3> positions) {
-        return BakedBlockRegion.of(positions);
+        return BitBlockRegion.copyOf(positions);
     }
 
     /**
      * Return an immutable region containing exactly the given set of block positions.
+     * If the given positions are already an immutable region, it is returned itself.
+     *
+     * @see #copyOf(Stream)
      */
     static BlockRegion copyOf(Iterable<Vec3> positions) {
-        return BakedBlockRegion.of(positions);
+        if(positions instanceof BlockRegion) {
+            final BlockRegion region = (BlockRegion) positions;
+            if(!region.isMutable()) return region;
+            return BitBlockRegion.copyOf(region.mutableIterator());
+        }
+        return BitBlockRegion.copyOf(positions.iterator());
+    }
+
+    /**
+     * Return an immutable region made from bitmaps of the 16x16x16 sections of the chunk at the given
+     * chunk coordinates. Element n of the array is the section starting at y = 16n, and is null if
+     * no blocks in that section are in the region.
+     *
+     * Each bitmap is 64 longs, and bit (y << 8 | z << 4 | x) is set if the block at those
+     * coordinates within the section is in the region. The bitmaps are not copied,
+     * so they must not be changed after calling this.
+     */
+    static BlockRegion ofChunkSections(int chunkX, int chunkZ, long[][] sections) {
+        return BitBlockRegion.ofChunkSections(chunkX, chunkZ, sections);
+    }
+
+    /**
+     * Return an immutable region containing the positions that are in either of the given regions.
+     */
+    static BlockRegion union(BlockRegion a, BlockRegion b) {
+        return BitBlockRegion.union(a, b);
+    }
+
+    /**
+     * Return an immutable region containing the positions that are in both of the given regions.
+     */
+    static BlockRegion intersect(BlockRegion a, BlockRegion b) {
+        return BitBlockRegion.intersect(a, b);
+    }
+
+    /**
+     * Return an immutable region containing the positions in region a that are not in region b.
+     */
+    static BlockRegion difference(BlockRegion a, BlockRegion b) {
+        return BitBlockRegion.difference(a, b);
     }
 }
@@ -26,7 +26,7 @@ class BlockRegionAdapter implements BlockRegion {
 
     @Override
     public BlockRegion copy() {
-        return BakedBlockRegion.of(positions);
+        return BlockRegion.copyOf(positions);
     }
 
     @Override
@@ -62,7 +62,7 @@ class FilteredBlockRegion implements BlockRegion {
 
     @Override
     public BlockRegion copy() {
-        return BakedBlockRegion.of(this);
+        return BlockRegion.copyOf(this);
     }
 
     @Override
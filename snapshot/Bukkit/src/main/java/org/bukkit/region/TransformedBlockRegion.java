@@ -45,7 +45,7 @@ class TransformedBlockRegion implements BlockRegion {
     @Override
     public BlockRegion copy() {
         if(!original.isMutable()) return this;
-        return BakedBlockRegion.of(this);
+        return BlockRegion.copyOf(this);
     }
 
     @Override
@@ -53,6 +53,29 @@ public class MaterialTest {
         }
     }
 
+    @Test
+    public void getImmutableData() {
+        for (Material material : Material.values()) {
+            for (byte data = 0; data < 16; data++) {
+                MaterialData shared = material.getImmutableData(data);
+                MaterialData fresh = material.getNewData(data);
+
+                assertThat(shared, is(sameInstance(material.getImmutableData(data))));
+                assertThat(shared, is(instanceOf(material.getData())));
+                assertTrue(shared.isImmutable());
+                assertThat(fresh, is(not(sameInstance(shared))));
+                assertThat(fresh, is(instanceOf(material.getData())));
+                assertTrue(fresh.isMutable());
+                assertThat(fresh, is(shared));
+            }
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void immutableDataCannotBeChanged() {
+        Material.WOOL.getImmutableData((byte) 3).setData((byte) 4);
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void matchMaterialByNull() {
         Material.matchMaterial(null);
@@ -0,0 +1,157 @@
+package org.bukkit.command;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+import org.bukkit.TestServer;
+import org.bukkit.plugin.TestPlugin;
+import org.bukkit.util.StringUtil;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SimpleCommandMapTest {
+
+    private static class TestCommand extends Command {
+        TestCommand(String name, List<String> aliases, String permission) {
+            super(name, "", "/" + name, aliases);
+            setPermission(permission);
+        }
+
+        @Override
+        public boolean execute(CommandSender sender, String commandLabel, String[] args) {
+            return true;
+        }
+    }
+
+    /**
+     * A sender that has every permission ending in an even digit
+     */
+    private static CommandSender sender() {
+        return (CommandSender) Proxy.newProxyInstance(CommandSender.class.getClassLoader(), new Class<?>[]{ CommandSender.class }, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if(method.getName().equals("hasPermission")) {
+                    final String permission = String.valueOf(args[0]);
+                    return (permission.charAt(permission.length() - 1) - '0') % 2 == 0;
+                }
+                throw new UnsupportedOperationException(method.toString());
+            }
+        });
+    }
+
+    private static String randomLabel(Random random, String letters, int maxLength) {
+        final StringBuilder label = new StringBuilder();
+        for(int i = 1 + random.nextInt(maxLength); i > 0; i--) {
+            label.append(letters.charAt(random.nextInt(letters.length())));
+        }
+        return label.toString();
+    }
+
+    /**
+     * What tab completion did before labels were sorted
+     */
+    private static List<String> linearComplete(SimpleCommandMap map, CommandSender sender, String cmdLine) {
+        final List<String> completions = new ArrayList<String>();
+        for(Map.Entry<String, Command> entry : map.knownCommands.entrySet()) {
+            if(entry.getValue().testPermissionSilent(sender) && StringUtil.startsWithIgnoreCase(entry.getKey(), cmdLine)) {
+                completions.add(entry.getKey());
+            }
+        }
+        Collections.sort(completions, String.CASE_INSENSITIVE_ORDER);
+        return completions;
+    }
+
+    private static void assertSortedEquals(List<String> expected, List<String> actual) {
+        assertEquals(expected.size(), actual.size());
+        for(int i = 0; i < expected.size(); i++) {
+            assertEquals(0, String.CASE_INSENSITIVE_ORDER.compare(expected.get(i), actual.get(i)));
+        }
+        assertEquals(new HashSet<String>(expected), new HashSet<String>(actual));
+    }
+
+    @Test
+    public void completionMatchesLinearScan() throws Exception {
+        final Random random = new Random(1);
+        final SimpleCommandMap map = new SimpleCommandMap(TestServer.getInstance());
+        final CommandSender sender = sender();
+        final List<Command> commands = new ArrayList<Command>();
+
+        for(int i = 0; i < 300; i++) {
+            final List<String> aliases = new ArrayList<String>();
+            for(int j = random.nextInt(3); j > 0; j--) {
+                aliases.add(randomLabel(random, "abcAB", 5));
+            }
+            final Command command = new TestCommand(randomLabel(random, "abcAB", 5), aliases, i % 3 == 0 ? null : "test.perm" + i);
+            commands.add(command);
+            map.register("Plugin" + (i % 4), command);
+        }
+
+        for(int i = 0; i < 100; i++) {
+            map.unregister(commands.get(random.nextInt(commands.size())));
+        }
+
+        for(int i = 0; i < 500; i++) {
+            final String cmdLine = i == 0 ? "" : randomLabel(random, "abcABpP:", 3);
+            assertSortedEquals(linearComplete(map, sender, cmdLine), map.tabComplete(sender, cmdLine));
+        }
+    }
+
+    @Test
+    public void onlyThreadSafeCompletersCompleteAsync() throws Exception {
+        final SimpleCommandMap map = new SimpleCommandMap(TestServer.getInstance());
+        final TestPlugin plugin = new TestPlugin("SimpleCommandMapTest");
+        final CommandExecutor executor = (sender, command, label, args) -> true;
+        final TabCompleter completer = (sender, command, alias, args) -> null;
+        final AsyncTabCompleter asyncCompleter = (sender, command, alias, args) -> null;
+
+        // Only has the default player name completion, which needs the main thread
+        final PluginCommand names = new PluginCommand("names", plugin);
+        names.setExecutor(executor);
+        assertFalse(names.canTabCompleteAsync());
+
+        final PluginCommand async = new PluginCommand("async", plugin);
+        async.setExecutor(executor);
+        async.setTabCompleter(asyncCompleter);
+        assertTrue(async.canTabCompleteAsync());
+
+        final PluginCommand sync = new PluginCommand("sync", plugin);
+        sync.setExecutor(executor);
+        sync.setTabCompleter(completer);
+        assertFalse(sync.canTabCompleteAsync());
+
+        // Falls back to the plugin, which can complete anything
+        final PluginCommand fallback = new PluginCommand("fallback", plugin);
+        fallback.setTabCompleter(asyncCompleter);
+        assertFalse(fallback.canTabCompleteAsync());
+
+        map.register("test", names);
+        map.register("test", async);
+        map.register("test", sync);
+        assertTrue(map.canTabCompleteAsync("async "));
+        assertFalse(map.canTabCompleteAsync("names a"));
+        assertFalse(map.canTabCompleteAsync("async"));
+        assertFalse(map.canTabCompleteAsync("sync a"));
+        assertFalse(map.canTabCompleteAsync("unknown a"));
+    }
+
+    @Test
+    public void playerNamesAreNotCompletedOffTheMainThread() throws Exception {
+        final TestPlugin plugin = new TestPlugin("SimpleCommandMapTest");
+        final PluginCommand command = new PluginCommand("async", plugin);
+        command.setExecutor((sender, cmd, label, args) -> true);
+        command.setTabCompleter((AsyncTabCompleter) (sender, cmd, alias, args) -> null);
+        assertTrue(command.canTabCompleteAsync());
+
+        // The test server throws if anything asks it for the online players
+        final CompletableFuture<List<String>> completions = CompletableFuture.supplyAsync(() -> command.tabComplete(sender(), "async", new String[]{ "a" }));
+        assertEquals(Collections.emptyList(), completions.get());
+    }
+}
@@ -3,6 +3,7 @@ package org.bukkit.event;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Stream;
 
 import tc.oc.exception.ExceptionHandler;
@@ -70,6 +71,29 @@ public class EventBusTest {
         assertFlow("handler");
     }
 
+    @Test
+    public void queueSyncEventsFromOtherThreads() throws Throwable {
+        List<Runnable> tasks = new ArrayList<>();
+        bus = new SimpleEventBus(Thread.currentThread(), tasks::add);
+        register(event ->
+            flow("handler")
+        );
+
+        List<CompletableFuture<TestEvent>> futures = new ArrayList<>();
+        TestThread.join(() -> {
+            futures.add(bus.callEventAsync(new TestEvent()));
+            futures.add(bus.callEventAsync(new TestEvent()));
+        });
+        assertFlow();
+        assertFalse(futures.get(0).isDone());
+
+        // Both events are dispatched by the same task
+        assertEquals(1, tasks.size());
+        tasks.get(0).run();
+        assertFlow("handler", "handler");
+        assertTrue(futures.stream().allMatch(CompletableFuture::isDone));
+    }
+
     @Test
     public void asyncEventOnMainThreadThrows() throws Throwable {
         assertThrows(IllegalStateException.class, () ->
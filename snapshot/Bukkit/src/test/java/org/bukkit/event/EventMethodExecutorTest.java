@@ -1,5 +1,8 @@
 package org.bukkit.event;
 
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
@@ -7,6 +10,7 @@ import java.util.stream.Collectors;
 import tc.oc.exception.ExceptionHandler;
 import org.bukkit.exception.TestExceptionHandler;
 import tc.oc.test.TestCodeBlock;
+import org.junit.Ignore;
 import org.junit.Test;
 
 import static tc.oc.test.Assert.*;
@@ -92,6 +96,77 @@ public class EventMethodExecutorTest {
         assertTrue(listener.called);
     }
 
+    @Test
+    public void privateHandlerIsNotReflective() throws Throwable {
+        EventMethodExecutor executor = EventMethodExecutor.forMethod(
+            PrivateHandler.class.getDeclaredMethod("handler", TestEvent.class),
+            exceptionHandler
+        );
+
+        assertFalse(executor.invoker().isReflective());
+    }
+
+    public static class PluginListener implements Listener {
+        public boolean called = false;
+
+        @EventHandler
+        private void handler(TestEvent event) {
+            called = true;
+        }
+    }
+
+    /**
+     * Loads the given class itself, instead of asking its parent, the way a
+     * PluginClassLoader loads plugin classes. Everything else comes from the parent.
+     */
+    static class IsolatingClassLoader extends URLClassLoader {
+        private final String isolated;
+
+        IsolatingClassLoader(Class<?> isolated) {
+            super(new URL[]{ isolated.getProtectionDomain().getCodeSource().getLocation() }, isolated.getClassLoader());
+            this.isolated = isolated.getName();
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if(!name.equals(isolated)) return super.loadClass(name, resolve);
+            synchronized(getClassLoadingLock(name)) {
+                final Class<?> loaded = findLoadedClass(name);
+                return loaded != null ? loaded : findClass(name);
+            }
+        }
+    }
+
+    static Class<?> loadIsolated(Class<?> type) throws Exception {
+        final Class<?> isolated = new IsolatingClassLoader(type).loadClass(type.getName());
+        assertNotSame(type, isolated);
+        return isolated;
+    }
+
+    @Test
+    public void handlerFromAnotherClassLoaderIsNotReflective() throws Throwable {
+        final Class<?> type = loadIsolated(PluginListener.class);
+        final EventMethodExecutor executor = EventMethodExecutor.forMethod(
+            type.getDeclaredMethod("handler", TestEvent.class),
+            exceptionHandler
+        );
+        assertFalse(executor.invoker().isReflective());
+
+        final Listener listener = (Listener) type.newInstance();
+        executor.execute(listener, new TestEvent());
+        assertTrue(type.getField("called").getBoolean(listener));
+    }
+
+    @Test
+    public void callReflectiveInvoker() throws Throwable {
+        PrivateHandler listener = new PrivateHandler();
+        Method method = PrivateHandler.class.getDeclaredMethod("handler", TestEvent.class);
+        method.setAccessible(true);
+        EventMethodInvoker.reflective(method).invoke(listener, new TestEvent());
+
+        assertTrue(listener.called);
+    }
+
     @Test
     public void reportException() throws Throwable {
         class C implements Listener {
@@ -132,4 +207,40 @@ public class EventMethodExecutorTest {
             }
         });
     }
+
+    @Ignore("Benchmark, run manually")
+    @Test
+    public void benchmark() throws Throwable {
+        final Method local = PluginListener.class.getDeclaredMethod("handler", TestEvent.class);
+        final Class<?> type = loadIsolated(PluginListener.class);
+        final Method plugin = type.getDeclaredMethod("handler", TestEvent.class);
+        local.setAccessible(true);
+        plugin.setAccessible(true);
+
+        final Object localListener = new PluginListener(), pluginListener = type.newInstance();
+        final EventMethodInvoker generated = EventMethodInvoker.forMethod(local),
+                                 handle = EventMethodInvoker.forMethod(plugin),
+                                 reflective = EventMethodInvoker.reflective(plugin);
+        final TestEvent event = new TestEvent();
+        final int calls = 10000000;
+
+        for(int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            for(int i = 0; i < calls; i++) reflective.invoke(pluginListener, event);
+            final long before = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for(int i = 0; i < calls; i++) handle.invoke(pluginListener, event);
+            final long pluginLoader = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for(int i = 0; i < calls; i++) generated.invoke(localListener, event);
+            final long sameLoader = System.nanoTime() - start;
+
+            System.out.printf("reflection %.2f ns/call, plugin class loader (%s) %.2f ns/call, same class loader (%s) %.2f ns/call%n",
+                              (double) before / calls,
+                              handle.getClass().getSimpleName(), (double) pluginLoader / calls,
+                              generated.getClass().getSimpleName(), (double) sameLoader / calls);
+        }
+    }
 }
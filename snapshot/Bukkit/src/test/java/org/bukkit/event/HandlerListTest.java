@@ -2,6 +2,7 @@ package org.bukkit.event;
 
 import org.junit.Test;
 
+import static org.junit.Assert.*;
 import static tc.oc.test.Assert.*;
 
 public class HandlerListTest {
@@ -15,4 +16,17 @@ public class HandlerListTest {
             list.register(handler)
         );
     }
+
+    @Test
+    public void hasHandlers() throws Throwable {
+        HandlerList<TestEvent> list = new HandlerList<>();
+        assertFalse(list.hasHandlers());
+
+        CallableEventHandler<TestEvent> handler = CallableEventHandler.create(TestEvent.class, event -> {});
+        list.register(handler);
+        assertTrue(list.hasHandlers());
+
+        list.unregister(handler);
+        assertFalse(list.hasHandlers());
+    }
 }
@@ -0,0 +1,68 @@
+package org.bukkit.event;
+
+import tc.oc.exception.ExceptionHandler;
+import org.bukkit.exception.TestExceptionHandler;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HandlerTimingsTest {
+
+    ExceptionHandler exceptionHandler = new TestExceptionHandler();
+
+    @After
+    public void tearDown() throws Exception {
+        HandlerList.setTimingsEnabled(false);
+        HandlerList.unregisterAll();
+    }
+
+    @Test
+    public void bucketLimitsContainValues() throws Exception {
+        for(long nanos : new long[]{ 0, 1, 3, 4, 7, 8, 9, 1000, 123456789, Long.MAX_VALUE }) {
+            final int bucket = HandlerTimings.bucket(nanos);
+            assertTrue(nanos <= HandlerTimings.bucketLimit(bucket));
+            assertTrue(bucket == 0 || nanos > HandlerTimings.bucketLimit(bucket - 1));
+        }
+    }
+
+    @Test
+    public void statistics() throws Exception {
+        HandlerTimings timings = new HandlerTimings();
+        for(int i = 1; i <= 100; i++) {
+            timings.record(i * 1000);
+        }
+
+        assertEquals(100, timings.count());
+        assertEquals(5050000, timings.totalNanos());
+        assertEquals(100000, timings.maxNanos());
+        assertEquals(50500, timings.meanNanos());
+
+        long p50 = timings.percentileNanos(0.5);
+        assertTrue(p50 >= 50000 && p50 <= 50000 * 5 / 4);
+        assertEquals(100000, timings.percentileNanos(1));
+
+        timings.reset();
+        assertEquals(0, timings.count());
+        assertEquals(0, timings.percentileNanos(0.5));
+    }
+
+    @Test
+    public void recordWhileEnabled() throws Exception {
+        HandlerList<TestEvent> list = Event.getHandlerList(TestEvent.class);
+        CallableEventHandler<TestEvent> handler = CallableEventHandler.create(TestEvent.class, event -> {});
+        list.register(handler);
+
+        SimpleEventBus bus = new SimpleEventBus(Thread.currentThread(), null);
+        bus.callEvent(new TestEvent());
+        assertTrue(HandlerList.getAllTimings(h -> true).isEmpty());
+
+        HandlerList.setTimingsEnabled(true);
+        bus.callEvent(new TestEvent());
+        bus.callEvent(new TestEvent());
+        assertEquals(2, list.timings(handler).count());
+
+        list.unregister(handler);
+        assertTrue(HandlerList.getAllTimings(h -> h == handler).isEmpty());
+    }
+}
@@ -122,6 +122,61 @@ public class MetadataStoreTest {
         assertFalse(subject.hasMetadata("subject", "otherKey"));
     }
 
+    @Test
+    public void testSubjectKeys() {
+        KeyedMetadataStore keyed = new KeyedMetadataStore();
+        keyed.setMetadata(1, "key", new FixedMetadataValue(pluginX, 10));
+        keyed.setMetadata(1, "otherKey", new FixedMetadataValue(pluginY, 20));
+        keyed.setMetadata(2, "key", new FixedMetadataValue(pluginX, 30));
+
+        assertEquals(10, keyed.getMetadata(1, "key", pluginX).value());
+        assertEquals(null, keyed.getMetadata(1, "key", pluginY));
+        assertEquals(20, keyed.getMetadata(1, "otherKey").get(0).value());
+        assertEquals(2, keyed.subjects.size());
+
+        keyed.removeMetadata(1, "key", pluginX);
+        assertFalse(keyed.hasMetadata(1, "key"));
+        assertTrue(keyed.hasMetadata(1, "otherKey"));
+        assertTrue(keyed.subjects.contains(1));
+
+        keyed.removeMetadata(1, "otherKey", pluginY);
+        assertFalse(keyed.subjects.contains(1));
+
+        assertTrue(keyed.removeSubject(2));
+        assertFalse(keyed.hasMetadata(2, "key"));
+        assertTrue(keyed.subjects.isEmpty());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testMetadataListIsImmutable() {
+        subject.setMetadata("subject", "key", new FixedMetadataValue(pluginX, 10));
+        subject.getMetadata("subject", "key").clear();
+    }
+
+    private class KeyedMetadataStore extends MetadataStoreBase<Integer> implements MetadataStore<Integer> {
+        final java.util.Set<Object> subjects = new java.util.HashSet<Object>();
+
+        @Override
+        protected Object subjectKey(Integer subject) {
+            return subject;
+        }
+
+        @Override
+        protected void subjectAdded(Object subjectKey) {
+            assertTrue(subjects.add(subjectKey));
+        }
+
+        @Override
+        protected void subjectRemoved(Object subjectKey) {
+            assertTrue(subjects.remove(subjectKey));
+        }
+
+        @Override
+        protected String disambiguate(Integer subject, String metadataKey) {
+            return subject + ":" + metadataKey;
+        }
+    }
+
     private class StringMetadataStore extends MetadataStoreBase<String> implements MetadataStore<String> {
         @Override
         protected String disambiguate(String subject, String metadataKey) {
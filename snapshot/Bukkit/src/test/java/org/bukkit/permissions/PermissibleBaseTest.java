@@ -0,0 +1,252 @@
+package org.bukkit.permissions;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.bukkit.TestServer;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.TestPlugin;
+import org.junit.BeforeClass;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PermissibleBaseTest {
+
+    private static final PluginManager pm = TestServer.getInstance().getPluginManager();
+    private static final TestPlugin plugin = new TestPlugin("PermissibleBaseTest");
+    private static final int NODES = 400;
+
+    private static String node(int i) {
+        return "permissiblebasetest.node" + i;
+    }
+
+    @BeforeClass
+    public static void registerPermissions() {
+        // Every fourth node has a few children with higher numbers, some of them negated
+        final Random random = new Random(0);
+        for(int i = NODES - 1; i >= 0; i--) {
+            final Map<String, Boolean> children = new LinkedHashMap<String, Boolean>();
+            if(i % 4 == 0) {
+                for(int j = 0; j < 3 && i + j + 1 < NODES; j++) {
+                    children.put(node(i + 1 + random.nextInt(NODES - i - 1)), random.nextBoolean());
+                }
+            }
+            pm.addPermission(new Permission(node(i), PermissionDefault.FALSE, children));
+        }
+    }
+
+    /**
+     * The calculated permissions of the given permissible, in a form that can be compared
+     */
+    private static Map<String, List<String>> snapshot(PermissibleBase permissible) {
+        final Map<String, List<String>> snapshot = new HashMap<String, List<String>>();
+        for(PermissionAttachmentInfo info : permissible.getAttachments()) {
+            if(!info.getPermission().startsWith("permissiblebasetest.")) continue;
+            List<String> list = snapshot.get(info.getPermission());
+            if(list == null) snapshot.put(info.getPermission(), list = new ArrayList<String>());
+            list.add(System.identityHashCode(info.getAttachment()) + "=" + info.getValue());
+        }
+        return snapshot;
+    }
+
+    private static Set<String> subscriptions(PermissibleBase permissible) {
+        final Set<String> names = new HashSet<String>();
+        for(int i = 0; i < NODES; i++) {
+            if(pm.getPermissionSubscriptions(node(i)).contains(permissible)) names.add(node(i));
+        }
+        return names;
+    }
+
+    private static void assertMatchesFullRecalculation(PermissibleBase permissible) {
+        final Map<String, List<String>> incremental = snapshot(permissible);
+        final Set<String> subscribed = subscriptions(permissible);
+        assertEquals(incremental.keySet(), subscribed);
+
+        permissible.recalculatePermissions();
+        assertEquals(snapshot(permissible), incremental);
+        assertEquals(subscriptions(permissible), subscribed);
+    }
+
+    @Test
+    public void incrementalEditsMatchFullRecalculation() throws Exception {
+        final Random random = new Random(1);
+        final PermissibleBase permissible = new PermissibleBase(null);
+        final List<PermissionAttachment> attachments = new ArrayList<PermissionAttachment>();
+        for(int i = 0; i < 4; i++) {
+            attachments.add(permissible.addAttachment(plugin));
+        }
+
+        for(int step = 0; step < 300; step++) {
+            final PermissionAttachment attachment = attachments.get(random.nextInt(attachments.size()));
+            switch(random.nextInt(4)) {
+                case 0:
+                    attachment.setPermission(node(random.nextInt(NODES)), random.nextBoolean());
+                    break;
+                case 1:
+                    attachment.unsetPermission(node(random.nextInt(NODES)));
+                    break;
+                case 2:
+                    attachment.batch(new Runnable() {
+                        public void run() {
+                            for(int i = 0; i < 10; i++) {
+                                if(random.nextInt(5) == 0) {
+                                    attachment.unsetPermission(node(random.nextInt(NODES)));
+                                } else {
+                                    attachment.setPermission(node(random.nextInt(NODES)), random.nextBoolean());
+                                }
+                            }
+                        }
+                    });
+                    break;
+                case 3:
+                    if(random.nextBoolean()) {
+                        attachments.remove(attachment);
+                        attachment.remove();
+                    }
+                    attachments.add(permissible.addAttachment(plugin));
+                    break;
+            }
+            assertMatchesFullRecalculation(permissible);
+        }
+    }
+
+    @Test
+    public void batchRecalculatesAtTheEnd() throws Exception {
+        final PermissibleBase permissible = new PermissibleBase(null);
+        final PermissionAttachment attachment = permissible.addAttachment(plugin);
+
+        attachment.batch(new Runnable() {
+            public void run() {
+                attachment.setPermission(node(1), true);
+                attachment.batch(new Runnable() {
+                    public void run() {
+                        attachment.setPermission(node(2), true);
+                    }
+                });
+                assertFalse(permissible.isPermissionSet(node(1)));
+                assertFalse(permissible.isPermissionSet(node(2)));
+            }
+        });
+
+        assertTrue(permissible.hasPermission(node(1)));
+        assertTrue(permissible.hasPermission(node(2)));
+        assertMatchesFullRecalculation(permissible);
+    }
+
+    @Test
+    public void laterAttachmentsOverrideEarlierOnes() throws Exception {
+        final PermissibleBase permissible = new PermissibleBase(null);
+        final PermissionAttachment first = permissible.addAttachment(plugin);
+        final PermissionAttachment second = permissible.addAttachment(plugin);
+
+        second.setPermission(node(3), false);
+        first.setPermission(node(3), true);
+        assertFalse(permissible.hasPermission(node(3)));
+
+        second.unsetPermission(node(3));
+        assertTrue(permissible.hasPermission(node(3)));
+        assertMatchesFullRecalculation(permissible);
+    }
+
+    @Test
+    public void permissionChecksMatchNameChecks() throws Exception {
+        final Random random = new Random(3);
+        final PermissibleBase permissible = new PermissibleBase(null);
+        final PermissionAttachment attachment = permissible.addAttachment(plugin);
+        attachment.setPermissions(randomNodes(random, 100));
+        attachment.setPermission("PermissibleBaseTest.Late", true);
+
+        for(int i = 0; i < NODES; i++) {
+            final Permission perm = pm.getPermission(node(i));
+            assertEquals(permissible.isPermissionSet(node(i)), permissible.isPermissionSet(perm));
+            assertEquals(permissible.hasPermission(node(i)), permissible.hasPermission(perm));
+        }
+
+        // Unregistered permissions have no ID, and checking them does not make one
+        final int ids = Permission.getIdCount();
+        final Permission late = new Permission("permissiblebasetest.late", PermissionDefault.FALSE);
+        assertEquals(-1, late.getId());
+        assertTrue(permissible.isPermissionSet(late));
+        assertTrue(permissible.hasPermission(late));
+
+        final Permission unset = new Permission("permissiblebasetest.unset", PermissionDefault.TRUE);
+        assertFalse(permissible.isPermissionSet(unset));
+        assertTrue(permissible.hasPermission(unset));
+
+        attachment.setPermission(late, false);
+        assertFalse(permissible.hasPermission(late));
+        attachment.unsetPermission(late);
+        assertFalse(permissible.isPermissionSet(late));
+        assertEquals(ids, Permission.getIdCount());
+
+        // Names that were set before they were registered
+        attachment.setPermission(late, true);
+        pm.addPermission(late);
+        assertTrue(late.getId() >= 0);
+        assertTrue(permissible.isPermissionSet(late));
+        assertTrue(permissible.hasPermission(late));
+        pm.removePermission(late);
+    }
+
+    private static Map<String, Boolean> randomNodes(Random random, int count) {
+        final Map<String, Boolean> nodes = new LinkedHashMap<String, Boolean>();
+        while(nodes.size() < count) {
+            nodes.put(node(random.nextInt(NODES)), random.nextBoolean());
+        }
+        return nodes;
+    }
+
+    @Ignore("Benchmark, run manually")
+    @Test
+    public void benchmark() throws Exception {
+        // Simulates a group plugin setting up 300 nodes for each player that joins
+        final Random random = new Random(2);
+        final Map<String, Boolean> nodes = randomNodes(random, 300);
+        final int players = 50;
+
+        for(int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            for(int i = 0; i < players; i++) {
+                // What every edit used to cost
+                final PermissibleBase permissible = new PermissibleBase(null);
+                final PermissionAttachment attachment = permissible.addAttachment(plugin);
+                for(Map.Entry<String, Boolean> entry : nodes.entrySet()) {
+                    attachment.setPermission(entry.getKey(), entry.getValue());
+                    permissible.recalculatePermissions();
+                }
+                permissible.clearPermissions();
+            }
+            final long full = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for(int i = 0; i < players; i++) {
+                final PermissibleBase permissible = new PermissibleBase(null);
+                final PermissionAttachment attachment = permissible.addAttachment(plugin);
+                for(Map.Entry<String, Boolean> entry : nodes.entrySet()) {
+                    attachment.setPermission(entry.getKey(), entry.getValue());
+                }
+                permissible.clearPermissions();
+            }
+            final long incremental = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for(int i = 0; i < players; i++) {
+                final PermissibleBase permissible = new PermissibleBase(null);
+                permissible.addAttachment(plugin).setPermissions(nodes);
+                permissible.clearPermissions();
+            }
+            final long batched = System.nanoTime() - start;
+
+            System.out.printf("%d nodes: full recalculation per node %d us/join, incremental %d us/join, batched %d us/join%n",
+                              nodes.size(), full / players / 1000, incremental / players / 1000, batched / players / 1000);
+        }
+    }
+}
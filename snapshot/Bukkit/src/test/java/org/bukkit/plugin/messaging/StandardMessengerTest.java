@@ -2,6 +2,7 @@ package org.bukkit.plugin.messaging;
 
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.TestPlugin;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 import org.junit.Test;
 import static org.junit.Assert.*;
@@ -164,6 +165,37 @@ public class StandardMessengerTest {
         assertFalse(listener2.hasReceived());
     }
 
+    @Test
+    public void testDispatchIncomingBuffer() {
+        Messenger messenger = getMessenger();
+        TestPlugin plugin = getPlugin();
+        TestMessageListener listener = new TestMessageListener("foo", "bar".getBytes());
+        final int[] received = new int[1];
+        Player player = TestPlayer.getInstance();
+        messenger.registerIncomingPluginChannel(plugin, "foo", listener);
+        messenger.registerIncomingPluginChannel(plugin, "foo", new BufferPluginMessageListener() {
+            public void onPluginMessageReceived(String channel, Player player, ByteBuffer message) {
+                assertTrue(message.isReadOnly());
+                byte[] data = new byte[message.remaining()];
+                message.get(data);
+                assertArrayEquals("bar".getBytes(), data);
+                received[0]++;
+            }
+        });
+
+        ByteBuffer message = ByteBuffer.wrap("xbarx".getBytes(), 1, 3);
+        messenger.dispatchIncomingMessage(player, "foo", message);
+        assertTrue(listener.hasReceived());
+        assertThat(received[0], is(1));
+        assertThat(message.position(), is(1));
+        assertThat(message.remaining(), is(3));
+
+        listener.reset();
+        messenger.dispatchIncomingMessage(player, "foo", "bar".getBytes());
+        assertTrue(listener.hasReceived());
+        assertThat(received[0], is(2));
+    }
+
     @Test
     public void testGetOutgoingChannels() {
         Messenger messenger = getMessenger();
@@ -0,0 +1,226 @@
+package org.bukkit.craftbukkit;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import net.minecraft.server.BlockPosition;
+import net.minecraft.server.ChunkRegionLoader;
+import net.minecraft.server.IChunkLoader;
+import net.minecraft.server.WorldServer;
+import org.bukkit.World;
+import org.bukkit.WorldCreator;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.generator.ChunkGenerator;
+
+/**
+ * Creates worlds for {@link CraftServer#createWorldAsync(WorldCreator)}.
+ *
+ * Each world is loaded in stages, alternating between a pool of loader threads and the main thread:
+ *
+ *  - The level data is converted and read on a loader thread
+ *  - The world is created and registered on the main thread, and the WorldInitEvent is called
+ *  - The region files covering the spawn area are opened on a loader thread
+ *  - The spawn chunks are requested on the main thread, {@link #CHUNKS_PER_TICK} at a time,
+ *    and read from disk by the {@link org.bukkit.craftbukkit.chunkio.ChunkIOExecutor}
+ *  - Once they are all loaded, the WorldLoadEvent is called and the future is completed
+ *
+ * Apart from the loader thread stages, all state is confined to the main thread.
+ */
+public class AsyncWorldLoader {
+
+    /**
+     * Maximum number of spawn chunks requested on each tick. Chunks that have
+     * never been generated are generated synchronously when requested.
+     */
+    static final int CHUNKS_PER_TICK = 16;
+
+    private static final int SPAWN_RADIUS = 196;
+
+    private final CraftServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool(
+        new ThreadFactoryBuilder().setNameFormat("World Loader - %d").setDaemon(true).build()
+    );
+    private final Map<String, Load> loads = new HashMap<String, Load>();
+    private final Queue<Load> spawning = new ArrayDeque<Load>();
+
+    AsyncWorldLoader(CraftServer server) {
+        this.server = server;
+    }
+
+    private static String key(String name) {
+        return name.toLowerCase(Locale.ENGLISH);
+    }
+
+    boolean isLoading(String name) {
+        return loads.containsKey(key(name));
+    }
+
+    CompletableFuture<World> load(WorldCreator creator) {
+        final String key = key(creator.name());
+        final Load existing = loads.get(key);
+        if (existing != null) {
+            return existing.future;
+        }
+
+        final World world = server.getWorld(creator.name());
+        if (world != null) {
+            return CompletableFuture.completedFuture(world);
+        }
+
+        final Load load = new Load(key, creator, server.getWorldGenerator(creator));
+        loads.put(key, load);
+        executor.execute(() -> {
+            try {
+                final CraftServer.PreparedWorld prepared = server.prepareWorld(load.creator, load.generator);
+                mainThread(() -> init(load, prepared));
+            } catch (Throwable ex) {
+                mainThread(() -> fail(load, ex));
+            }
+        });
+        return load.future;
+    }
+
+    /**
+     * Request the next batch of spawn chunks. Called on every tick.
+     */
+    public void tick() {
+        int budget = CHUNKS_PER_TICK;
+        while (budget > 0 && !spawning.isEmpty()) {
+            final Load load = spawning.peek();
+            if (server.getWorld(load.creator.name()) != load.world.getWorld()) {
+                spawning.poll();
+                fail(load, new IllegalStateException("World '" + load.creator.name() + "' was unloaded while loading"));
+                continue;
+            }
+
+            try {
+                while (budget > 0 && load.requested < load.chunks.length) {
+                    final long chunk = load.chunks[load.requested++];
+                    budget--;
+                    load.world.getChunkProviderServer().getChunkAt((int) (chunk >> 32), (int) chunk, () -> {
+                        if (++load.loaded == load.chunks.length) {
+                            finish(load);
+                        }
+                    });
+                }
+            } catch (Throwable ex) {
+                spawning.poll();
+                fail(load, ex);
+                continue;
+            }
+
+            if (load.requested == load.chunks.length) {
+                spawning.poll();
+            }
+        }
+    }
+
+    private void mainThread(Runnable task) {
+        server.getServer().addMainThreadTask(task);
+    }
+
+    private void init(Load load, CraftServer.PreparedWorld prepared) {
+        try {
+            load.world = server.initWorld(prepared);
+        } catch (Throwable ex) {
+            fail(load, ex);
+            return;
+        }
+
+        if (load.world == null) {
+            loads.remove(load.key);
+            load.future.complete(null);
+        } else if (!load.world.getWorld().getKeepSpawnInMemory()) {
+            finish(load);
+        } else {
+            load.chunks = spawnChunks(load.world.getSpawn());
+            final IChunkLoader chunkLoader = load.world.getChunkProviderServer().chunkLoader;
+            if (chunkLoader instanceof ChunkRegionLoader) {
+                executor.execute(() -> {
+                    try {
+                        openRegions(load, (ChunkRegionLoader) chunkLoader);
+                    } catch (Throwable ex) {
+                        server.getLogger().log(Level.WARNING, "Failed to open region files for world '" + load.creator.name() + "'", ex);
+                    }
+                    mainThread(() -> spawning.add(load));
+                });
+            } else {
+                spawning.add(load);
+            }
+        }
+    }
+
+    /**
+     * Open the region file for each region of the spawn area, so the chunk loads don't have to
+     */
+    private void openRegions(Load load, ChunkRegionLoader chunkLoader) {
+        final Set<Long> regions = new HashSet<Long>();
+        for (long chunk : load.chunks) {
+            final int x = (int) (chunk >> 32), z = (int) chunk;
+            if (regions.add(((long) (x >> 5) << 32) | ((z >> 5) & 0xFFFFFFFFL))) {
+                chunkLoader.chunkExists(load.world, x, z);
+            }
+        }
+    }
+
+    private void finish(Load load) {
+        loads.remove(load.key);
+        if (server.getWorld(load.creator.name()) != load.world.getWorld()) {
+            load.future.completeExceptionally(new IllegalStateException("World '" + load.creator.name() + "' was unloaded while loading"));
+            return;
+        }
+        try {
+            server.getPluginManager().callEvent(new WorldLoadEvent(load.world.getWorld()));
+        } finally {
+            load.future.complete(load.world.getWorld());
+        }
+    }
+
+    private void fail(Load load, Throwable ex) {
+        loads.remove(load.key);
+        load.future.completeExceptionally(ex);
+    }
+
+    /**
+     * Chunk coordinates of the spawn area, in the same order as {@link CraftServer#createWorld(WorldCreator)}
+     */
+    private static long[] spawnChunks(BlockPosition spawn) {
+        final int size = SPAWN_RADIUS * 2 / 16 + 1;
+        final long[] chunks = new long[size * size];
+        int n = 0;
+        for (int j = -SPAWN_RADIUS; j <= SPAWN_RADIUS; j += 16) {
+            for (int k = -SPAWN_RADIUS; k <= SPAWN_RADIUS; k += 16) {
+                final int x = spawn.getX() + j >> 4, z = spawn.getZ() + k >> 4;
+                chunks[n++] = ((long) x << 32) | (z & 0xFFFFFFFFL);
+            }
+        }
+        return chunks;
+    }
+
+    private static class Load {
+        final String key;
+        final WorldCreator creator;
+        final ChunkGenerator generator;
+        final CompletableFuture<World> future = new CompletableFuture<World>();
+
+        WorldServer world;
+        long[] chunks;
+        int requested, loaded;
+
+        Load(String key, WorldCreator creator, ChunkGenerator generator) {
+            this.key = key;
+            this.creator = creator;
+            this.generator = generator;
+        }
+    }
+}
@@ -14,9 +14,11 @@ import org.bukkit.block.Block;
 import org.bukkit.block.BlockState;
 import org.bukkit.craftbukkit.block.CraftBlock;
 import org.bukkit.craftbukkit.util.CraftMagicNumbers;
+import org.bukkit.craftbukkit.util.SectionMaterialIndex;
 import org.bukkit.entity.Entity;
 import org.bukkit.ChunkSnapshot;
 import org.bukkit.material.MaterialData;
+import org.bukkit.region.BlockRegion;
 
 public class CraftChunk implements Chunk {
     private WeakReference<net.minecraft.server.Chunk> weakChunk;
@@ -78,27 +80,31 @@ public class CraftChunk implements Chunk {
 
     @Override
     public Set<Block> getBlocks(Material material) {
-        Set<Block> blocks = new HashSet<Block>();
+        final Set<Block> blocks = new HashSet<Block>();
+        final net.minecraft.server.Block nmsBlock = CraftMagicNumbers.getBlock(material);
 
-        net.minecraft.server.Block nmsBlock = CraftMagicNumbers.getBlock(material);
-        net.minecraft.server.Chunk chunk = getHandle();
+        for(ChunkSection section : getHandle().getSections()) {
+            if(section == null) continue;
+            final int sectionY = section.getYPosition();
+            section.getMaterialIndex().forEach(nmsBlock, (x, y, z) -> blocks.add(getBlock(x, sectionY + y, z)));
+        }
 
-        for(ChunkSection section : chunk.getSections()) {
-            if(section == null || section.a()) continue; // ChunkSection.a() -> true if section is empty
-
-            for(int x = 0; x < 16; x++) {
-                for(int y = 0; y < 16; y++) {
-                    for(int z = 0; z < 16; z++) {
-                        IBlockData blockData = section.getType(x, y, z);
-                        if(blockData.getBlock().equals(nmsBlock)) {
-                            blocks.add(getBlock(x, section.getYPosition() + y, z));
-                        }
-                    }
-                }
+        return blocks;
+    }
+
+    @Override
+    public BlockRegion getBlockRegion(Material material) {
+        final net.minecraft.server.Block nmsBlock = CraftMagicNumbers.getBlock(material);
+        final ChunkSection[] sections = getHandle().getSections();
+        final long[][] bitmaps = new long[sections.length][];
+
+        for(int i = 0; i < sections.length; i++) {
+            if(sections[i] != null) {
+                bitmaps[i] = sections[i].getMaterialIndex().bitmap(nmsBlock);
             }
         }
 
-        return blocks;
+        return BlockRegion.ofChunkSections(x, z, bitmaps);
     }
 
     @Override
@@ -331,19 +337,16 @@ public class CraftChunk implements Chunk {
         int count = 0;
 
         for(ChunkSection section : chunk.getSections()) {
-            if(section != null) {
-                for(int x = 0; x < 16; x++) {
-                    for(int y = 0; y < 16; y++) {
-                        for(int z = 0; z < 16; z++) {
-                            if(section.getType(x, y, z).getBlock().equals(originalBlock)) {
-                                chunk.removeTileEntity(pos.set(x, y + section.getYPosition(), z));
-                                section.setType(x, y, z, replacementData);
-                                count++;
-                            }
-                        }
-                    }
-                }
-            }
+            if(section == null) continue;
+            final SectionMaterialIndex index = section.getMaterialIndex();
+            if(!index.contains(originalBlock)) continue;
+
+            final int sectionY = section.getYPosition();
+            count += index.count(originalBlock);
+            index.forEach(originalBlock, (x, y, z) -> {
+                chunk.removeTileEntity(pos.set(x, sectionY + y, z));
+                section.setType(x, y, z, replacementData);
+            });
         }
 
         return count;
@@ -22,6 +22,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.Nullable;
@@ -48,6 +49,8 @@ import org.bukkit.Warning.WarningState;
 import org.bukkit.World;
 import org.bukkit.World.Environment;
 import org.bukkit.WorldCreator;
+import org.bukkit.WorldTemplate;
+import org.bukkit.block.BlockImage;
 import org.bukkit.boss.BarColor;
 import org.bukkit.boss.BarFlag;
 import org.bukkit.boss.BarStyle;
@@ -62,7 +65,10 @@ import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.configuration.serialization.ConfigurationSerialization;
 import org.bukkit.conversations.Conversable;
+import org.bukkit.craftbukkit.block.BlockPasteScheduler;
+import org.bukkit.craftbukkit.block.CraftBlockImage;
 import org.bukkit.craftbukkit.boss.CraftBossBar;
+import org.bukkit.craftbukkit.chunkio.RegionStorage;
 import org.bukkit.craftbukkit.command.ColouredConsoleSender;
 import org.bukkit.craftbukkit.command.VanillaCommandWrapper;
 import org.bukkit.craftbukkit.entity.CraftPlayer;
@@ -178,6 +184,8 @@ public final class CraftServer extends CraftBukkitRuntime implements Server {
     private final EntityMetadataStore entityMetadata = new EntityMetadataStore();
     private final PlayerMetadataStore playerMetadata = new PlayerMetadataStore();
     private final WorldMetadataStore worldMetadata = new WorldMetadataStore();
+    private final AsyncWorldLoader worldLoader = new AsyncWorldLoader(this);
+    private final BlockPasteScheduler blockPasteScheduler = new BlockPasteScheduler();
     private int monsterSpawn = -1;
     private int animalSpawn = -1;
     private int waterAnimalSpawn = -1;
@@ -292,6 +300,7 @@ public final class CraftServer extends CraftBukkitRuntime implements Server {
         warningState = WarningState.value(configuration.getString("settings.deprecated-verbose"));
         chunkGCPeriod = configuration.getInt("chunk-gc.period-in-ticks");
         chunkGCLoadThresh = configuration.getInt("chunk-gc.load-threshold");
+        RegionStorage.configure(configuration.getString("settings.region-storage", "vanilla"));
         loadIcon();
 
         loadPlugins();
@@ -695,6 +704,10 @@ public final class CraftServer extends CraftBukkitRuntime implements Server {
         return this.configuration.getBoolean("settings.legacy-knockback", false);
     }
 
+    public ConfigurationSection getAsyncTaskSettings() {
+        return this.configuration.getConfigurationSection("async-tasks");
+    }
+
     @Override
     public int getTicksPerAnimalSpawns() {
         return this.configuration.getInt("ticks-per.animal-spawns");
@@ -992,23 +1005,124 @@ public final class CraftServer extends CraftBukkitRuntime implements Server {
         Validate.notNull(creator, "Creator may not be null");
 
         String name = creator.name();
-        ChunkGenerator generator = creator.generator();
-        File folder = new File(getWorldContainer(), name);
         World world = getWorld(name);
-        WorldType type = WorldType.getType(creator.type().getName());
-        boolean generateStructures = creator.generateStructures();
 
         if (world != null) {
             return world;
         }
 
+        if (worldLoader.isLoading(name)) {
+            throw new IllegalStateException("World '" + name + "' is already being loaded asynchronously");
+        }
+
+        WorldServer internal = initWorld(prepareWorld(creator, getWorldGenerator(creator)));
+        if (internal == null) {
+            return null;
+        }
+
+        if (internal.getWorld().getKeepSpawnInMemory()) {
+            short short1 = 196;
+            long i = System.currentTimeMillis();
+            for (int j = -short1; j <= short1; j += 16) {
+                for (int k = -short1; k <= short1; k += 16) {
+                    long l = System.currentTimeMillis();
+
+                    if (l < i) {
+                        i = l;
+                    }
+
+                    if (l > i + 1000L) {
+                        int i1 = (short1 * 2 + 1) * (short1 * 2 + 1);
+                        int j1 = (j + short1) * (short1 * 2 + 1) + k + 1;
+
+                        System.out.println("Preparing spawn area for " + name + ", " + (j1 * 100 / i1) + "%");
+                        i = l;
+                    }
+
+                    BlockPosition chunkcoordinates = internal.getSpawn();
+                    internal.getChunkProviderServer().getChunkAt(chunkcoordinates.getX() + j >> 4, chunkcoordinates.getZ() + k >> 4);
+                }
+            }
+        }
+        pluginManager.callEvent(new WorldLoadEvent(internal.getWorld()));
+        return internal.getWorld();
+    }
+
+    @Override
+    public CompletableFuture<World> createWorldAsync(WorldCreator creator) {
+        Validate.notNull(creator, "Creator may not be null");
+        if (!isMainThread()) {
+            throw new IllegalStateException("Worlds must be created from the main thread");
+        }
+        return worldLoader.load(creator);
+    }
+
+    public AsyncWorldLoader getWorldLoader() {
+        return worldLoader;
+    }
+
+    public BlockPasteScheduler getBlockPasteScheduler() {
+        return blockPasteScheduler;
+    }
+
+    @Override
+    public WorldTemplate loadWorldTemplate(File folder) throws IOException {
+        Validate.notNull(folder, "Folder cannot be null");
+        return CraftWorldTemplate.load(folder, getHandle().getServer().getDataConverterManager());
+    }
+
+    @Override
+    public void saveBlockImage(BlockImage image, File file) throws IOException {
+        Validate.notNull(image, "Image cannot be null");
+        Validate.notNull(file, "File cannot be null");
+        CraftBlockImage.save(image, file);
+    }
+
+    @Override
+    public BlockImage loadBlockImage(File file, boolean mapped) throws IOException {
+        Validate.notNull(file, "File cannot be null");
+        return CraftBlockImage.load(file, mapped);
+    }
+
+    /**
+     * Level data read by {@link #prepareWorld}, from which the world can be created
+     */
+    static class PreparedWorld {
+        final WorldCreator creator;
+        final ChunkGenerator generator;
+        final IDataManager dataManager;
+        final WorldData worldData;
+        final WorldSettings worldSettings;
+
+        PreparedWorld(WorldCreator creator, ChunkGenerator generator, IDataManager dataManager, WorldData worldData, WorldSettings worldSettings) {
+            this.creator = creator;
+            this.generator = generator;
+            this.dataManager = dataManager;
+            this.worldData = worldData;
+            this.worldSettings = worldSettings;
+        }
+    }
+
+    ChunkGenerator getWorldGenerator(WorldCreator creator) {
+        ChunkGenerator generator = creator.generator();
+        return generator != null ? generator : getGenerator(creator.name());
+    }
+
+    /**
+     * Convert the world if needed, and read its level data. This does not touch
+     * any server state, so it can be called from any thread.
+     */
+    PreparedWorld prepareWorld(WorldCreator creator, ChunkGenerator generator) {
+        String name = creator.name();
+        File folder = new File(getWorldContainer(), name);
+        WorldType type = WorldType.getType(creator.type().getName());
+        boolean generateStructures = creator.generateStructures();
+
         if ((folder.exists()) && (!folder.isDirectory())) {
             throw new IllegalArgumentException("File exists with the name '" + name + "' and isn't a folder");
         }
 
-        if (generator == null) {
-            generator = getGenerator(name);
-        }
+        RegionStorage.get().open(folder);
 
         Convertable converter = new WorldLoaderServer(getWorldContainer(), getHandle().getServer().getDataConverterManager());
         if (converter.isConvertable(name)) {
@@ -1030,24 +1144,21 @@ public final class CraftServer extends CraftBukkitRuntime implements Server {
             });
         }
 
-        int dimension = CraftWorld.CUSTOM_DIMENSION_OFFSET + console.worlds.size();
-        boolean used = false;
-        do {
-            for (WorldServer server : console.worlds) {
-                used = server.dimension == dimension;
-                if (used) {
-                    dimension++;
-                    break;
-                }
-            }
-        } while(used);
-
         // SportBukkit start - moved from below
         WorldSettings worldSettings = new WorldSettings(creator.seed(), EnumGamemode.getById(getDefaultGameMode().getValue()), generateStructures, creator.hardcore(), type);
         worldSettings.setGeneratorSettings(creator.generatorSettings());
         // SportBukkit end
 
-        IDataManager sdm = new ServerNBTManager(getWorldContainer(), name, true, getHandle().getServer().getDataConverterManager());
+        IDataManager sdm;
+        if (creator.template() != null) {
+            try {
+                sdm = ((CraftWorldTemplate) creator.template()).createDataManager(getWorldContainer(), name, getHandle().getServer().getDataConverterManager());
+            } catch (IOException ex) {
+                throw new IllegalStateException("Failed to create world '" + name + "' from template " + creator.template().getWorldFolder(), ex);
+            }
+        } else {
+            sdm = new ServerNBTManager(getWorldContainer(), name, true, getHandle().getServer().getDataConverterManager());
+        }
         WorldData worlddata = sdm.getWorldData();
         if (worlddata == null) {
             /* SportBukkit - moved above
@@ -1059,7 +1170,33 @@ public final class CraftServer extends CraftBukkitRuntime implements Server {
             worlddata.a(worldSettings);
         }
         worlddata.checkName(name); // CraftBukkit - Migration did not rewrite the level.dat; This forces 1.8 to take the last loaded world as respawn (in this case the end)
-        WorldServer internal = (WorldServer) new WorldServer(console, sdm, worlddata, dimension, console.methodProfiler, creator.environment(), generator).b();
+        return new PreparedWorld(creator, generator, sdm, worlddata, worldSettings);
+    }
+
+    /**
+     * Create and register a world from its prepared level data, and call the
+     * {@link WorldInitEvent}. Must be called on the main thread.
+     *
+     * @return the new world, or null if it failed to register
+     */
+    @Nullable WorldServer initWorld(PreparedWorld prepared) {
+        WorldCreator creator = prepared.creator;
+        String name = creator.name();
+        WorldSettings worldSettings = prepared.worldSettings;
+
+        int dimension = CraftWorld.CUSTOM_DIMENSION_OFFSET + console.worlds.size();
+        boolean used = false;
+        do {
+            for (WorldServer server : console.worlds) {
+                used = server.dimension == dimension;
+                if (used) {
+                    dimension++;
+                    break;
+                }
+            }
+        } while(used);
+
+        WorldServer internal = (WorldServer) new WorldServer(console, prepared.dataManager, prepared.worldData, dimension, console.methodProfiler, creator.environment(), prepared.generator).b();
 
         if (!(worlds.containsKey(name.toLowerCase(java.util.Locale.ENGLISH)))) {
             return null;
@@ -1078,33 +1215,7 @@ public final class CraftServer extends CraftBukkitRuntime implements Server {
 
         pluginManager.callEvent(new WorldInitEvent(internal.getWorld()));
         System.out.print("Preparing start region for level " + (console.worlds.size() - 1) + " (Seed: " + internal.getSeed() + ")");
-
-        if (internal.getWorld().getKeepSpawnInMemory()) {
-            short short1 = 196;
-            long i = System.currentTimeMillis();
-            for (int j = -short1; j <= short1; j += 16) {
-                for (int k = -short1; k <= short1; k += 16) {
-                    long l = System.currentTimeMillis();
-
-                    if (l < i) {
-                        i = l;
-                    }
-
-                    if (l > i + 1000L) {
-                        int i1 = (short1 * 2 + 1) * (short1 * 2 + 1);
-                        int j1 = (j + short1) * (short1 * 2 + 1) + k + 1;
-
-                        System.out.println("Preparing spawn area for " + name + ", " + (j1 * 100 / i1) + "%");
-                        i = l;
-                    }
-
-                    BlockPosition chunkcoordinates = internal.getSpawn();
-                    internal.getChunkProviderServer().getChunkAt(chunkcoordinates.getX() + j >> 4, chunkcoordinates.getZ() + k >> 4);
-                }
-            }
-        }
-        pluginManager.callEvent(new WorldLoadEvent(internal.getWorld()));
-        return internal.getWorld();
+        return internal;
     }
 
     @Override
@@ -1151,29 +1262,12 @@ public final class CraftServer extends CraftBukkitRuntime implements Server {
         worldsById.remove(world.getUID());
         worlds.remove(world.getName().toLowerCase(java.util.Locale.ENGLISH));
         console.worlds.remove(console.worlds.indexOf(handle));
+        ((CraftWorld) world).getBlockMetadata().clear();
 
-        File parentFolder = world.getWorldFolder().getAbsoluteFile();
-
-        // Synchronized because access to RegionFileCache.a is guarded by this lock.
-        synchronized (RegionFileCache.class) {
-            // RegionFileCache.a should be RegionFileCache.cache
-            Iterator<Map.Entry<File, RegionFile>> i = RegionFileCache.a.entrySet().iterator();
-            while(i.hasNext()) {
-                Map.Entry<File, RegionFile> entry = i.next();
-                File child = entry.getKey().getAbsoluteFile();
-                while (child != null) {
-                    if (child.equals(parentFolder)) {
-                        i.remove();
-                        try {
-                            entry.getValue().c(); // Should be RegionFile.close();
-                        } catch (IOException ex) {
-                            getLogger().log(Level.SEVERE, null, ex);
-                        }
-                        break;
-                    }
-                    child = child.getParentFile();
-                }
-            }
+        try {
+            RegionStorage.get().close(world.getWorldFolder());
+        } catch (IOException ex) {
+            getLogger().log(Level.SEVERE, null, ex);
         }
 
         return true;
@@ -1752,6 +1846,23 @@ public final class CraftServer extends CraftBukkitRuntime implements Server {
         return tabEvent.isCancelled() ? Collections.EMPTY_LIST : tabEvent.getCompletions();
     }
 
+    /**
+     * Can the given chat or command message from a player be tab completed on
+     * the thread that received it, without waiting for the main thread?
+     */
+    public boolean canTabCompleteAsync(String message) {
+        return message.startsWith("/") && canTabCompleteCommandAsync(message.substring(1));
+    }
+
+    /**
+     * Can the given command line, without a slash, be tab completed without
+     * waiting for the main thread? Never while anything listens to the
+     * {@link TabCompleteEvent}, which is called on the main thread.
+     */
+    public boolean canTabCompleteCommandAsync(String cmdLine) {
+        return !TabCompleteEvent.getHandlerList().hasHandlers() && getCommandMap().canTabCompleteAsync(cmdLine);
+    }
+
     public List<String> tabCompleteCommand(Player player, String message, BlockPosition pos) {
         List<String> completions = null;
         try {
@@ -32,6 +32,7 @@ import org.bukkit.block.Biome;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
 import org.bukkit.block.BlockImage;
+import org.bukkit.block.BlockPaste;
 import org.bukkit.geometry.CoarseTransform;
 import org.bukkit.region.BlockRegion;
 import org.bukkit.block.BlockState;
@@ -39,6 +40,7 @@ import org.bukkit.geometry.Transform;
 import org.bukkit.geometry.Vec3;
 import org.bukkit.craftbukkit.block.CraftBlock;
 import org.bukkit.craftbukkit.block.CraftBlockImage;
+import org.bukkit.craftbukkit.block.CraftBlockPaste;
 import org.bukkit.craftbukkit.block.CraftBlockState;
 import org.bukkit.craftbukkit.entity.*;
 import org.bukkit.craftbukkit.inventory.CraftItemStack;
@@ -1712,4 +1714,16 @@ public class CraftWorld implements World {
     public int pasteBlocks(BlockImage image) {
         return pasteBlocks(image, Transform.identity());
     }
+
+    @Override
+    public BlockPaste pasteBlocksIncrementally(BlockImage image, CoarseTransform transform, int maxBlocksPerTick, long maxNanosPerTick) {
+        Validate.notNull(image, "Image cannot be null");
+        Validate.notNull(transform, "Transform cannot be null");
+        Validate.isTrue(maxBlocksPerTick > 0, "Block budget must be positive");
+        Validate.isTrue(maxNanosPerTick > 0, "Time budget must be positive");
+        if (!server.isPrimaryThread()) {
+            throw new IllegalStateException("Pastes must be started from the main thread");
+        }
+        return CraftBlockPaste.start(server.getBlockPasteScheduler(), this, image, transform, maxBlocksPerTick, maxNanosPerTick);
+    }
 }
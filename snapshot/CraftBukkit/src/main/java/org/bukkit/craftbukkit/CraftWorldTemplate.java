@@ -0,0 +1,222 @@
+package org.bukkit.craftbukkit;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+import net.minecraft.server.Chunk;
+import net.minecraft.server.ChunkCoordIntPair;
+import net.minecraft.server.ChunkRegionLoader;
+import net.minecraft.server.DataConverterManager;
+import net.minecraft.server.DataConverterType;
+import net.minecraft.server.DataConverterTypes;
+import net.minecraft.server.ExceptionWorldConflict;
+import net.minecraft.server.IChunkLoader;
+import net.minecraft.server.NBTCompressedStreamTools;
+import net.minecraft.server.NBTTagCompound;
+import net.minecraft.server.RegionFile;
+import net.minecraft.server.ServerNBTManager;
+import net.minecraft.server.World;
+import net.minecraft.server.WorldProvider;
+import net.minecraft.server.WorldProviderHell;
+import net.minecraft.server.WorldProviderTheEnd;
+import org.bukkit.WorldTemplate;
+
+/**
+ * Holds the level data and every chunk of a saved world, already read and upgraded
+ * by the {@link DataConverterManager}, so worlds can be created from it without any disk
+ * access apart from their own saves.
+ *
+ * Worlds created from a template use a {@link DataManager}, whose chunk loaders read
+ * each chunk from the template until the world saves that chunk itself. From then on,
+ * the world's own copy is used. Chunks that the world has never saved are never written
+ * to its folder.
+ */
+public class CraftWorldTemplate implements WorldTemplate {
+
+    private static final Pattern REGION_FILE = Pattern.compile("r\\.(-?\\d+)\\.(-?\\d+)\\.mca");
+
+    /**
+     * Sub-folders of each dimension, as used by {@link ServerNBTManager}
+     */
+    private static final String OVERWORLD = "", NETHER = "DIM-1", THE_END = "DIM1";
+
+    private final File folder;
+    private final byte[] levelData;
+    private final Map<String, Map<Long, NBTTagCompound>> dimensions;
+
+    private CraftWorldTemplate(File folder, byte[] levelData, Map<String, Map<Long, NBTTagCompound>> dimensions) {
+        this.folder = folder;
+        this.levelData = levelData;
+        this.dimensions = dimensions;
+    }
+
+    public static CraftWorldTemplate load(File folder, DataConverterManager converter) throws IOException {
+        final File levelFile = new File(folder, "level.dat");
+        if (!levelFile.isFile()) {
+            throw new FileNotFoundException("No level.dat in " + folder);
+        }
+
+        final ImmutableMap.Builder<String, Map<Long, NBTTagCompound>> dimensions = ImmutableMap.builder();
+        for (String dimension : new String[] { OVERWORLD, NETHER, THE_END }) {
+            final File regions = new File(dimension.isEmpty() ? folder : new File(folder, dimension), "region");
+            dimensions.put(dimension, loadChunks(regions, converter));
+        }
+        return new CraftWorldTemplate(folder, Files.readAllBytes(levelFile.toPath()), dimensions.build());
+    }
+
+    private static Map<Long, NBTTagCompound> loadChunks(File regions, DataConverterManager converter) throws IOException {
+        final File[] files = regions.listFiles();
+        if (files == null) {
+            return ImmutableMap.of();
+        }
+
+        final Map<Long, NBTTagCompound> chunks = new HashMap<Long, NBTTagCompound>();
+        for (File file : files) {
+            final Matcher matcher = REGION_FILE.matcher(file.getName());
+            if (!matcher.matches()) {
+                continue;
+            }
+            final int regionX = Integer.parseInt(matcher.group(1));
+            final int regionZ = Integer.parseInt(matcher.group(2));
+
+            final RegionFile region = new RegionFile(file);
+            try {
+                for (int x = 0; x < 32; x++) {
+                    for (int z = 0; z < 32; z++) {
+                        if (!region.chunkExists(x, z)) {
+                            continue;
+                        }
+                        final DataInputStream in = region.a(x, z);
+                        if (in == null) {
+                            continue;
+                        }
+                        final NBTTagCompound chunk;
+                        try {
+                            chunk = NBTCompressedStreamTools.a(in);
+                        } finally {
+                            in.close();
+                        }
+                        chunks.put(ChunkCoordIntPair.a(regionX * 32 + x, regionZ * 32 + z), converter.a((DataConverterType) DataConverterTypes.CHUNK, chunk));
+                    }
+                }
+            } finally {
+                region.c();
+            }
+        }
+        return ImmutableMap.copyOf(chunks);
+    }
+
+    @Override
+    public File getWorldFolder() {
+        return folder;
+    }
+
+    @Override
+    public int getChunkCount() {
+        int count = 0;
+        for (Map<Long, NBTTagCompound> chunks : dimensions.values()) {
+            count += chunks.size();
+        }
+        return count;
+    }
+
+    /**
+     * Create the data manager for a world created from this template. The template's
+     * level data is copied into the world's folder, unless it already has its own.
+     */
+    ServerNBTManager createDataManager(File container, String name, DataConverterManager converter) throws IOException {
+        final DataManager manager = new DataManager(container, name, converter);
+        final File levelFile = new File(manager.getDirectory(), "level.dat");
+        if (!levelFile.exists()) {
+            Files.write(levelFile.toPath(), levelData);
+        }
+        return manager;
+    }
+
+    class DataManager extends ServerNBTManager {
+
+        DataManager(File container, String name, DataConverterManager converter) {
+            super(container, name, true, converter);
+        }
+
+        @Override
+        public IChunkLoader createChunkLoader(WorldProvider provider) {
+            final String dimension = provider instanceof WorldProviderHell ? NETHER
+                                   : provider instanceof WorldProviderTheEnd ? THE_END
+                                   : OVERWORLD;
+            final File folder = dimension.isEmpty() ? getDirectory() : new File(getDirectory(), dimension);
+            folder.mkdirs();
+            return new ChunkLoader(folder, this.a, dimensions.get(dimension));
+        }
+    }
+
+    static class ChunkLoader extends ChunkRegionLoader {
+
+        private final Map<Long, NBTTagCompound> chunks;
+
+        /**
+         * Regions that the world had its own files for when it was loaded
+         */
+        private final Set<Long> regions = new HashSet<Long>();
+
+        /**
+         * Chunks that the world has saved since it was loaded
+         */
+        private final Set<Long> saved = Sets.newConcurrentHashSet();
+
+        ChunkLoader(File folder, DataConverterManager converter, Map<Long, NBTTagCompound> chunks) {
+            super(folder, converter);
+            this.chunks = chunks;
+
+            final File[] files = new File(folder, "region").listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    final Matcher matcher = REGION_FILE.matcher(file.getName());
+                    if (matcher.matches()) {
+                        regions.add(ChunkCoordIntPair.a(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2))));
+                    }
+                }
+            }
+        }
+
+        /**
+         * Return true if the world has its own copy of the given chunk
+         */
+        private boolean isOwnChunk(World world, int x, int z) {
+            return saved.contains(ChunkCoordIntPair.a(x, z)) ||
+                   (regions.contains(ChunkCoordIntPair.a(x >> 5, z >> 5)) && super.chunkExists(world, x, z));
+        }
+
+        @Override
+        public boolean chunkExists(World world, int x, int z) {
+            return chunks.containsKey(ChunkCoordIntPair.a(x, z)) || super.chunkExists(world, x, z);
+        }
+
+        @Override
+        public Object[] loadChunk(World world, int x, int z) throws IOException {
+            final NBTTagCompound chunk = chunks.get(ChunkCoordIntPair.a(x, z));
+            if (chunk == null || isOwnChunk(world, x, z)) {
+                return super.loadChunk(world, x, z);
+            }
+            // Loaded chunks keep references to the arrays in their NBT, so each load needs its own copy
+            return a(world, x, z, (NBTTagCompound) chunk.clone());
+        }
+
+        @Override
+        public void a(World world, Chunk chunk) throws IOException, ExceptionWorldConflict {
+            saved.add(ChunkCoordIntPair.a(chunk.locX, chunk.locZ));
+            super.a(world, chunk);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.bukkit.craftbukkit.block;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import net.minecraft.server.ChunkCoordIntPair;
+
+/**
+ * Groups block positions by the chunk section containing them, so they can be
+ * visited one section at a time, without looking up the chunk and section again
+ * for every block.
+ *
+ * Each position carries an int value, which is usually an index into some other list.
+ * Positions outside of the height of the world are not accepted.
+ */
+class BlockBatch {
+
+    static class Chunk {
+        final int x, z;
+        final Section[] sections = new Section[16];
+        int size;
+
+        Chunk(int x, int z) {
+            this.x = x;
+            this.z = z;
+        }
+    }
+
+    static class Section {
+        final int y;
+        /**
+         * Positions within the section, packed as y << 8 | z << 4 | x
+         */
+        short[] blocks = new short[64];
+        int[] values = new int[64];
+        int size;
+
+        Section(int y) {
+            this.y = y;
+        }
+
+        void add(int block, int value) {
+            if(size == blocks.length) {
+                final int length = size * 2;
+                blocks = Arrays.copyOf(blocks, length);
+                values = Arrays.copyOf(values, length);
+            }
+            blocks[size] = (short) block;
+            values[size] = value;
+            size++;
+        }
+
+        static int x(int block) { return block & 15; }
+        static int z(int block) { return (block >> 4) & 15; }
+        static int y(int block) { return (block >> 8) & 15; }
+    }
+
+    private final Map<Long, Chunk> chunks = new LinkedHashMap<>();
+    private Chunk last;
+    private int size;
+
+    static boolean isValidHeight(int y) {
+        return y >= 0 && y < 256;
+    }
+
+    /**
+     * Add the given position to the batch. Return false if it is outside of the world height.
+     */
+    boolean add(int x, int y, int z, int value) {
+        if(!isValidHeight(y)) return false;
+
+        final int chunkX = x >> 4, chunkZ = z >> 4;
+        Chunk chunk = last;
+        if(chunk == null || chunk.x != chunkX || chunk.z != chunkZ) {
+            last = chunk = chunks.computeIfAbsent(ChunkCoordIntPair.a(chunkX, chunkZ), key -> new Chunk(chunkX, chunkZ));
+        }
+
+        Section section = chunk.sections[y >> 4];
+        if(section == null) {
+            section = chunk.sections[y >> 4] = new Section(y >> 4);
+        }
+        section.add((y & 15) << 8 | (z & 15) << 4 | (x & 15), value);
+        chunk.size++;
+        size++;
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    Collection<Chunk> chunks() {
+        return chunks.values();
+    }
+}
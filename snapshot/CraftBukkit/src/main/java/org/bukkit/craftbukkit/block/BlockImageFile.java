@@ -0,0 +1,321 @@
+package org.bukkit.craftbukkit.block;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableMap;
+import net.minecraft.server.Block;
+import net.minecraft.server.BlockPosition;
+import net.minecraft.server.IBlockData;
+import net.minecraft.server.NBTCompressedStreamTools;
+import net.minecraft.server.NBTTagCompound;
+import net.minecraft.server.NextTickListEntry;
+import org.bukkit.block.BlockImage;
+
+/**
+ * Reads and writes block images in a compact binary format:
+ *
+ *  - header: magic, version, bounding box, block count, and the world time of the capture
+ *  - palette: name and legacy data of each distinct block
+ *  - sections: the key of each chunk section occupied by the image, see {@link SectionIndex}
+ *  - blocks: palette indexes of every section, in index order, run-length encoded
+ *  - tile entity NBT, by index
+ *  - indexes of the blocks on the edge of the image
+ *  - scheduled ticks, by index
+ *
+ * Images can be read completely into a {@link CraftBlockImage}, or mapped as a
+ * {@link MappedBlockImage}, which pastes straight from the file.
+ */
+final class BlockImageFile {
+
+    static final int MAGIC = 0x53424B49; // "SBKI"
+    static final int VERSION = 1;
+
+    private BlockImageFile() {}
+
+    static void write(BlockImage image, File file) throws IOException {
+        if(image instanceof MappedBlockImage) {
+            Files.copy(((MappedBlockImage) image).getFile().toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } else if(image instanceof CraftBlockImage) {
+            try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file.toPath())))) {
+                write((CraftBlockImage) image, out);
+            }
+        } else {
+            throw new IllegalArgumentException("Only images copied from a world can be saved");
+        }
+    }
+
+    private static void write(CraftBlockImage image, DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(image.minX);
+        out.writeInt(image.minY);
+        out.writeInt(image.minZ);
+        out.writeInt(image.sizeX);
+        out.writeInt(image.sizeY);
+        out.writeInt(image.sizeZ);
+        out.writeInt(image.size);
+        out.writeLong(image.tickTime);
+
+        out.writeInt(image.palette.length);
+        for(IBlockData blockData : image.palette) {
+            writeBlock(out, blockData.getBlock());
+            out.writeByte(blockData.getBlock().toLegacyData(blockData));
+        }
+
+        out.writeInt(image.sections.size());
+        for(int section = 0; section < image.sections.size(); section++) {
+            out.writeLong(image.sections.key(section));
+        }
+
+        // Runs carry on from one page into the next
+        final short[][] pages = image.pages;
+        final int slots = image.sections.slots();
+        for(int start = 0; start < slots;) {
+            final short value = pages[start / SectionIndex.SECTION_BLOCKS][start % SectionIndex.SECTION_BLOCKS];
+            int end = start + 1;
+            while(end < slots && pages[end / SectionIndex.SECTION_BLOCKS][end % SectionIndex.SECTION_BLOCKS] == value) end++;
+            writeVarInt(out, end - start);
+            out.writeShort(value);
+            start = end;
+        }
+
+        out.writeInt(image.tileEntities.size());
+        for(Map.Entry<Integer, NBTTagCompound> entry : image.tileEntities.entrySet()) {
+            out.writeInt(entry.getKey());
+            NBTCompressedStreamTools.a(entry.getValue(), (DataOutput) out);
+        }
+
+        final int[] edges = image.edgeIndexes();
+        out.writeInt(edges.length);
+        for(int index : edges) {
+            out.writeInt(index);
+        }
+
+        out.writeInt(image.ticks.length);
+        for(int i = 0; i < image.ticks.length; i++) {
+            out.writeInt(image.tickIndexes[i]);
+            writeBlock(out, image.ticks[i].a());
+            out.writeLong(image.ticks[i].b);
+            out.writeInt(image.ticks[i].c);
+        }
+    }
+
+    /**
+     * Read the whole image from the given file
+     */
+    static CraftBlockImage read(File file) throws IOException {
+        final Reader reader = new Reader(map(file));
+        final Header header = new Header(reader);
+
+        final short[][] pages = new short[header.sections.size()][SectionIndex.SECTION_BLOCKS];
+        final int slots = header.sections.slots();
+        for(int start = 0; start < slots;) {
+            final int length = reader.readVarInt();
+            final short value = reader.in.readShort();
+            if(length <= 0 || length > slots - start) {
+                throw new IOException("Invalid block run in " + file);
+            }
+            for(final int end = start + length; start < end;) {
+                final int page = start / SectionIndex.SECTION_BLOCKS, offset = start % SectionIndex.SECTION_BLOCKS;
+                final int count = Math.min(end - start, SectionIndex.SECTION_BLOCKS - offset);
+                Arrays.fill(pages[page], offset, offset + count, value);
+                start += count;
+            }
+        }
+
+        final ImmutableMap.Builder<Integer, NBTTagCompound> tileEntities = ImmutableMap.builder();
+        for(int i = reader.in.readInt(); i > 0; i--) {
+            tileEntities.put(reader.in.readInt(), NBTCompressedStreamTools.a(reader.in));
+        }
+
+        reader.skipEdges();
+
+        final int tickCount = reader.in.readInt();
+        final int[] tickIndexes = new int[tickCount];
+        final NextTickListEntry[] ticks = new NextTickListEntry[tickCount];
+        for(int i = 0; i < tickCount; i++) {
+            tickIndexes[i] = reader.in.readInt();
+            ticks[i] = reader.readTick();
+        }
+
+        return new CraftBlockImage(header.minX, header.minY, header.minZ, header.sizeX, header.sizeY, header.sizeZ,
+                                   header.palette, header.sections, pages, header.size, tileEntities.build(),
+                                   tickIndexes, ticks, header.tickTime);
+    }
+
+    static ByteBuffer map(File file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static void writeBlock(DataOutput out, Block block) throws IOException {
+        out.writeUTF(Block.REGISTRY.b(block).toString());
+    }
+
+    private static Block readBlock(DataInput in) throws IOException {
+        final String name = in.readUTF();
+        final Block block = Block.getByName(name);
+        if(block == null) {
+            throw new IOException("Unknown block " + name);
+        }
+        return block;
+    }
+
+    private static void writeVarInt(DataOutput out, int value) throws IOException {
+        while((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * Everything in an image file before the blocks
+     */
+    static class Header {
+        final int minX, minY, minZ;
+        final int sizeX, sizeY, sizeZ;
+        final int size;
+        final long tickTime;
+        final IBlockData[] palette;
+        final SectionIndex sections;
+
+        Header(Reader reader) throws IOException {
+            final DataInputStream in = reader.in;
+            if(in.readInt() != MAGIC) {
+                throw new IOException("Not a block image");
+            }
+            final int version = in.readInt();
+            if(version != VERSION) {
+                throw new IOException("Unsupported block image version " + version);
+            }
+
+            minX = in.readInt();
+            minY = in.readInt();
+            minZ = in.readInt();
+            sizeX = in.readInt();
+            sizeY = in.readInt();
+            sizeZ = in.readInt();
+            if(sizeX < 0 || sizeY < 0 || sizeZ < 0) {
+                throw new IOException("Invalid block image size");
+            }
+            size = in.readInt();
+            tickTime = in.readLong();
+
+            palette = new IBlockData[in.readInt()];
+            for(int i = 0; i < palette.length; i++) {
+                palette[i] = readBlock(in).fromLegacyData(in.readUnsignedByte());
+            }
+
+            final int sectionCount = in.readInt();
+            if(sectionCount < 0 || sectionCount > SectionIndex.MAX_SECTIONS) {
+                throw new IOException("Invalid block image section count");
+            }
+            final long[] keys = new long[sectionCount];
+            for(int i = 0; i < keys.length; i++) {
+                keys[i] = in.readLong();
+                if(i > 0 && keys[i] <= keys[i - 1]) {
+                    throw new IOException("Block image sections are not in order");
+                }
+            }
+            sections = new SectionIndex(keys);
+        }
+    }
+
+    /**
+     * Reads an image file sequentially, from a buffer holding the whole file
+     */
+    static class Reader {
+        private final ByteBuffer buffer;
+        final DataInputStream in;
+
+        Reader(ByteBuffer buffer) {
+            this.buffer = buffer.duplicate();
+            this.in = new DataInputStream(new BufferInputStream(this.buffer));
+        }
+
+        int position() {
+            return buffer.position();
+        }
+
+        Reader seek(int position) {
+            buffer.position(position);
+            return this;
+        }
+
+        int readVarInt() throws IOException {
+            int value = 0;
+            for(int shift = 0; shift < 32; shift += 7) {
+                final int b = in.readUnsignedByte();
+                value |= (b & 0x7F) << shift;
+                if((b & 0x80) == 0) return value;
+            }
+            throw new IOException("VarInt is too long");
+        }
+
+        /**
+         * Skip the blocks, leaving the reader at the tile entities
+         */
+        void skipBlocks(int slots) throws IOException {
+            for(int index = 0; index < slots;) {
+                index += readVarInt();
+                in.readShort();
+            }
+        }
+
+        void skipTileEntities() throws IOException {
+            for(int i = in.readInt(); i > 0; i--) {
+                in.readInt();
+                NBTCompressedStreamTools.a(in);
+            }
+        }
+
+        void skipEdges() throws IOException {
+            final int count = in.readInt();
+            buffer.position(buffer.position() + count * 4);
+        }
+
+        NextTickListEntry readTick() throws IOException {
+            final NextTickListEntry tick = new NextTickListEntry(BlockPosition.ZERO, readBlock(in));
+            tick.a(in.readLong());
+            tick.a(in.readInt());
+            return tick;
+        }
+    }
+
+    private static class BufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if(!buffer.hasRemaining()) return -1;
+            length = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, length);
+            return length;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package org.bukkit.craftbukkit.block;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the incremental pastes started by
+ * {@link org.bukkit.craftbukkit.CraftWorld#pasteBlocksIncrementally}.
+ * Every paste gets its own budget on each tick, in the order they were started.
+ * All state is confined to the main thread.
+ */
+public class BlockPasteScheduler {
+
+    private final List<CraftBlockPaste> pastes = new ArrayList<>();
+
+    void add(CraftBlockPaste paste) {
+        pastes.add(paste);
+    }
+
+    /**
+     * Paste the next chunks of every paste. Called on every tick.
+     */
+    public void tick() {
+        if(pastes.isEmpty()) return;
+        // Copy the list, in case a completion callback starts another paste
+        for(CraftBlockPaste paste : new ArrayList<>(pastes)) {
+            if(paste.tick()) {
+                pastes.remove(paste);
+            }
+        }
+    }
+}
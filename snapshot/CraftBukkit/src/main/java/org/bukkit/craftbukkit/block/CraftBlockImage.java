@@ -1,232 +1,579 @@
 package org.bukkit.craftbukkit.block;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.function.IntFunction;
 
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Iterables;
+import com.google.common.primitives.Longs;
 import net.minecraft.server.BlockPosition;
 import net.minecraft.server.Blocks;
+import net.minecraft.server.Chunk;
+import net.minecraft.server.ChunkSection;
 import net.minecraft.server.IBlockData;
 import net.minecraft.server.IInventory;
+import net.minecraft.server.ITileEntity;
 import net.minecraft.server.NBTTagCompound;
 import net.minecraft.server.NextTickListEntry;
 import net.minecraft.server.StructureBoundingBox;
 import net.minecraft.server.TileEntity;
+import net.minecraft.server.WorldServer;
 import org.bukkit.Bukkit;
 import org.bukkit.World;
 import org.bukkit.block.BlockImage;
 import org.bukkit.geometry.BlockRotoflection;
 import org.bukkit.geometry.CoarseTransform;
+import org.bukkit.geometry.MutableVec3;
+import org.bukkit.geometry.Transform;
 import org.bukkit.craftbukkit.CraftWorld;
 import org.bukkit.craftbukkit.util.CraftMagicNumbers;
 import org.bukkit.material.MaterialData;
 import org.bukkit.region.BlockRegion;
+import org.bukkit.region.MutableBlockIterator;
 import org.bukkit.geometry.Vec3;
 
 /**
  * Read/write algorithms are derived from the code for the /clone command,
  * which can be found in {@link net.minecraft.server.CommandClone}.
+ *
+ * Blocks are read and written in batches, one chunk section at a time, straight
+ * from/to the section palettes. A paste does not cause any block updates while it
+ * is writing, so the order of the blocks doesn't matter. Once everything is written,
+ * each chunk is relit and resent to clients once, and the blocks on the edge of the
+ * image update their neighbours.
+ *
+ * Blocks are stored as a palette, and pages of palette indexes, one for each chunk
+ * section that the image occupies. A block is found from its position with a search
+ * of the {@link SectionIndex} and a little arithmetic, and empty sections cost nothing,
+ * so sparse images with very large bounds stay small. Tile entity data and ticks are
+ * kept in separate tables, by index.
  */
 public class CraftBlockImage implements BlockImage {
 
-    static class BlockRecord extends BlockPosition {
-        final IBlockData blockData;
-        final NBTTagCompound tileEntityData;
-        NextTickListEntry tickListEntry;
+    /**
+     * Palette index of positions that are not in the image
+     */
+    static final short ABSENT = -1;
 
-        BlockRecord(Vec3 pos, IBlockData blockData, NBTTagCompound tileEntityData) {
-            super(pos.coarseX(), pos.coarseY(), pos.coarseZ());
-            this.blockData = blockData;
-            this.tileEntityData = tileEntityData;
-        }
+    final int minX, minY, minZ;
+    final int sizeX, sizeY, sizeZ;
 
-        void pasteTileEntity(net.minecraft.server.World world, BlockPosition pos) {
-            final TileEntity tileEntity = world.getTileEntity(pos);
+    final IBlockData[] palette;
+    final SectionIndex sections;
+    final short[][] pages; // Palette index of each position in each section
+    final int size;
 
-            if(tileEntityData != null && tileEntity != null) {
-                tileEntityData.setInt("x", pos.getX());
-                tileEntityData.setInt("y", pos.getY());
-                tileEntityData.setInt("z", pos.getZ());
+    final ImmutableMap<Integer, NBTTagCompound> tileEntities;
+    final int[] tickIndexes;
+    final NextTickListEntry[] ticks;
+    final long tickTime;
 
-                tileEntity.a(tileEntityData);
-                tileEntity.update();
-            }
-        }
+    private final Region region = new Region();
+    private volatile int[] edgeIndexes;
 
-        void pasteTick(net.minecraft.server.World world, BlockPosition pos, long tickTime) {
-            if(tickListEntry != null) {
-                world.b(pos, tickListEntry.a(), (int) (tickListEntry.b - tickTime), tickListEntry.c);
-            }
-        }
+    @Override
+    public BlockRegion region() {
+        return region;
     }
 
-    private final ImmutableMap<Vec3, BlockRecord> byPosition;
-    private final ImmutableList<BlockRecord> earlyBlocks;
-    private final ImmutableList<BlockRecord> tileEntities;
-    private final ImmutableList<BlockRecord> lateBlocks;
-    private final ImmutableList<BlockRecord> tickedBlocks;
-    private final long tickTime;
+    /**
+     * Return the index of the given position, or -1 if it is outside of the image's sections
+     */
+    private int indexOf(int x, int y, int z) {
+        return sections.indexOf(x, y, z);
+    }
 
-    @Override
-    public BlockRegion region() {
-        return BlockRegion.of(byPosition.keySet());
+    private int indexOf(Vec3 pos) {
+        return indexOf(pos.coarseX(), pos.coarseY(), pos.coarseZ());
+    }
+
+    private boolean contains(int index) {
+        return index >= 0 && blockAt(index) != ABSENT;
+    }
+
+    private short blockAt(int index) {
+        return pages[index / SectionIndex.SECTION_BLOCKS][index % SectionIndex.SECTION_BLOCKS];
+    }
+
+    /**
+     * Return the first index at or after the given one that is in the image, or
+     * {@link SectionIndex#slots()} if there are none
+     */
+    private int next(int index) {
+        final int slots = sections.slots();
+        while(index < slots && blockAt(index) == ABSENT) index++;
+        return index;
+    }
+
+    private <V extends MutableVec3> V positionOf(int index, V pos) {
+        return sections.positionOf(index, pos);
+    }
+
+    private IBlockData blockData(int index) {
+        return palette[blockAt(index)];
     }
 
     @Override
     public MaterialData materialAt(Vec3 pos) {
-        final BlockRecord r = byPosition.get(pos.coarseCopy());
-        return r == null ? null : CraftMagicNumbers.nmsBlockStateToMaterialData(r.blockData);
+        final int index = indexOf(pos);
+        return contains(index) ? CraftMagicNumbers.nmsBlockStateToImmutableMaterialData(blockData(index)) : null;
     }
 
     @Override
     public boolean pasteBlock(Vec3 from, World world, Vec3 to, BlockRotoflection orientation) {
-        final BlockRecord record = byPosition.get(from.coarseCopy());
-        if(record == null) return false;
+        final int index = indexOf(from);
+        if(!contains(index)) return false;
 
         final CraftBlockFactory orienter = (CraftBlockFactory) Bukkit.blocks();
         final net.minecraft.server.World nmsWorld = ((CraftWorld) world).getHandle();
         final BlockPosition pos = BlockPosition.copyOf(to);
-        record.pasteTileEntity(nmsWorld, pos);
-        nmsWorld.setTypeAndData(pos, orienter.transform(record.blockData, orientation), 2);
-        record.pasteTick(nmsWorld, pos, tickTime);
+        pasteTileEntity(nmsWorld, pos, tileEntities.get(index));
+        nmsWorld.setTypeAndData(pos, orienter.transform(blockData(index), orientation), 2);
+
+        for(int i = 0; i < tickIndexes.length; i++) {
+            if(tickIndexes[i] == index) {
+                pasteTick(nmsWorld, pos, ticks[i]);
+            }
+        }
         return true;
     }
 
+    static void pasteTileEntity(net.minecraft.server.World world, BlockPosition pos, NBTTagCompound tileEntityData) {
+        if(tileEntityData == null) return;
+        final TileEntity tileEntity = world.getTileEntity(pos);
+
+        if(tileEntity != null) {
+            tileEntityData.setInt("x", pos.getX());
+            tileEntityData.setInt("y", pos.getY());
+            tileEntityData.setInt("z", pos.getZ());
+
+            tileEntity.a(tileEntityData);
+            tileEntity.update();
+        }
+    }
+
+    private void pasteTick(net.minecraft.server.World world, BlockPosition pos, NextTickListEntry tickListEntry) {
+        world.b(pos, tickListEntry.a(), (int) (tickListEntry.b - tickTime), tickListEntry.c);
+    }
+
+    /**
+     * Save the given image to a file, see {@link BlockImageFile}
+     */
+    public static void save(BlockImage image, File file) throws IOException {
+        BlockImageFile.write(image, file);
+    }
+
+    /**
+     * Load an image saved by {@link #save}, either completely, or as a {@link MappedBlockImage}
+     */
+    public static BlockImage load(File file, boolean mapped) throws IOException {
+        return mapped ? new MappedBlockImage(file) : BlockImageFile.read(file);
+    }
+
+    /**
+     * Create an image from data read by {@link BlockImageFile}
+     */
+    CraftBlockImage(int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ,
+                    IBlockData[] palette, SectionIndex sections, short[][] pages, int size,
+                    ImmutableMap<Integer, NBTTagCompound> tileEntities,
+                    int[] tickIndexes, NextTickListEntry[] ticks, long tickTime) {
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+        this.palette = palette;
+        this.sections = sections;
+        this.pages = pages;
+        this.size = size;
+        this.tileEntities = tileEntities;
+        this.tickIndexes = tickIndexes;
+        this.ticks = ticks;
+        this.tickTime = tickTime;
+    }
+
     public CraftBlockImage(CraftWorld craftWorld, BlockRegion region, boolean includeAir, boolean clearSource) {
-        final net.minecraft.server.WorldServer world = craftWorld.getHandle();
+        final WorldServer world = craftWorld.getHandle();
         final BlockPosition.MutableBlockPosition mutablePosition = new BlockPosition.MutableBlockPosition();
 
-        final ImmutableMap.Builder<Vec3, BlockRecord> byPosition = ImmutableMap.builder();
-        final ImmutableList.Builder<BlockRecord> earlyBlocks = ImmutableList.builder();
-        final ImmutableList.Builder<BlockRecord> tileEntities = ImmutableList.builder();
-        final ImmutableList.Builder<BlockRecord> lateBlocks = ImmutableList.builder();
+        // Group the positions by section, and find their bounding box
+        final BlockBatch batch = new BlockBatch();
+        final List<Vec3> outsideWorld = new ArrayList<>();
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
 
         for(Vec3 position : region.mutableIterable()) {
-            // Avoid creating any objects for air blocks, as long as the region
-            // iterator is spitting out NMS BlockPositions.
-            mutablePosition.set(position);
-            final IBlockData blockData = world.getType(mutablePosition);
-
-            if(includeAir || blockData.getBlock() != Blocks.AIR) {
-                final BlockRecord block;
-
-                TileEntity tileEntity = world.getTileEntity(mutablePosition);
-                if(tileEntity != null) {
-                    block = new BlockRecord(mutablePosition, blockData, new NBTTagCompound());
-                    tileEntity.save(block.tileEntityData);
-                    tileEntities.add(block);
-
-                    if(clearSource && tileEntity instanceof IInventory) {
-                        ((IInventory) tileEntity).clear(); // Clear inventory
-                    }
-                } else {
-                    block = new BlockRecord(mutablePosition, blockData, null);
-                    if (!block.blockData.b() && // flammable
-                        !block.blockData.h()) { // full-sized
-                        lateBlocks.add(block);
-                    } else {
-                        earlyBlocks.add(block);
+            final int x = position.coarseX(), y = position.coarseY(), z = position.coarseZ();
+            if(!batch.add(x, y, z, 0)) {
+                // Outside of the world, where there is only air
+                if(!includeAir) continue;
+                outsideWorld.add(position.copy());
+            }
+            minX = Math.min(minX, x); minY = Math.min(minY, y); minZ = Math.min(minZ, z);
+            maxX = Math.max(maxX, x); maxY = Math.max(maxY, y); maxZ = Math.max(maxZ, z);
+        }
+
+        if(minX > maxX) {
+            // Empty region
+            minX = minY = minZ = 0;
+            maxX = maxY = maxZ = -1;
+        }
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.sizeX = maxX - minX + 1;
+        this.sizeY = maxY - minY + 1;
+        this.sizeZ = maxZ - minZ + 1;
+
+        final Map<IBlockData, Short> paletteIndexes = new HashMap<>();
+        final List<IBlockData> palette = new ArrayList<>();
+        final Map<Long, short[]> pages = new HashMap<>(); // Allocated as blocks are found in each section
+        final Map<BlockPosition, NBTTagCompound> tileEntities = new HashMap<>();
+        int size = 0;
+
+        for(Vec3 position : outsideWorld) {
+            setBlock(pages, position.coarseX(), position.coarseY(), position.coarseZ(),
+                     paletteIndex(Blocks.AIR.getBlockData(), paletteIndexes, palette));
+            size++;
+        }
+
+        for(BlockBatch.Chunk batchChunk : batch.chunks()) {
+            final Chunk chunk = world.getChunkAt(batchChunk.x, batchChunk.z);
+            final ChunkSection[] sections = chunk.getSections();
+
+            for(BlockBatch.Section batchSection : batchChunk.sections) {
+                if(batchSection == null) continue;
+                final ChunkSection section = sections[batchSection.y];
+
+                for(int i = 0; i < batchSection.size; i++) {
+                    final int x = BlockBatch.Section.x(batchSection.blocks[i]),
+                              y = BlockBatch.Section.y(batchSection.blocks[i]),
+                              z = BlockBatch.Section.z(batchSection.blocks[i]);
+                    final IBlockData blockData = section == null ? Blocks.AIR.getBlockData()
+                                                                 : section.getType(x, y, z);
+                    if(!includeAir && blockData.getBlock() == Blocks.AIR) continue;
+
+                    mutablePosition.set(batchChunk.x << 4 | x, batchSection.y << 4 | y, batchChunk.z << 4 | z);
+                    setBlock(pages, mutablePosition.getX(), mutablePosition.getY(), mutablePosition.getZ(),
+                             paletteIndex(blockData, paletteIndexes, palette));
+                    size++;
+
+                    final TileEntity tileEntity = blockData.getBlock() instanceof ITileEntity ? world.getTileEntity(mutablePosition) : null;
+                    if(tileEntity != null) {
+                        final NBTTagCompound tileEntityData = new NBTTagCompound();
+                        tileEntity.save(tileEntityData);
+                        tileEntities.put(new BlockPosition(mutablePosition), tileEntityData);
+
+                        if(clearSource && tileEntity instanceof IInventory) {
+                            ((IInventory) tileEntity).clear(); // Clear inventory
+                        }
                     }
                 }
-
-                byPosition.put(block, block);
             }
         }
 
-        this.byPosition = byPosition.build();
-        this.earlyBlocks = earlyBlocks.build();
-        this.lateBlocks = lateBlocks.build();
-        this.tileEntities = tileEntities.build();
+        final long[] keys = Longs.toArray(pages.keySet());
+        Arrays.sort(keys);
+        this.sections = new SectionIndex(keys);
+        this.pages = new short[keys.length][];
+        for(int i = 0; i < keys.length; i++) {
+            this.pages[i] = pages.get(keys[i]);
+        }
+
+        // Sorted by index, so the table is in the same order as the blocks
+        final Map<Integer, NBTTagCompound> tileEntitiesByIndex = new TreeMap<>();
+        for(Map.Entry<BlockPosition, NBTTagCompound> entry : tileEntities.entrySet()) {
+            tileEntitiesByIndex.put(indexOf(entry.getKey().getX(), entry.getKey().getY(), entry.getKey().getZ()), entry.getValue());
+        }
+
+        this.palette = palette.toArray(new IBlockData[palette.size()]);
+        this.size = size;
+        this.tileEntities = ImmutableMap.copyOf(tileEntitiesByIndex);
 
         if(clearSource) {
-            final Iterable<BlockRecord> clearPositions = Iterables.concat(this.lateBlocks, this.tileEntities, this.earlyBlocks);
+            writeBlocks(world, batch(Transform.identity()).chunks(), index -> Blocks.AIR.getBlockData());
+            updateNeighbours(world, Transform.identity());
+        }
 
-            for(BlockRecord block : clearPositions) {
-                if(block.tileEntityData != null) {
-                    final TileEntity tileEntity = world.getTileEntity(block);
-                    if(tileEntity instanceof IInventory) {
-                        ((IInventory) tileEntity).clear();
-                    }
+        this.tickTime = world.getWorldData().getTime();
+
+        final List<NextTickListEntry> ticks = new ArrayList<>();
+        final List<Integer> tickIndexes = new ArrayList<>();
+        if(size > 0) {
+            for(NextTickListEntry tick : world.getScheduledTicks(new StructureBoundingBox(minX, minZ, maxX + 1, maxZ + 1))) {
+                final int index = indexOf(tick.a.getX(), tick.a.getY(), tick.a.getZ());
+                if(contains(index)) {
+                    ticks.add(tick);
+                    tickIndexes.add(index);
                 }
-                world.setTypeAndData(block, Blocks.BARRIER.getBlockData(), 2);
             }
+        }
+        this.ticks = ticks.toArray(new NextTickListEntry[ticks.size()]);
+        this.tickIndexes = new int[tickIndexes.size()];
+        for(int i = 0; i < this.tickIndexes.length; i++) {
+            this.tickIndexes[i] = tickIndexes.get(i);
+        }
+    }
 
-            for(BlockRecord block : clearPositions) {
-                world.setTypeAndData(block, Blocks.AIR.getBlockData(), 3);
-            }
+    /**
+     * Set the palette index of the given position, allocating the page of its section if it doesn't have one yet
+     */
+    private static void setBlock(Map<Long, short[]> pages, int x, int y, int z, short value) {
+        if(!SectionIndex.isValid(x, y, z)) {
+            throw new IllegalArgumentException("Position " + x + ", " + y + ", " + z + " is too far from the origin");
         }
+        short[] page = pages.get(SectionIndex.key(x, y, z));
+        if(page == null) {
+            page = new short[SectionIndex.SECTION_BLOCKS];
+            Arrays.fill(page, ABSENT);
+            pages.put(SectionIndex.key(x, y, z), page);
+        }
+        page[SectionIndex.local(x, y, z)] = value;
+    }
 
-        this.tickTime = world.getWorldData().getTime();
+    private static short paletteIndex(IBlockData blockData, Map<IBlockData, Short> indexes, List<IBlockData> palette) {
+        Short index = indexes.get(blockData);
+        if(index == null) {
+            index = (short) palette.size();
+            palette.add(blockData);
+            indexes.put(blockData, index);
+        }
+        return index;
+    }
 
-        final ImmutableList.Builder<BlockRecord> tickedBlocks = ImmutableList.builder();
-        final List<NextTickListEntry> ticks = world.a(new StructureBoundingBox(Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE), false);
-        if(ticks != null) {
-            for(NextTickListEntry tick : ticks) {
-                final BlockRecord block = this.byPosition.get(tick.a);
-                if(block != null) {
-                    block.tickListEntry = tick;
-                    tickedBlocks.add(block);
+    /**
+     * Return the indexes of the blocks that have a neighbour outside of the image. Blocks
+     * inside the image were all captured together, so only these need to update their
+     * neighbours after a paste.
+     */
+    int[] edgeIndexes() {
+        int[] edges = edgeIndexes;
+        if(edges == null) {
+            final BlockPosition.MutableBlockPosition pos = new BlockPosition.MutableBlockPosition();
+            int count = 0;
+            edges = new int[64];
+            for(int index = next(0); index < sections.slots(); index = next(index + 1)) {
+                positionOf(index, pos);
+                final int x = pos.getX(), y = pos.getY(), z = pos.getZ();
+                if(!contains(indexOf(x - 1, y, z)) || !contains(indexOf(x + 1, y, z)) ||
+                   !contains(indexOf(x, y - 1, z)) || !contains(indexOf(x, y + 1, z)) ||
+                   !contains(indexOf(x, y, z - 1)) || !contains(indexOf(x, y, z + 1))) {
+                    if(count == edges.length) edges = Arrays.copyOf(edges, count * 2);
+                    edges[count++] = index;
                 }
             }
+            edgeIndexes = edges = Arrays.copyOf(edges, count);
         }
-        this.tickedBlocks = tickedBlocks.build();
+        return edges;
     }
 
-    @Override
-    public int paste(World world, CoarseTransform transform) {
-        final net.minecraft.server.WorldServer nmsWorld = ((CraftWorld) world).getHandle();
+    /**
+     * Group the destinations of the blocks by chunk section. The value of each
+     * position is the index of its block.
+     */
+    private BlockBatch batch(CoarseTransform transform) {
+        final BlockBatch batch = new BlockBatch();
+        final BlockPosition.MutableBlockPosition mutablePosition = new BlockPosition.MutableBlockPosition();
+        for(int index = next(0); index < sections.slots(); index = next(index + 1)) {
+            positionOf(index, mutablePosition);
+            transform.applyInPlace(mutablePosition);
+            batch.add(mutablePosition.getX(), mutablePosition.getY(), mutablePosition.getZ(), index);
+        }
+        return batch;
+    }
 
-        final Iterable<BlockRecord> allBlocks = Iterables.concat(earlyBlocks, tileEntities, lateBlocks);
-        final Iterable<BlockRecord> reversedBlocks = Iterables.concat(lateBlocks, tileEntities, earlyBlocks);
+    /**
+     * Write blocks straight into the chunk sections of the given chunks, without any block
+     * updates or client notifications. Tile entities of replaced blocks are removed, and their
+     * inventories cleared. Once all blocks are written, each changed chunk is relit and resent
+     * to clients, once.
+     *
+     * @param blockData Returns the block to write for the value of each position in the batch
+     * @return The number of blocks that were changed
+     */
+    static int writeBlocks(WorldServer world, Iterable<BlockBatch.Chunk> batch, IntFunction<IBlockData> blockData) {
+        final BlockPosition.MutableBlockPosition pos = new BlockPosition.MutableBlockPosition();
+        final List<BlockPosition> relight = new ArrayList<>();
+        final List<Chunk> changedChunks = new ArrayList<>();
+        int changed = 0;
+
+        for(BlockBatch.Chunk batchChunk : batch) {
+            final Chunk chunk = world.getChunkAt(batchChunk.x, batchChunk.z);
+            final ChunkSection[] sections = chunk.getSections();
+            final int changedBefore = changed;
+
+            for(BlockBatch.Section batchSection : batchChunk.sections) {
+                if(batchSection == null) continue;
+                ChunkSection section = sections[batchSection.y];
+
+                for(int i = 0; i < batchSection.size; i++) {
+                    final int x = BlockBatch.Section.x(batchSection.blocks[i]),
+                              y = BlockBatch.Section.y(batchSection.blocks[i]),
+                              z = BlockBatch.Section.z(batchSection.blocks[i]);
+                    final IBlockData newData = blockData.apply(batchSection.values[i]);
+                    final IBlockData oldData = section == null ? Blocks.AIR.getBlockData()
+                                                               : section.getType(x, y, z);
+                    if(newData == oldData) continue;
+
+                    pos.set(batchChunk.x << 4 | x, batchSection.y << 4 | y, batchChunk.z << 4 | z);
+
+                    if(oldData.getBlock() instanceof ITileEntity) {
+                        // Clear any containers so nobody can keep using their contents
+                        final TileEntity tileEntity = chunk.a(pos, Chunk.EnumTileEntityState.CHECK);
+                        if(tileEntity instanceof IInventory) {
+                            ((IInventory) tileEntity).clear();
+                        }
+                        chunk.removeTileEntity(pos);
+                    }
 
-        final BlockPosition.MutableBlockPosition mutablePosition = new BlockPosition.MutableBlockPosition();
+                    if(section == null) {
+                        section = sections[batchSection.y] = new ChunkSection(batchSection.y << 4, world.worldProvider.m());
+                    }
+                    section.setType(x, y, z, newData);
 
-        // Fill the entire destination region with barrier blocks
-        for(BlockRecord block : reversedBlocks) {
-            mutablePosition.set(block);
-            transform.applyInPlace(mutablePosition);
+                    if(newData.c() != oldData.c() || newData.d() != oldData.d()) { // opacity or emission
+                        relight.add(new BlockPosition(pos));
+                    }
+                    changed++;
+                }
+            }
 
-            // Clear any containers so they don't spill their contents
-            final TileEntity tileEntity = nmsWorld.getTileEntity(mutablePosition);
-            if (tileEntity instanceof IInventory) {
-                ((IInventory) tileEntity).clear(); // Clear inventory
+            if(changed != changedBefore) {
+                chunk.initLighting(); // Heightmap and sky light
+                chunk.e(); // PAIL: markDirty
+                changedChunks.add(chunk);
             }
+        }
+
+        // Light spreads across chunks, so it can only be checked once all of them are written
+        for(BlockPosition position : relight) {
+            world.w(position); // PAIL: checkLight
+        }
 
-            nmsWorld.setTypeAndData(mutablePosition, Blocks.BARRIER.getBlockData(), 2);
+        for(Chunk chunk : changedChunks) {
+            world.getWorld().refreshChunk(chunk.locX, chunk.locZ);
         }
 
-        int affectedBlocks = 0;
+        return changed;
+    }
+
+    private void updateNeighbours(WorldServer world, CoarseTransform transform) {
+        final BlockPosition.MutableBlockPosition mutablePosition = new BlockPosition.MutableBlockPosition();
+        for(int index : edgeIndexes()) {
+            positionOf(index, mutablePosition);
+            transform.applyInPlace(mutablePosition);
+            world.update(mutablePosition, world.getType(mutablePosition).getBlock(), false);
+        }
+    }
+
+    /**
+     * Group everything in the image by destination chunk, ready to paste
+     */
+    CraftBlockPaste prepare(CraftWorld world, CoarseTransform transform) {
         final CraftBlockFactory orienter = (CraftBlockFactory) Bukkit.blocks();
         final BlockRotoflection orientation = transform.orientation();
 
-        for(BlockRecord block : allBlocks) {
-            mutablePosition.set(block);
+        // Orient each block in the palette once, instead of every block in the image
+        final IBlockData[] oriented = new IBlockData[palette.length];
+        for(int i = 0; i < palette.length; i++) {
+            oriented[i] = orienter.transform(palette[i], orientation);
+        }
+
+        final CraftBlockPaste paste = new CraftBlockPaste(world, oriented);
+        final BlockPosition.MutableBlockPosition mutablePosition = new BlockPosition.MutableBlockPosition();
+        for(int index = next(0); index < sections.slots(); index = next(index + 1)) {
+            positionOf(index, mutablePosition);
             transform.applyInPlace(mutablePosition);
-            if(nmsWorld.setTypeAndData(mutablePosition, orienter.transform(block.blockData, orientation), 2)) {
-                ++affectedBlocks;
-            }
+            paste.addBlock(mutablePosition.getX(), mutablePosition.getY(), mutablePosition.getZ(), blockAt(index));
         }
 
-        for(BlockRecord block : tileEntities) {
-            mutablePosition.set(block);
+        for(Map.Entry<Integer, NBTTagCompound> entry : tileEntities.entrySet()) {
+            positionOf(entry.getKey(), mutablePosition);
             transform.applyInPlace(mutablePosition);
-            block.pasteTileEntity(nmsWorld, mutablePosition);
-            nmsWorld.setTypeAndData(mutablePosition, orienter.transform(block.blockData, orientation), 2);
+            paste.addTileEntity(mutablePosition, entry.getValue());
         }
 
-        for(BlockRecord block : reversedBlocks) {
-            mutablePosition.set(block);
+        for(int index : edgeIndexes()) {
+            positionOf(index, mutablePosition);
             transform.applyInPlace(mutablePosition);
-            nmsWorld.update(mutablePosition, block.blockData.getBlock(), false);
+            paste.addEdge(mutablePosition);
         }
 
-        for(BlockRecord block : tickedBlocks) {
-            mutablePosition.set(block.tickListEntry.a);
+        for(int i = 0; i < ticks.length; i++) {
+            positionOf(tickIndexes[i], mutablePosition);
             transform.applyInPlace(mutablePosition);
-            block.pasteTick(nmsWorld, mutablePosition, tickTime);
+            paste.addTick(mutablePosition, ticks[i].a(), (int) (ticks[i].b - tickTime), ticks[i].c);
+        }
+
+        return paste;
+    }
+
+    @Override
+    public int paste(World world, CoarseTransform transform) {
+        return prepare((CraftWorld) world, transform).pasteAll();
+    }
+
+    /**
+     * A view of the positions in the image
+     */
+    private class Region implements BlockRegion {
+
+        @Override
+        public boolean isMutable() {
+            return false;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Vec3 pos) {
+            return CraftBlockImage.this.contains(indexOf(pos));
+        }
+
+        @Override
+        public Iterator<Vec3> mutableIterator() {
+            return new MutableBlockIterator() {
+                int next = next(0);
+
+                @Override
+                public boolean hasNext() {
+                    return next < sections.slots();
+                }
+
+                @Override
+                protected void advance(MutableVec3 value) {
+                    if(!hasNext()) throw new NoSuchElementException();
+                    positionOf(next, value);
+                    next = next(next + 1);
+                }
+            };
+        }
+
+        @Override
+        public BlockRegion copy() {
+            return this;
         }
 
-        return affectedBlocks;
+        @Override
+        public int hashCode() {
+            return standardHashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return standardEquals(obj);
+        }
     }
 }
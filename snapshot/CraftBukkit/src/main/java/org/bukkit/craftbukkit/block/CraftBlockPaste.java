@@ -0,0 +1,359 @@
+package org.bukkit.craftbukkit.block;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntFunction;
+
+import net.minecraft.server.Block;
+import net.minecraft.server.BlockPosition;
+import net.minecraft.server.ChunkCoordIntPair;
+import net.minecraft.server.IBlockData;
+import net.minecraft.server.NBTTagCompound;
+import net.minecraft.server.WorldServer;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.block.BlockImage;
+import org.bukkit.block.BlockPaste;
+import org.bukkit.block.TransformedBlockImage;
+import org.bukkit.craftbukkit.CraftWorld;
+import org.bukkit.geometry.CoarseTransform;
+
+/**
+ * Everything needed to paste an image into a world, grouped by destination chunk.
+ *
+ * The blocks are a {@link BlockBatch} of palette indexes, and the tile entities,
+ * edge blocks, and ticks of each chunk are kept alongside it. The paste can either
+ * be done all at once, or one chunk at a time by the {@link BlockPasteScheduler}.
+ * In both cases, a chunk's blocks are written first, then its tile entities are
+ * loaded, its edge blocks update their neighbours, and its ticks are scheduled.
+ *
+ * Images that are not held in memory give the paste a {@link Source} instead, which
+ * adds their contents one part at a time, as the paste reaches them.
+ */
+public class CraftBlockPaste implements BlockPaste {
+
+    private static class Tick {
+        final BlockPosition pos;
+        final Block block;
+        final int delay, priority;
+
+        Tick(BlockPosition pos, Block block, int delay, int priority) {
+            this.pos = pos;
+            this.block = block;
+            this.delay = delay;
+            this.priority = priority;
+        }
+    }
+
+    /**
+     * Adds the contents of an image to a paste in parts, so that only the current part
+     * is held in memory. Each destination chunk must be entirely within one part.
+     */
+    interface Source {
+        /**
+         * Add the next part to the given paste
+         *
+         * @return false if there is nothing left to add
+         */
+        boolean next(CraftBlockPaste paste);
+    }
+
+    /**
+     * Where a paste writes to. This is the world, except in tests, which record the writes instead.
+     */
+    interface Target {
+        /**
+         * Return false if the target has gone away, and the paste should stop
+         */
+        boolean isLoaded();
+
+        /**
+         * Write the given blocks, and return how many were changed
+         */
+        int writeBlocks(Iterable<BlockBatch.Chunk> chunks, IntFunction<IBlockData> blockData);
+
+        void pasteTileEntity(BlockPosition pos, NBTTagCompound tileEntityData);
+
+        /**
+         * Update the neighbours of the block at the given position
+         */
+        void updateEdge(BlockPosition pos);
+
+        void scheduleTick(BlockPosition pos, Block block, int delay, int priority);
+    }
+
+    private static class WorldTarget implements Target {
+        private final CraftWorld world;
+
+        WorldTarget(CraftWorld world) {
+            this.world = world;
+        }
+
+        @Override
+        public boolean isLoaded() {
+            return Bukkit.getWorld(world.getUID()) == world;
+        }
+
+        @Override
+        public int writeBlocks(Iterable<BlockBatch.Chunk> chunks, IntFunction<IBlockData> blockData) {
+            return CraftBlockImage.writeBlocks(world.getHandle(), chunks, blockData);
+        }
+
+        @Override
+        public void pasteTileEntity(BlockPosition pos, NBTTagCompound tileEntityData) {
+            CraftBlockImage.pasteTileEntity(world.getHandle(), pos, tileEntityData);
+        }
+
+        @Override
+        public void updateEdge(BlockPosition pos) {
+            final WorldServer nmsWorld = world.getHandle();
+            nmsWorld.update(pos, nmsWorld.getType(pos).getBlock(), false);
+        }
+
+        @Override
+        public void scheduleTick(BlockPosition pos, Block block, int delay, int priority) {
+            world.getHandle().b(pos, block, delay, priority);
+        }
+    }
+
+    /**
+     * Everything except the blocks, in one chunk
+     */
+    private static class Extras {
+        final List<BlockPosition> tileEntityPositions = new ArrayList<>();
+        final List<NBTTagCompound> tileEntities = new ArrayList<>();
+        final List<BlockPosition> edges = new ArrayList<>();
+        final List<Tick> ticks = new ArrayList<>();
+    }
+
+    private final CraftWorld world;
+    private final Target target;
+    private final IBlockData[] palette;
+    private final Source source;
+    private BlockBatch batch = new BlockBatch();
+    private Map<Long, Extras> extras = new HashMap<>();
+    private final CompletableFuture<Integer> completion = new CompletableFuture<>();
+
+    private int maxBlocksPerTick = Integer.MAX_VALUE;
+    private long maxNanosPerTick = Long.MAX_VALUE;
+    private boolean started;
+    private Iterator<BlockBatch.Chunk> remaining;
+    private int total, pasted, changed;
+
+    /**
+     * @param palette The blocks to write for each value in the batch, already oriented for the destination
+     */
+    CraftBlockPaste(CraftWorld world, IBlockData[] palette) {
+        this(world, palette, 0, null);
+    }
+
+    /**
+     * @param palette The blocks to write for each value in the batch, already oriented for the destination
+     * @param total The number of blocks that the source will add
+     * @param source Adds the contents of the paste as it goes, or null if they are all added up front
+     */
+    CraftBlockPaste(CraftWorld world, IBlockData[] palette, int total, Source source) {
+        this(world, new WorldTarget(world), palette, total, source);
+    }
+
+    CraftBlockPaste(CraftWorld world, Target target, IBlockData[] palette, int total, Source source) {
+        this.world = world;
+        this.target = target;
+        this.palette = palette;
+        this.total = total;
+        this.source = source;
+    }
+
+    private Extras extras(BlockPosition pos) {
+        return extras.computeIfAbsent(ChunkCoordIntPair.a(pos.getX() >> 4, pos.getZ() >> 4), key -> new Extras());
+    }
+
+    void addBlock(int x, int y, int z, int paletteIndex) {
+        batch.add(x, y, z, paletteIndex);
+        if(source == null) total++; // A source gives its total up front
+    }
+
+    void setBudget(int maxBlocksPerTick, long maxNanosPerTick) {
+        this.maxBlocksPerTick = maxBlocksPerTick;
+        this.maxNanosPerTick = maxNanosPerTick;
+    }
+
+    void addTileEntity(BlockPosition pos, NBTTagCompound tileEntityData) {
+        if(!BlockBatch.isValidHeight(pos.getY())) return;
+        final Extras extras = extras(pos);
+        extras.tileEntityPositions.add(new BlockPosition(pos));
+        extras.tileEntities.add(tileEntityData);
+    }
+
+    void addEdge(BlockPosition pos) {
+        if(!BlockBatch.isValidHeight(pos.getY())) return;
+        extras(pos).edges.add(new BlockPosition(pos));
+    }
+
+    void addTick(BlockPosition pos, Block block, int delay, int priority) {
+        if(!BlockBatch.isValidHeight(pos.getY())) return;
+        extras(pos).ticks.add(new Tick(new BlockPosition(pos), block, delay, priority));
+    }
+
+    @Override
+    public World getWorld() {
+        return world;
+    }
+
+    @Override
+    public int getBlocksPasted() {
+        return pasted;
+    }
+
+    @Override
+    public int getBlocksTotal() {
+        return total;
+    }
+
+    @Override
+    public boolean cancel() {
+        return completion.cancel(false);
+    }
+
+    @Override
+    public CompletableFuture<Integer> getCompletion() {
+        return completion;
+    }
+
+    private void pasteExtras(Iterable<Extras> chunks) {
+        for(Extras chunk : chunks) {
+            for(int i = 0; i < chunk.tileEntities.size(); i++) {
+                target.pasteTileEntity(chunk.tileEntityPositions.get(i), chunk.tileEntities.get(i));
+            }
+        }
+        for(Extras chunk : chunks) {
+            for(BlockPosition pos : chunk.edges) {
+                target.updateEdge(pos);
+            }
+        }
+        for(Extras chunk : chunks) {
+            for(Tick tick : chunk.ticks) {
+                target.scheduleTick(tick.pos, tick.block, tick.delay, tick.priority);
+            }
+        }
+    }
+
+    /**
+     * Move on to the next part of the paste, dropping the current one
+     *
+     * @return false if there are no parts left
+     */
+    private boolean nextPart() {
+        if(source == null) {
+            // Everything was added up front, as a single part
+            if(started) return false;
+            started = true;
+            return true;
+        }
+        batch = new BlockBatch();
+        extras = new HashMap<>();
+        return source.next(this);
+    }
+
+    /**
+     * Make sure there is a chunk to paste next, moving on to later parts if needed
+     *
+     * @return false if everything has been pasted
+     */
+    private boolean hasNextChunk() {
+        while(remaining == null || !remaining.hasNext()) {
+            if(!nextPart()) return false;
+            remaining = batch.chunks().iterator();
+        }
+        return true;
+    }
+
+    /**
+     * Paste everything, right now
+     *
+     * @return The number of blocks that were changed
+     */
+    int pasteAll() {
+        while(nextPart()) {
+            changed += target.writeBlocks(batch.chunks(), value -> palette[value]);
+            pasteExtras(extras.values());
+        }
+        pasted = total;
+        completion.complete(changed);
+        return changed;
+    }
+
+    /**
+     * Paste the next chunks, within the budget of this paste
+     *
+     * @return true if the paste is done, and should not be ticked again
+     */
+    boolean tick() {
+        if(completion.isDone()) return true;
+
+        if(!target.isLoaded()) {
+            // Unloaded
+            completion.cancel(false);
+            return true;
+        }
+
+        try {
+            final long start = System.nanoTime();
+            int blocks = 0;
+            while(hasNextChunk()) {
+                final BlockBatch.Chunk chunk = remaining.next();
+                changed += target.writeBlocks(Collections.singleton(chunk), value -> palette[value]);
+                final Extras chunkExtras = extras.get(ChunkCoordIntPair.a(chunk.x, chunk.z));
+                if(chunkExtras != null) {
+                    pasteExtras(Collections.singleton(chunkExtras));
+                }
+                pasted += chunk.size;
+                blocks += chunk.size;
+
+                if(blocks >= maxBlocksPerTick || System.nanoTime() - start >= maxNanosPerTick) break;
+            }
+
+            if(!hasNextChunk()) {
+                pasted = total;
+                completion.complete(changed);
+                return true;
+            }
+            return false;
+        } catch(Throwable ex) {
+            completion.completeExceptionally(ex);
+            return true;
+        }
+    }
+
+    /**
+     * Prepare a paste of the given image, and give it to the scheduler
+     */
+    public static BlockPaste start(BlockPasteScheduler scheduler, CraftWorld world, BlockImage image, CoarseTransform transform, int maxBlocksPerTick, long maxNanosPerTick) {
+        while(image instanceof TransformedBlockImage) {
+            transform = ((TransformedBlockImage) image).getTransform().andThen(transform);
+            image = ((TransformedBlockImage) image).getOriginal();
+        }
+
+        final CraftBlockPaste paste;
+        if(image instanceof CraftBlockImage) {
+            paste = ((CraftBlockImage) image).prepare(world, transform);
+        } else if(image instanceof MappedBlockImage) {
+            paste = ((MappedBlockImage) image).prepare(world, transform);
+        } else {
+            // Other images can't be split up, so paste them now
+            paste = new CraftBlockPaste(world, new IBlockData[0]);
+            paste.total = paste.pasted = image.region().size();
+            paste.completion.complete(image.paste(world, transform));
+            return paste;
+        }
+
+        paste.setBudget(maxBlocksPerTick, maxNanosPerTick);
+        scheduler.add(paste);
+        return paste;
+    }
+}
@@ -0,0 +1,450 @@
+package org.bukkit.craftbukkit.block;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import net.minecraft.server.BlockPosition;
+import net.minecraft.server.ChunkCoordIntPair;
+import net.minecraft.server.IBlockData;
+import net.minecraft.server.NBTCompressedStreamTools;
+import net.minecraft.server.NextTickListEntry;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.block.BlockImage;
+import org.bukkit.craftbukkit.CraftWorld;
+import org.bukkit.craftbukkit.util.CraftMagicNumbers;
+import org.bukkit.geometry.BlockRotoflection;
+import org.bukkit.geometry.CoarseTransform;
+import org.bukkit.geometry.MutableVec3;
+import org.bukkit.geometry.Vec3;
+import org.bukkit.material.MaterialData;
+import org.bukkit.region.BlockRegion;
+import org.bukkit.region.MutableBlockIterator;
+
+/**
+ * A {@link BlockImage} that stays in a memory-mapped file written by {@link BlockImageFile}.
+ *
+ * Pasting streams the block runs, tile entities and ticks straight from the file into a
+ * {@link CraftBlockPaste}, one row of destination chunks at a time, so the image itself is never held on the heap as a whole. Random access by position (materialAt,
+ * pasteBlock, and the region) needs an index of the block runs, which is built the first
+ * time it is used.
+ */
+class MappedBlockImage implements BlockImage {
+
+    private final File file;
+    private final ByteBuffer buffer;
+    private final BlockImageFile.Header header;
+
+    // Offsets of each part of the file
+    private final int blocksOffset, tileEntitiesOffset, edgesOffset, ticksOffset;
+
+    private final Region region = new Region();
+    private volatile Runs runs;
+    private volatile Entries tileEntities, edges, ticks;
+
+    MappedBlockImage(File file) throws IOException {
+        this.file = file;
+        this.buffer = BlockImageFile.map(file);
+
+        final BlockImageFile.Reader reader = new BlockImageFile.Reader(buffer);
+        this.header = new BlockImageFile.Header(reader);
+
+        blocksOffset = reader.position();
+        reader.skipBlocks(header.sections.slots());
+        tileEntitiesOffset = reader.position();
+        reader.skipTileEntities();
+        edgesOffset = reader.position();
+        reader.skipEdges();
+        ticksOffset = reader.position();
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * Return a new reader, positioned at the given offset
+     */
+    private BlockImageFile.Reader readerAt(int offset) {
+        return new BlockImageFile.Reader(buffer).seek(offset);
+    }
+
+    private <V extends MutableVec3> V positionOf(int index, V pos) {
+        return header.sections.positionOf(index, pos);
+    }
+
+    private int indexOf(Vec3 pos) {
+        return header.sections.indexOf(pos.coarseX(), pos.coarseY(), pos.coarseZ());
+    }
+
+    /**
+     * The start index and palette index of every block run
+     */
+    private static class Runs {
+        final int[] starts;
+        final short[] values;
+
+        Runs(int[] starts, short[] values) {
+            this.starts = starts;
+            this.values = values;
+        }
+
+        short valueAt(int index) {
+            int run = Arrays.binarySearch(starts, index);
+            if(run < 0) run = -run - 2;
+            return values[run];
+        }
+    }
+
+    private Runs runs() {
+        Runs runs = this.runs;
+        if(runs == null) {
+            final BlockImageFile.Reader reader = readerAt(blocksOffset);
+            int[] starts = new int[64];
+            short[] values = new short[64];
+            int count = 0;
+            try {
+                for(int index = 0; index < header.sections.slots(); count++) {
+                    if(count == starts.length) {
+                        starts = Arrays.copyOf(starts, count * 2);
+                        values = Arrays.copyOf(values, count * 2);
+                    }
+                    starts[count] = index;
+                    index += reader.readVarInt();
+                    values[count] = reader.in.readShort();
+                }
+            } catch(IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.runs = runs = new Runs(Arrays.copyOf(starts, count), Arrays.copyOf(values, count));
+        }
+        return runs;
+    }
+
+    /**
+     * The block index of every entry in one part of the file, in ascending order,
+     * with the offset of the entry's data. This lets pasteBlock decode only the
+     * tile entities and ticks at its position, and a paste only those in its current part.
+     */
+    private static class Entries {
+        final int[] indexes;
+        final int[] offsets;
+
+        /**
+         * @param entries Each entry's block index in the high 32 bits, and its offset in the low 32 bits
+         */
+        Entries(long[] entries) {
+            Arrays.sort(entries);
+            indexes = new int[entries.length];
+            offsets = new int[entries.length];
+            for(int i = 0; i < entries.length; i++) {
+                indexes[i] = (int) (entries[i] >>> 32);
+                offsets[i] = (int) entries[i];
+            }
+        }
+
+        int size() {
+            return indexes.length;
+        }
+
+        /**
+         * Return the first entry with the given block index or a greater one, or size() if there are none
+         */
+        int first(int index) {
+            int low = 0, high = indexes.length;
+            while(low < high) {
+                final int mid = (low + high) >>> 1;
+                if(indexes[mid] < index) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    private interface EntryReader {
+        void skip(BlockImageFile.Reader reader) throws IOException;
+    }
+
+    private Entries scanEntries(int offset, EntryReader data) {
+        final BlockImageFile.Reader reader = readerAt(offset);
+        try {
+            final long[] entries = new long[reader.in.readInt()];
+            for(int i = 0; i < entries.length; i++) {
+                final int index = reader.in.readInt();
+                entries[i] = (long) index << 32 | reader.position();
+                data.skip(reader);
+            }
+            return new Entries(entries);
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Entries tileEntities() {
+        Entries tileEntities = this.tileEntities;
+        if(tileEntities == null) {
+            this.tileEntities = tileEntities = scanEntries(tileEntitiesOffset, reader -> NBTCompressedStreamTools.a(reader.in));
+        }
+        return tileEntities;
+    }
+
+    private Entries edges() {
+        Entries edges = this.edges;
+        if(edges == null) {
+            this.edges = edges = scanEntries(edgesOffset, reader -> {});
+        }
+        return edges;
+    }
+
+    private Entries ticks() {
+        Entries ticks = this.ticks;
+        if(ticks == null) {
+            this.ticks = ticks = scanEntries(ticksOffset, BlockImageFile.Reader::readTick);
+        }
+        return ticks;
+    }
+
+    private short valueAt(int index) {
+        return index < 0 ? CraftBlockImage.ABSENT : runs().valueAt(index);
+    }
+
+    @Override
+    public BlockRegion region() {
+        return region;
+    }
+
+    @Override
+    public MaterialData materialAt(Vec3 pos) {
+        final short value = valueAt(indexOf(pos));
+        return value == CraftBlockImage.ABSENT ? null : CraftMagicNumbers.nmsBlockStateToImmutableMaterialData(header.palette[value]);
+    }
+
+    @Override
+    public boolean pasteBlock(Vec3 from, World world, Vec3 to, BlockRotoflection orientation) {
+        final int index = indexOf(from);
+        final short value = valueAt(index);
+        if(value == CraftBlockImage.ABSENT) return false;
+
+        final CraftBlockFactory orienter = (CraftBlockFactory) Bukkit.blocks();
+        final net.minecraft.server.World nmsWorld = ((CraftWorld) world).getHandle();
+        final BlockPosition pos = BlockPosition.copyOf(to);
+
+        try {
+            final BlockImageFile.Reader reader = new BlockImageFile.Reader(buffer);
+            final Entries tileEntities = tileEntities();
+            for(int i = tileEntities.first(index); i < tileEntities.size() && tileEntities.indexes[i] == index; i++) {
+                CraftBlockImage.pasteTileEntity(nmsWorld, pos, NBTCompressedStreamTools.a(reader.seek(tileEntities.offsets[i]).in));
+            }
+
+            nmsWorld.setTypeAndData(pos, orienter.transform(header.palette[value], orientation), 2);
+
+            final Entries ticks = ticks();
+            for(int i = ticks.first(index); i < ticks.size() && ticks.indexes[i] == index; i++) {
+                final NextTickListEntry tick = reader.seek(ticks.offsets[i]).readTick();
+                nmsWorld.b(pos, tick.a(), (int) (tick.b - header.tickTime), tick.c);
+            }
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return true;
+    }
+
+    /**
+     * Prepare a paste that decodes the file as it goes, one {@link Slabs slab} at a time
+     */
+    CraftBlockPaste prepare(CraftWorld world, CoarseTransform transform) {
+        final CraftBlockFactory orienter = (CraftBlockFactory) Bukkit.blocks();
+        final BlockRotoflection orientation = transform.orientation();
+
+        final IBlockData[] oriented = new IBlockData[header.palette.length];
+        for(int i = 0; i < oriented.length; i++) {
+            oriented[i] = orienter.transform(header.palette[i], orientation);
+        }
+
+        return new CraftBlockPaste(world, oriented, header.size, new Slabs(transform));
+    }
+
+    /**
+     * Adds the image to a paste in slabs. A slab is a run of rows of sections (which are
+     * contiguous in index order) whose z layers land in the same rows of destination chunks
+     * (orientations only turn about the y axis, so each layer lands in a single row).
+     * Every destination chunk is then in exactly one slab, and only one slab is held in
+     * memory at a time.
+     */
+    private class Slabs implements CraftBlockPaste.Source {
+        private final CoarseTransform transform;
+        private final BlockPosition.MutableBlockPosition pos = new BlockPosition.MutableBlockPosition();
+        private final BlockImageFile.Reader blocks = readerAt(blocksOffset);
+        private final BlockImageFile.Reader entries = new BlockImageFile.Reader(buffer);
+        private final Entries tileEntities = tileEntities(), edges = edges(), ticks = ticks();
+
+        private int index, runEnd;
+        private short runValue;
+        private int nextTileEntity, nextEdge, nextTick;
+
+        Slabs(CoarseTransform transform) {
+            this.transform = transform;
+        }
+
+        private BlockPosition.MutableBlockPosition destination(int index) {
+            positionOf(index, pos);
+            transform.applyInPlace(pos);
+            return pos;
+        }
+
+        /**
+         * The destination chunk of a block in the given z layer. Every block in
+         * the layer lands in the same row of chunks as this one.
+         */
+        private long chunkOfLayer(int z) {
+            pos.set(header.minX, header.minY, z);
+            transform.applyInPlace(pos);
+            return ChunkCoordIntPair.a(pos.getX() >> 4, pos.getZ() >> 4);
+        }
+
+        /**
+         * The block index after the end of the slab starting at the given index,
+         * which is the start of a row of sections
+         */
+        private int slabEnd(int start) {
+            final SectionIndex sections = header.sections;
+            int section = start / SectionIndex.SECTION_BLOCKS;
+            for(;;) {
+                // Skip to the end of this row
+                final int row = sections.sectionZ(section);
+                while(++section < sections.size() && sections.sectionZ(section) == row);
+
+                // Join the next row if its first layer shares a row of chunks with the last layer of this one
+                if(section == sections.size() ||
+                   chunkOfLayer(sections.sectionZ(section) << 4) != chunkOfLayer(row << 4 | 15)) {
+                    return section * SectionIndex.SECTION_BLOCKS;
+                }
+            }
+        }
+
+        @Override
+        public boolean next(CraftBlockPaste paste) {
+            if(index >= header.sections.slots()) return false;
+
+            final int end = slabEnd(index);
+            try {
+                while(index < end) {
+                    if(index == runEnd) {
+                        runEnd = index + blocks.readVarInt();
+                        runValue = blocks.in.readShort();
+                    }
+                    final int stop = Math.min(runEnd, end);
+                    if(runValue == CraftBlockImage.ABSENT) {
+                        index = stop;
+                        continue;
+                    }
+                    for(; index < stop; index++) {
+                        destination(index);
+                        paste.addBlock(pos.getX(), pos.getY(), pos.getZ(), runValue);
+                    }
+                }
+
+                for(; nextTileEntity < tileEntities.size() && tileEntities.indexes[nextTileEntity] < end; nextTileEntity++) {
+                    final int offset = tileEntities.offsets[nextTileEntity];
+                    paste.addTileEntity(destination(tileEntities.indexes[nextTileEntity]), NBTCompressedStreamTools.a(entries.seek(offset).in));
+                }
+
+                for(; nextEdge < edges.size() && edges.indexes[nextEdge] < end; nextEdge++) {
+                    paste.addEdge(destination(edges.indexes[nextEdge]));
+                }
+
+                for(; nextTick < ticks.size() && ticks.indexes[nextTick] < end; nextTick++) {
+                    final NextTickListEntry tick = entries.seek(ticks.offsets[nextTick]).readTick();
+                    paste.addTick(destination(ticks.indexes[nextTick]), tick.a(), (int) (tick.b - header.tickTime), tick.c);
+                }
+            } catch(IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return true;
+        }
+    }
+
+    @Override
+    public int paste(World world, CoarseTransform transform) {
+        return prepare((CraftWorld) world, transform).pasteAll();
+    }
+
+    /**
+     * A view of the positions in the image
+     */
+    private class Region implements BlockRegion {
+
+        @Override
+        public boolean isMutable() {
+            return false;
+        }
+
+        @Override
+        public int size() {
+            return header.size;
+        }
+
+        @Override
+        public boolean contains(Vec3 pos) {
+            return valueAt(indexOf(pos)) != CraftBlockImage.ABSENT;
+        }
+
+        @Override
+        public Iterator<Vec3> mutableIterator() {
+            final Runs runs = runs();
+            return new MutableBlockIterator() {
+                int run = -1, next, end;
+
+                {
+                    findRun();
+                }
+
+                void findRun() {
+                    do {
+                        run++;
+                    } while(run < runs.starts.length && runs.values[run] == CraftBlockImage.ABSENT);
+
+                    if(run < runs.starts.length) {
+                        next = runs.starts[run];
+                        end = run + 1 < runs.starts.length ? runs.starts[run + 1] : header.sections.slots();
+                    }
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return run < runs.starts.length;
+                }
+
+                @Override
+                protected void advance(MutableVec3 value) {
+                    if(!hasNext()) throw new NoSuchElementException();
+                    positionOf(next++, value);
+                    if(next == end) findRun();
+                }
+            };
+        }
+
+        @Override
+        public BlockRegion copy() {
+            return this;
+        }
+
+        @Override
+        public int hashCode() {
+            return standardHashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return standardEquals(obj);
+        }
+    }
+}
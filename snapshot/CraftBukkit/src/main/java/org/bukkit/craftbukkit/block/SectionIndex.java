@@ -0,0 +1,129 @@
+package org.bukkit.craftbukkit.block;
+
+import java.util.Arrays;
+
+import org.bukkit.geometry.MutableVec3;
+
+/**
+ * Numbers the positions in a sorted set of chunk sections, so that blocks can be
+ * stored in pages of {@link #SECTION_BLOCKS} entries, one for each occupied section,
+ * instead of in one array covering the whole bounding box.
+ *
+ * The index of a position is the number of its section << 12, plus its position
+ * within the section, packed as y << 8 | z << 4 | x like {@link BlockBatch.Section}.
+ * Sections are sorted by z, then x, then y, so each row of sections along the x axis
+ * is a contiguous range of indexes.
+ */
+final class SectionIndex {
+
+    static final int SECTION_BLOCKS = 4096;
+
+    /**
+     * The most sections an index can have, so that every index fits in an int
+     */
+    static final int MAX_SECTIONS = Integer.MAX_VALUE / SECTION_BLOCKS;
+
+    // Bits of each section coordinate in a key
+    private static final int XZ_BITS = 22, Y_BITS = 20;
+    private static final int XZ_BIAS = 1 << (XZ_BITS - 1), Y_BIAS = 1 << (Y_BITS - 1);
+
+    static final SectionIndex EMPTY = new SectionIndex(new long[0]);
+
+    private final long[] keys;
+
+    /**
+     * @param keys The {@link #key}s of the sections, in ascending order, without duplicates
+     */
+    SectionIndex(long[] keys) {
+        if(keys.length > MAX_SECTIONS) {
+            throw new IllegalArgumentException("Too many chunk sections (" + keys.length + ", the maximum is " + MAX_SECTIONS + ")");
+        }
+        for(int i = 1; i < keys.length; i++) {
+            if(keys[i - 1] >= keys[i]) {
+                throw new IllegalArgumentException("Section keys are not in ascending order");
+            }
+        }
+        this.keys = keys;
+    }
+
+    /**
+     * Return true if the section containing the given block position can be given a key.
+     * This is every section within 33 million blocks of the origin horizontally, and
+     * 8 million vertically.
+     */
+    static boolean isValid(int x, int y, int z) {
+        x >>= 4;
+        y >>= 4;
+        z >>= 4;
+        return x >= -XZ_BIAS && x < XZ_BIAS && z >= -XZ_BIAS && z < XZ_BIAS && y >= -Y_BIAS && y < Y_BIAS;
+    }
+
+    /**
+     * Return the key of the section containing the given block position, which must be {@link #isValid}.
+     * Keys sort in the same order as the sections.
+     */
+    static long key(int x, int y, int z) {
+        return (long) (z >> 4) << (XZ_BITS + Y_BITS)
+               | (long) ((x >> 4) + XZ_BIAS) << Y_BITS
+               | (long) ((y >> 4) + Y_BIAS);
+    }
+
+    /**
+     * Return the position of the given block within its section
+     */
+    static int local(int x, int y, int z) {
+        return (y & 15) << 8 | (z & 15) << 4 | (x & 15);
+    }
+
+    int size() {
+        return keys.length;
+    }
+
+    long key(int section) {
+        return keys[section];
+    }
+
+    /**
+     * The number of indexes, which is {@link #SECTION_BLOCKS} for each section
+     */
+    int slots() {
+        return keys.length * SECTION_BLOCKS;
+    }
+
+    int sectionX(int section) {
+        return (int) (keys[section] >>> Y_BITS & ((1 << XZ_BITS) - 1)) - XZ_BIAS;
+    }
+
+    int sectionY(int section) {
+        return (int) (keys[section] & ((1 << Y_BITS) - 1)) - Y_BIAS;
+    }
+
+    int sectionZ(int section) {
+        return (int) (keys[section] >> (XZ_BITS + Y_BITS));
+    }
+
+    /**
+     * Return the number of the section with the given key, or -1 if it is not in the index
+     */
+    int sectionOf(long key) {
+        final int section = Arrays.binarySearch(keys, key);
+        return section < 0 ? -1 : section;
+    }
+
+    /**
+     * Return the index of the given position, or -1 if its section is not in the index
+     */
+    int indexOf(int x, int y, int z) {
+        if(!isValid(x, y, z)) return -1;
+        final int section = sectionOf(key(x, y, z));
+        return section < 0 ? -1 : section * SECTION_BLOCKS + local(x, y, z);
+    }
+
+    <V extends MutableVec3> V positionOf(int index, V pos) {
+        final int section = index / SECTION_BLOCKS, local = index % SECTION_BLOCKS;
+        pos.set(sectionX(section) << 4 | local & 15,
+                sectionY(section) << 4 | local >> 8,
+                sectionZ(section) << 4 | local >> 4 & 15);
+        return pos;
+    }
+}
@@ -8,16 +8,23 @@ import org.bukkit.craftbukkit.util.AsynchronousExecutor;
 
 public class ChunkIOExecutor {
     static final int BASE_THREADS = 1;
-    static final int PLAYERS_PER_THREAD = 50;
+    static final int WORKER_THREADS = Math.max(BASE_THREADS, Runtime.getRuntime().availableProcessors() / 2);
+    /**
+     * How often queued chunks are re-ordered by their distance to players
+     */
+    static final int REPRIORITIZE_TICKS = 5;
 
-    private static final AsynchronousExecutor<QueuedChunk, Chunk, Runnable, RuntimeException> instance = new AsynchronousExecutor<QueuedChunk, Chunk, Runnable, RuntimeException>(new ChunkIOProvider(), BASE_THREADS);
+    private static final AsynchronousExecutor<QueuedChunk, Chunk, Runnable, RuntimeException> instance = new AsynchronousExecutor<QueuedChunk, Chunk, Runnable, RuntimeException>(new ChunkIOProvider(), BASE_THREADS, QueuedChunk.PRIORITY);
+    private static int ticks;
 
     public static Chunk syncChunkLoad(World world, ChunkRegionLoader loader, ChunkProviderServer provider, int x, int z) {
         return instance.getSkipQueue(new QueuedChunk(x, z, loader, world, provider));
     }
 
     public static void queueChunkLoad(World world, ChunkRegionLoader loader, ChunkProviderServer provider, int x, int z, Runnable runnable) {
-        instance.add(new QueuedChunk(x, z, loader, world, provider), runnable);
+        final QueuedChunk chunk = new QueuedChunk(x, z, loader, world, provider);
+        chunk.updateDistance();
+        instance.add(chunk, runnable);
     }
 
     // Abuses the fact that hashCode and equals for QueuedChunk only use world and coords
@@ -25,12 +32,17 @@ public class ChunkIOExecutor {
         instance.drop(new QueuedChunk(x, z, null, world, null), runnable);
     }
 
+    // Chunk loads are mostly for players, so an empty server only needs one thread
     public static void adjustPoolSize(int players) {
-        int size = Math.max(BASE_THREADS, (int) Math.ceil(players / PLAYERS_PER_THREAD));
-        instance.setActiveThreads(size);
+        instance.setActiveThreads(players > 0 ? WORKER_THREADS : BASE_THREADS);
     }
 
     public static void tick() {
+        if (++ticks % REPRIORITIZE_TICKS == 0) {
+            // Players move, so chunks that were queued near one may not be anymore. Loads that are
+            // no longer wanted by anyone were dropped by their PlayerChunk, and are discarded here.
+            instance.reprioritize(QueuedChunk::updateDistance);
+        }
         instance.finishActive();
     }
 }
@@ -0,0 +1,253 @@
+package org.bukkit.craftbukkit.chunkio;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import net.minecraft.server.NBTCompressedStreamTools;
+import net.minecraft.server.NBTTagCompound;
+
+/**
+ * A memory-mapped Anvil region file, compatible with {@link net.minecraft.server.RegionFile}.
+ *
+ * The whole file is mapped, so reads are a copy out of the page cache. Any number of
+ * chunks can be read at once, while writes lock the file. Compression and decompression
+ * happen outside of the lock.
+ *
+ * The file grows by {@link #GROWTH_SECTORS} sectors at a time, so it only has to be
+ * remapped occasionally. The unused sectors at the end are left zeroed, which vanilla
+ * also accepts. No file handle is kept open between writes that grow the file.
+ *
+ * Mappings are released explicitly when the file is closed or remapped, because
+ * Windows won't delete or move a file while any part of it is mapped. If the JVM
+ * doesn't allow this, the mapping lasts until the buffer is garbage collected.
+ */
+class MappedRegionFile {
+
+    static final int CHUNKS = 32;
+    static final int SECTOR_BYTES = 4096;
+    static final int HEADER_SECTORS = 2;
+    static final int GROWTH_SECTORS = 64;
+    static final int MAX_CHUNK_SECTORS = 255;
+
+    private static final byte VERSION_GZIP = 1;
+    private static final byte VERSION_DEFLATE = 2;
+
+    /**
+     * Thrown when a file is used after it has been closed, so the caller can open it again
+     */
+    static class ClosedException extends IOException {
+        ClosedException(File file) {
+            super("Region file " + file + " has been closed");
+        }
+    }
+
+    private final File file;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private MappedByteBuffer buffer;
+    private int sectors;
+    private final int[] offsets = new int[CHUNKS * CHUNKS];
+    private final BitSet used = new BitSet();
+    private boolean closed;
+
+    MappedRegionFile(File file) throws IOException {
+        this.file = file;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final long length = channel.size();
+            // Pad partial sectors, and make room for the header in new files
+            final long padded = Math.max(HEADER_SECTORS * SECTOR_BYTES, (length + SECTOR_BYTES - 1) / SECTOR_BYTES * SECTOR_BYTES);
+            if (padded > Integer.MAX_VALUE) {
+                throw new IOException("Region file " + file + " is too large");
+            }
+            map(channel, (int) (padded / SECTOR_BYTES));
+        }
+
+        used.set(0, HEADER_SECTORS);
+        for (int i = 0; i < offsets.length; i++) {
+            final int offset = buffer.getInt(i * 4);
+            final int sector = offset >>> 8, count = offset & 0xFF;
+            if (offset != 0 && sector >= HEADER_SECTORS && sector + count <= sectors) {
+                offsets[i] = offset;
+                used.set(sector, sector + count);
+            }
+        }
+    }
+
+    private void map(FileChannel channel, int sectors) throws IOException {
+        final long length = (long) sectors * SECTOR_BYTES;
+        if (channel.size() < length) {
+            channel.write(ByteBuffer.wrap(new byte[1]), length - 1);
+        }
+        final MappedByteBuffer old = this.buffer;
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+        this.sectors = sectors;
+        if (old != null) unmap(old);
+    }
+
+    /**
+     * Release the mapping now, rather than when the buffer is garbage collected.
+     * Must be called while holding the write lock, with no views of the buffer left.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            final Method getCleaner = buffer.getClass().getMethod("cleaner");
+            getCleaner.setAccessible(true);
+            final Object cleaner = getCleaner.invoke(buffer);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (Exception | LinkageError ignored) {
+            // Not allowed on this JVM, leave it to the garbage collector
+        }
+    }
+
+    private static int index(int x, int z) {
+        return (x & (CHUNKS - 1)) + (z & (CHUNKS - 1)) * CHUNKS;
+    }
+
+    /**
+     * Return the offset of the chunk's data, or -1 if it has not been saved.
+     * Must be called while holding a lock.
+     */
+    private int dataOffset(int x, int z) throws IOException {
+        if (closed) throw new ClosedException(file);
+        final int offset = offsets[index(x, z)];
+        if (offset == 0) return -1;
+
+        final int position = (offset >>> 8) * SECTOR_BYTES;
+        final int length = buffer.getInt(position);
+        final byte version = buffer.get(position + 4);
+        if (length <= 0 || length > (offset & 0xFF) * SECTOR_BYTES - 4 || (version != VERSION_GZIP && version != VERSION_DEFLATE)) {
+            return -1;
+        }
+        return position;
+    }
+
+    boolean exists(int x, int z) throws IOException {
+        lock.readLock().lock();
+        try {
+            return dataOffset(x, z) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    NBTTagCompound read(int x, int z) throws IOException {
+        final byte version;
+        final byte[] data;
+        lock.readLock().lock();
+        try {
+            final int position = dataOffset(x, z);
+            if (position < 0) return null;
+            version = buffer.get(position + 4);
+            data = new byte[buffer.getInt(position) - 1];
+            final ByteBuffer view = buffer.duplicate();
+            view.position(position + 5);
+            view.get(data);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        final InputStream in = new ByteArrayInputStream(data);
+        try (DataInputStream stream = new DataInputStream(new BufferedInputStream(version == VERSION_GZIP ? new GZIPInputStream(in) : new InflaterInputStream(in)))) {
+            return NBTCompressedStreamTools.a(stream);
+        }
+    }
+
+    void write(int x, int z, NBTTagCompound nbt) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(8192);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new DeflaterOutputStream(bytes)))) {
+            NBTCompressedStreamTools.a(nbt, (DataOutput) out);
+        }
+        final byte[] data = bytes.toByteArray();
+        final int count = (data.length + 5 + SECTOR_BYTES - 1) / SECTOR_BYTES;
+        if (count > MAX_CHUNK_SECTORS) {
+            throw new IOException("Chunk " + x + "," + z + " is too large to save (" + data.length + " bytes)");
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (closed) throw new ClosedException(file);
+
+            final int index = index(x, z);
+            final int old = offsets[index];
+            int sector = old >>> 8;
+            if (old == 0 || (old & 0xFF) != count) {
+                if (old != 0) {
+                    used.clear(sector, sector + (old & 0xFF));
+                }
+                sector = allocate(count);
+            }
+
+            final int position = sector * SECTOR_BYTES;
+            buffer.putInt(position, data.length + 1);
+            buffer.put(position + 4, VERSION_DEFLATE);
+            final ByteBuffer view = buffer.duplicate();
+            view.position(position + 5);
+            view.put(data);
+
+            offsets[index] = sector << 8 | count;
+            buffer.putInt(index * 4, offsets[index]);
+            buffer.putInt(SECTOR_BYTES + index * 4, (int) (System.currentTimeMillis() / 1000L));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find and reserve a run of free sectors, growing the file if there isn't one.
+     * Must be called while holding the write lock.
+     */
+    private int allocate(int count) throws IOException {
+        int start = used.nextClearBit(HEADER_SECTORS);
+        while (start + count <= sectors) {
+            final int end = used.nextSetBit(start);
+            if (end < 0 || end >= start + count) {
+                used.set(start, start + count);
+                return start;
+            }
+            start = used.nextClearBit(end);
+        }
+
+        // Grow by at least a whole batch, so the file is remapped as rarely as possible.
+        // Both mappings share the same pages, so nothing needs to be flushed first.
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            map(channel, Math.max(start + count, sectors + GROWTH_SECTORS));
+        }
+        used.set(start, start + count);
+        return start;
+    }
+
+    void close() {
+        lock.writeLock().lock();
+        try {
+            if (!closed) {
+                closed = true;
+                buffer.force();
+                unmap(buffer);
+                buffer = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package org.bukkit.craftbukkit.chunkio;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.minecraft.server.NBTTagCompound;
+
+/**
+ * Region storage with {@link MappedRegionFile}s.
+ *
+ * Each file has its own lock, so I/O threads only contend when they use the same file.
+ * Open files are also indexed by folder, so closing a world only touches its own files.
+ * The index itself is only locked to open or close files.
+ *
+ * Once a world is closed, its files can't be opened again until the world is
+ * opened again, so late I/O for an unloaded world fails instead of reopening them.
+ */
+public class MappedRegionStorage extends RegionStorage {
+
+    private interface Action<T> {
+        T apply(MappedRegionFile region) throws IOException;
+    }
+
+    private final Map<File, MappedRegionFile> files = new ConcurrentHashMap<File, MappedRegionFile>();
+    private final Map<File, Set<File>> folders = new ConcurrentHashMap<File, Set<File>>();
+    private final Set<File> closed = ConcurrentHashMap.newKeySet();
+
+    private static File normalize(File file) {
+        return file.toPath().toAbsolutePath().normalize().toFile();
+    }
+
+    private static File regionFile(File folder, int x, int z) {
+        return new File(new File(folder, "region"), "r." + (x >> 5) + "." + (z >> 5) + ".mca");
+    }
+
+    /**
+     * Return the open region file, opening it if necessary, or return null
+     * if it doesn't exist and create is false.
+     */
+    private MappedRegionFile open(File folder, int x, int z, boolean create) throws IOException {
+        folder = normalize(folder);
+        final File file = regionFile(folder, x, z);
+        MappedRegionFile region = files.get(file);
+        if (region != null) return region;
+
+        synchronized (this) {
+            region = files.get(file);
+            if (region != null) return region;
+
+            if (closed.contains(folder)) {
+                throw new IOException("Region storage for " + folder + " is closed, because its world was unloaded");
+            }
+
+            if (!file.exists()) {
+                if (!create) return null;
+                file.getParentFile().mkdirs();
+            }
+            region = new MappedRegionFile(file);
+            files.put(file, region);
+            Set<File> open = folders.get(folder);
+            if (open == null) {
+                folders.put(folder, open = ConcurrentHashMap.newKeySet());
+            }
+            open.add(file);
+            return region;
+        }
+    }
+
+    /**
+     * Apply the action to the given region file, opening it again if it
+     * is closed by another thread in the meantime. If its world was closed,
+     * opening it fails, so this does not retry forever.
+     */
+    private <T> T withFile(File folder, int x, int z, boolean create, T missing, Action<T> action) throws IOException {
+        for (;;) {
+            final MappedRegionFile region = open(folder, x, z, create);
+            if (region == null) return missing;
+            try {
+                return action.apply(region);
+            } catch (MappedRegionFile.ClosedException ignored) {
+                // Closed since we got it, try again
+            }
+        }
+    }
+
+    @Override
+    public NBTTagCompound read(File folder, final int x, final int z) throws IOException {
+        return withFile(folder, x, z, false, null, region -> region.read(x, z));
+    }
+
+    @Override
+    public void write(File folder, final int x, final int z, final NBTTagCompound nbt) throws IOException {
+        withFile(folder, x, z, true, null, region -> {
+            region.write(x, z, nbt);
+            return null;
+        });
+    }
+
+    @Override
+    public boolean exists(File folder, final int x, final int z) {
+        try {
+            return withFile(folder, x, z, false, false, region -> region.exists(x, z));
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized void open(File worldFolder) {
+        for (File folder : dimensionFolders(normalize(worldFolder))) {
+            closed.remove(folder);
+        }
+    }
+
+    @Override
+    public synchronized void close(File worldFolder) {
+        for (File folder : dimensionFolders(normalize(worldFolder))) {
+            closed.add(folder);
+            final Set<File> open = folders.remove(folder);
+            if (open != null) {
+                for (File file : open) {
+                    final MappedRegionFile region = files.remove(file);
+                    if (region != null) region.close();
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void closeAll() {
+        for (MappedRegionFile region : files.values()) {
+            region.close();
+        }
+        files.clear();
+        folders.clear();
+    }
+}
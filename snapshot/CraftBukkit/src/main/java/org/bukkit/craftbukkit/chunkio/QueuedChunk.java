@@ -1,17 +1,35 @@
 package org.bukkit.craftbukkit.chunkio;
 
+import java.util.Comparator;
+
 import net.minecraft.server.ChunkProviderServer;
 import net.minecraft.server.ChunkRegionLoader;
+import net.minecraft.server.EntityHuman;
+import net.minecraft.server.MathHelper;
 import net.minecraft.server.NBTTagCompound;
 import net.minecraft.server.World;
 
 class QueuedChunk {
+    /**
+     * Nearest chunks first
+     */
+    static final Comparator<QueuedChunk> PRIORITY = new Comparator<QueuedChunk>() {
+        public int compare(QueuedChunk o1, QueuedChunk o2) {
+            return Integer.compare(o1.distance, o2.distance);
+        }
+    };
+
     final int x;
     final int z;
     final ChunkRegionLoader loader;
     final World world;
     final ChunkProviderServer provider;
     NBTTagCompound compound;
+    /**
+     * Squared distance in chunks to the nearest player in the world, as of the last {@link #updateDistance()}.
+     * Only changed on the main thread, while the chunk is not in the queue.
+     */
+    int distance = Integer.MAX_VALUE;
 
     public QueuedChunk(int x, int z, ChunkRegionLoader loader, World world, ChunkProviderServer provider) {
         this.x = x;
@@ -21,6 +39,16 @@ class QueuedChunk {
         this.provider = provider;
     }
 
+    void updateDistance() {
+        int nearest = Integer.MAX_VALUE;
+        for (EntityHuman player : world.players) {
+            final long dx = (MathHelper.floor(player.locX) >> 4) - x;
+            final long dz = (MathHelper.floor(player.locZ) >> 4) - z;
+            nearest = (int) Math.min(nearest, dx * dx + dz * dz);
+        }
+        distance = nearest;
+    }
+
     @Override
     public int hashCode() {
         return (x * 31 + z * 29) ^ world.hashCode();
@@ -0,0 +1,83 @@
+package org.bukkit.craftbukkit.chunkio;
+
+import java.io.File;
+import java.io.IOException;
+
+import net.minecraft.server.NBTTagCompound;
+
+/**
+ * Reads and writes chunks in the region files of a world.
+ *
+ * All chunk I/O from {@link net.minecraft.server.ChunkRegionLoader} goes through
+ * the storage returned by {@link #get()}, which is chosen by the "settings.region-storage"
+ * option in bukkit.yml:
+ *
+ *  - vanilla: {@link net.minecraft.server.RegionFileCache}, with one lock for all files
+ *  - mapped: {@link MappedRegionStorage}, with memory-mapped files and a lock for each file
+ *
+ * Both use the standard Anvil format, so worlds can be moved between them.
+ *
+ * Methods take the folder containing a dimension's "region" folder, and absolute chunk coordinates.
+ */
+public abstract class RegionStorage {
+
+    private static volatile RegionStorage storage = new VanillaRegionStorage();
+
+    public static RegionStorage get() {
+        return storage;
+    }
+
+    public static boolean isVanilla() {
+        return storage instanceof VanillaRegionStorage;
+    }
+
+    /**
+     * Switch to the named storage. This must be done before any worlds are loaded.
+     */
+    public static void configure(String type) {
+        if ("vanilla".equalsIgnoreCase(type)) {
+            if (!isVanilla()) storage = new VanillaRegionStorage();
+        } else if ("mapped".equalsIgnoreCase(type)) {
+            if (!(storage instanceof MappedRegionStorage)) storage = new MappedRegionStorage();
+        } else {
+            throw new IllegalArgumentException("Unknown region storage '" + type + "'");
+        }
+    }
+
+    /**
+     * Read the given chunk, or return null if it has not been saved
+     */
+    public abstract NBTTagCompound read(File folder, int x, int z) throws IOException;
+
+    public abstract void write(File folder, int x, int z, NBTTagCompound nbt) throws IOException;
+
+    /**
+     * Return true if the given chunk has been saved
+     */
+    public abstract boolean exists(File folder, int x, int z);
+
+    /**
+     * Allow region files of the world in the given folder to be opened again after {@link #close(File)}.
+     * This is called before a world is loaded.
+     */
+    public void open(File worldFolder) {
+    }
+
+    /**
+     * Close all region files belonging to the world in the given folder, including its other dimensions
+     */
+    public abstract void close(File worldFolder) throws IOException;
+
+    /**
+     * Close every open region file, writing any changes to disk. This is called from
+     * {@link net.minecraft.server.RegionFileCache#a()}, when the server stops and on "save-all flush".
+     */
+    public abstract void closeAll() throws IOException;
+
+    /**
+     * Return the folders of each dimension of the world in the given folder
+     */
+    static File[] dimensionFolders(File worldFolder) {
+        return new File[] { worldFolder, new File(worldFolder, "DIM-1"), new File(worldFolder, "DIM1") };
+    }
+}
@@ -0,0 +1,68 @@
+package org.bukkit.craftbukkit.chunkio;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+
+import net.minecraft.server.NBTTagCompound;
+import net.minecraft.server.RegionFile;
+import net.minecraft.server.RegionFileCache;
+
+/**
+ * Region storage through the vanilla {@link RegionFileCache}, which is guarded by a single global lock.
+ */
+class VanillaRegionStorage extends RegionStorage {
+
+    @Override
+    public NBTTagCompound read(File folder, int x, int z) throws IOException {
+        return RegionFileCache.d(folder, x, z);
+    }
+
+    @Override
+    public void write(File folder, int x, int z, NBTTagCompound nbt) throws IOException {
+        RegionFileCache.e(folder, x, z, nbt);
+    }
+
+    @Override
+    public boolean exists(File folder, int x, int z) {
+        return RegionFileCache.a(folder, x, z).chunkExists(x & 31, z & 31);
+    }
+
+    @Override
+    public void close(File worldFolder) throws IOException {
+        final File parentFolder = worldFolder.getAbsoluteFile();
+        IOException failure = null;
+
+        // Synchronized because access to RegionFileCache.a is guarded by this lock.
+        synchronized (RegionFileCache.class) {
+            // RegionFileCache.a should be RegionFileCache.cache
+            Iterator<Map.Entry<File, RegionFile>> i = RegionFileCache.a.entrySet().iterator();
+            while(i.hasNext()) {
+                Map.Entry<File, RegionFile> entry = i.next();
+                File child = entry.getKey().getAbsoluteFile();
+                while (child != null) {
+                    if (child.equals(parentFolder)) {
+                        i.remove();
+                        try {
+                            entry.getValue().c(); // Should be RegionFile.close();
+                        } catch (IOException ex) {
+                            failure = ex;
+                        }
+                        break;
+                    }
+                    child = child.getParentFile();
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public void closeAll() {
+        RegionFileCache.a();
+    }
+}
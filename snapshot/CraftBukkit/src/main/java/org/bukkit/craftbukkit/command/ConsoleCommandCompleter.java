@@ -18,19 +18,27 @@ public class ConsoleCommandCompleter implements Completer {
         this.server = server;
     }
 
+    private List<String> tabComplete(String buffer) {
+        List<String> offers = server.getCommandMap().tabComplete(server.getConsoleSender(), buffer);
+
+        TabCompleteEvent tabEvent = new TabCompleteEvent(server.getConsoleSender(), buffer, (offers == null) ? Collections.EMPTY_LIST : offers);
+        server.getPluginManager().callEvent(tabEvent);
+
+        return tabEvent.isCancelled() ? Collections.EMPTY_LIST : tabEvent.getCompletions();
+    }
+
     public int complete(final String buffer, final int cursor, final List<CharSequence> candidates) {
         Waitable<List<String>> waitable = new Waitable<List<String>>() {
             @Override
             protected List<String> evaluate() {
-                List<String> offers = server.getCommandMap().tabComplete(server.getConsoleSender(), buffer);
-
-                TabCompleteEvent tabEvent = new TabCompleteEvent(server.getConsoleSender(), buffer, (offers == null) ? Collections.EMPTY_LIST : offers);
-                server.getPluginManager().callEvent(tabEvent);
-
-                return tabEvent.isCancelled() ? Collections.EMPTY_LIST : tabEvent.getCompletions();
+                return tabComplete(buffer);
             }
         };
-        this.server.getServer().addMainThreadTask(waitable);
+        if (server.canTabCompleteCommandAsync(buffer)) {
+            waitable.run(); // Safe to complete on this thread
+        } else {
+            this.server.getServer().addMainThreadTask(waitable);
+        }
         try {
             List<String> offers = waitable.get();
             if (offers == null) {
@@ -313,8 +313,12 @@ public class CraftEventFactory {
 
     /**
      * ItemSpawnEvent
+     *
+     * Returns null, without creating an event, if nothing is listening for it
      */
-    public static ItemSpawnEvent callItemSpawnEvent(EntityItem entityitem) {
+    public static @Nullable ItemSpawnEvent callItemSpawnEvent(EntityItem entityitem) {
+        if (!ItemSpawnEvent.getHandlerList().hasHandlers()) return null;
+
         org.bukkit.entity.Item entity = (org.bukkit.entity.Item) entityitem.getBukkitEntity();
         CraftServer craftServer = (CraftServer) entity.getServer();
 
@@ -349,6 +353,15 @@ public class CraftEventFactory {
         return event;
     }
 
+    /**
+     * Call an {@link ItemMergeEvent}, if anything is listening for it,
+     * and return true if the merge was cancelled.
+     */
+    public static boolean handleItemMergeEvent(EntityItem merging, EntityItem mergingWith) {
+        return ItemMergeEvent.getHandlerList().hasHandlers() &&
+               callItemMergeEvent(merging, mergingWith).isCancelled();
+    }
+
     /**
      * PotionSplashEvent
      */
@@ -820,7 +833,21 @@ public class CraftEventFactory {
         return event;
     }
 
-    public static NotePlayEvent callNotePlayEvent(World world, int x, int y, int z, byte instrument, byte note) {
+    /**
+     * Call a {@link BlockRedstoneEvent}, if anything is listening for it,
+     * and return the resulting current.
+     */
+    public static int handleRedstoneChange(World world, int x, int y, int z, int oldCurrent, int newCurrent) {
+        if (!BlockRedstoneEvent.getHandlerList().hasHandlers()) return newCurrent;
+        return callRedstoneChange(world, x, y, z, oldCurrent, newCurrent).getNewCurrent();
+    }
+
+    /**
+     * Returns null, without creating an event, if nothing is listening for it
+     */
+    public static @Nullable NotePlayEvent callNotePlayEvent(World world, int x, int y, int z, byte instrument, byte note) {
+        if (!NotePlayEvent.getHandlerList().hasHandlers()) return null;
+
         NotePlayEvent event = new NotePlayEvent(world.getWorld().getBlockAt(x, y, z), org.bukkit.Instrument.getByType(instrument), new org.bukkit.Note(note));
         world.getServer().getPluginManager().callEvent(event);
         return event;
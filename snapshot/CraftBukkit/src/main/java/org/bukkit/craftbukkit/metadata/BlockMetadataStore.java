@@ -2,12 +2,17 @@ package org.bukkit.craftbukkit.metadata;
 
 import org.bukkit.World;
 import org.bukkit.block.Block;
+import org.bukkit.craftbukkit.util.LongHash;
 import org.bukkit.metadata.MetadataStore;
 import org.bukkit.metadata.MetadataStoreBase;
 import org.bukkit.metadata.MetadataValue;
 import org.bukkit.plugin.Plugin;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * A BlockMetadataStore stores metadata values for {@link Block} objects.
@@ -16,6 +21,9 @@ public class BlockMetadataStore extends MetadataStoreBase<Block> implements Meta
 
     private final World owningWorld;
 
+    // Keys of the blocks with metadata in each chunk
+    private final ConcurrentMap<Long, Set<Object>> chunks = new ConcurrentHashMap<>();
+
     /**
      * Initializes a BlockMetadataStore.
      * @param owningWorld The world to which this BlockMetadataStore belongs.
@@ -24,6 +32,17 @@ public class BlockMetadataStore extends MetadataStoreBase<Block> implements Meta
         this.owningWorld = owningWorld;
     }
 
+    /**
+     * Packs the coordinates of a {@link Block} into a long, which identifies it within the owning world.
+     * @see MetadataStoreBase#subjectKey(Object)
+     * @param block the block
+     * @return the packed coordinates
+     */
+    @Override
+    protected Long subjectKey(Block block) {
+        return ((long) block.getX() << 38) | ((long) (block.getY() & 0xFFF) << 26) | (block.getZ() & 0x3FFFFFFL);
+    }
+
     /**
      * Generates a unique metadata key for a {@link Block} object based on its coordinates in the world.
      * @see MetadataStoreBase#disambiguate(Object, String)
@@ -36,6 +55,41 @@ public class BlockMetadataStore extends MetadataStoreBase<Block> implements Meta
         return Integer.toString(block.getX()) + ":" + Integer.toString(block.getY()) + ":"  + Integer.toString(block.getZ()) + ":"  + metadataKey;
     }
 
+    private static long chunkKey(Object subjectKey) {
+        final long key = (Long) subjectKey;
+        return LongHash.toLong((int) (key >> 38) >> 4, (int) (key << 38 >> 38) >> 4);
+    }
+
+    @Override
+    protected void subjectAdded(final Object subjectKey) {
+        chunks.compute(chunkKey(subjectKey), (chunkKey, blocks) -> {
+            if(blocks == null) blocks = new HashSet<>();
+            blocks.add(subjectKey);
+            return blocks;
+        });
+    }
+
+    @Override
+    protected void subjectRemoved(final Object subjectKey) {
+        chunks.computeIfPresent(chunkKey(subjectKey), (chunkKey, blocks) -> {
+            blocks.remove(subjectKey);
+            return blocks.isEmpty() ? null : blocks;
+        });
+    }
+
+    /**
+     * Removes the metadata of every {@link Block} in the given chunk. Called when the chunk is unloaded.
+     * @param chunkX the X coordinate of the chunk
+     * @param chunkZ the Z coordinate of the chunk
+     */
+    public void removeChunk(int chunkX, int chunkZ) {
+        final Set<Object> blocks = chunks.remove(LongHash.toLong(chunkX, chunkZ));
+        if(blocks == null) return;
+        for(Object block : blocks) {
+            removeSubject(block);
+        }
+    }
+
     /**
      * Retrieves the metadata for a {@link Block}, ensuring the block being asked for actually belongs to this BlockMetadataStore's
      * owning world.
@@ -4,10 +4,24 @@ import org.bukkit.entity.Entity;
 import org.bukkit.metadata.MetadataStore;
 import org.bukkit.metadata.MetadataStoreBase;
 
+import java.util.UUID;
+
 /**
  * An EntityMetadataStore stores metadata values for all {@link Entity} classes an their descendants.
  */
 public class EntityMetadataStore extends MetadataStoreBase<Entity> implements MetadataStore<Entity> {
+    /**
+     * Identifies an {@link Entity} by its UUID.
+     *
+     * @see MetadataStoreBase#subjectKey(Object)
+     * @param entity the entity
+     * @return the UUID of the entity
+     */
+    @Override
+    protected UUID subjectKey(Entity entity) {
+        return entity.getUniqueId();
+    }
+
     /**
      * Generates a unique metadata key for an {@link Entity} UUID.
      *
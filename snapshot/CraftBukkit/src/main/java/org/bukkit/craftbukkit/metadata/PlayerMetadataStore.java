@@ -8,6 +8,17 @@ import org.bukkit.metadata.MetadataStoreBase;
  * A PlayerMetadataStore stores metadata for {@link org.bukkit.entity.Player} and {@link OfflinePlayer} objects.
  */
 public class PlayerMetadataStore extends MetadataStoreBase<OfflinePlayer> implements MetadataStore<OfflinePlayer> {
+    /**
+     * Identifies {@link org.bukkit.entity.Player} and {@link OfflinePlayer} by their lower case name.
+     * @see MetadataStoreBase#subjectKey(Object)
+     * @param player the player
+     * @return the lower case name of the player
+     */
+    @Override
+    protected String subjectKey(OfflinePlayer player) {
+        return player.getName().toLowerCase(java.util.Locale.ENGLISH);
+    }
+
     /**
      * Generates a unique metadata key for {@link org.bukkit.entity.Player} and {@link OfflinePlayer} using the player
      * name.
@@ -4,10 +4,23 @@ import org.bukkit.World;
 import org.bukkit.metadata.MetadataStore;
 import org.bukkit.metadata.MetadataStoreBase;
 
+import java.util.UUID;
+
 /**
  * An WorldMetadataStore stores metadata values for {@link World} objects.
  */
 public class WorldMetadataStore extends MetadataStoreBase<World> implements MetadataStore<World> {
+    /**
+     * Identifies a {@link World} by its UID.
+     * @see MetadataStoreBase#subjectKey(Object)
+     * @param world the world
+     * @return the UID of the world
+     */
+    @Override
+    protected UUID subjectKey(World world) {
+        return world.getUID();
+    }
+
     /**
      * Generates a unique metadata key for a {@link World} object based on the world UID.
      * @see WorldMetadataStore#disambiguate(Object, String)
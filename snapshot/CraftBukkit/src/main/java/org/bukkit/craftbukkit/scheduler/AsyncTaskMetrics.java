@@ -0,0 +1,102 @@
+package org.bukkit.craftbukkit.scheduler;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics for the async tasks of a single plugin, recorded by {@link CraftScheduler}.
+ *
+ * Wait time is measured from the tick a task was due to run, until a worker thread starts
+ * running it. Tasks can wait in the plugin's queue when the plugin is at its concurrency
+ * limit, or in the executor's own queue when all worker threads are busy.
+ */
+public class AsyncTaskMetrics {
+
+    final AtomicInteger queued = new AtomicInteger();
+    final AtomicInteger running = new AtomicInteger();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder runNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maxRunNanos = new LongAccumulator(Math::max, 0);
+
+    void recordWait(long nanos) {
+        waitNanos.add(nanos);
+        maxWaitNanos.accumulate(nanos);
+    }
+
+    void recordRun(long nanos) {
+        completed.increment();
+        runNanos.add(nanos);
+        maxRunNanos.accumulate(nanos);
+    }
+
+    void recordRejected() {
+        rejected.increment();
+    }
+
+    /**
+     * Number of tasks waiting for the plugin's concurrency limit
+     */
+    public int queueDepth() {
+        return queued.get();
+    }
+
+    /**
+     * Number of tasks submitted to the executor that have not finished yet
+     */
+    public int running() {
+        return running.get();
+    }
+
+    public long completed() {
+        return completed.sum();
+    }
+
+    /**
+     * Number of task runs that were deferred or discarded because the plugin's queue was full
+     */
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    public long totalWaitNanos() {
+        return waitNanos.sum();
+    }
+
+    public long maxWaitNanos() {
+        return maxWaitNanos.get();
+    }
+
+    public long totalRunNanos() {
+        return runNanos.sum();
+    }
+
+    public long maxRunNanos() {
+        return maxRunNanos.get();
+    }
+
+    public long meanWaitNanos() {
+        final long completed = completed();
+        return completed == 0 ? 0 : totalWaitNanos() / completed;
+    }
+
+    public long meanRunNanos() {
+        final long completed = completed();
+        return completed == 0 ? 0 : totalRunNanos() / completed;
+    }
+
+    @Override
+    public String toString() {
+        return "queued=" + queueDepth() +
+               " running=" + running() +
+               " completed=" + completed() +
+               " rejected=" + rejected() +
+               " meanWait=" + meanWaitNanos() / 1000 + "us" +
+               " maxWait=" + maxWaitNanos() / 1000 + "us" +
+               " meanRun=" + meanRunNanos() / 1000 + "us" +
+               " maxRun=" + maxRunNanos() / 1000 + "us";
+    }
+}
@@ -0,0 +1,246 @@
+package org.bukkit.craftbukkit.scheduler;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Runs async tasks for a {@link CraftScheduler}, limiting the number of tasks that
+ * each plugin can have running at once.
+ *
+ * Each plugin gets its own bounded queue of tasks waiting for a free slot. When a plugin's
+ * queue is full, further tasks are either deferred to the next tick, or discarded,
+ * depending on the {@link Backpressure} policy.
+ *
+ * {@link #execute(CraftAsyncTask)} is only called from the main thread, but tasks
+ * finish on worker threads, so the per-plugin state is synchronized.
+ */
+class CraftAsyncPool {
+
+    enum Backpressure {
+        /**
+         * Leave the task in the scheduler, and try again on the next tick
+         */
+        DEFER,
+        /**
+         * Skip this run of the task, cancelling it if it does not repeat
+         */
+        DISCARD
+    }
+
+    private static final String THREAD_NAME = "Craft Scheduler Thread - ";
+
+    private final Executor executor;
+    private final int pluginLimit;
+    private final int queueSize;
+    private final Backpressure backpressure;
+    private final Map<Plugin, PluginQueue> queues = new ConcurrentHashMap<Plugin, PluginQueue>();
+
+    CraftAsyncPool(Executor executor, int pluginLimit, int queueSize, Backpressure backpressure) {
+        this.executor = executor;
+        this.pluginLimit = pluginLimit;
+        this.queueSize = queueSize;
+        this.backpressure = backpressure;
+    }
+
+    /**
+     * A pool that hands every task straight to the given executor, with no limits
+     */
+    static CraftAsyncPool unbounded(Executor executor) {
+        return new CraftAsyncPool(executor, Integer.MAX_VALUE, Integer.MAX_VALUE, Backpressure.DEFER);
+    }
+
+    /**
+     * Create a pool from the async-tasks section of bukkit.yml. The "shared" executor
+     * uses the given default executor, which is not bounded by the thread count.
+     *
+     * A per-plugin-limit or queue-size that is missing or negative means no limit,
+     * so the defaults behave like {@link #unbounded(Executor)}.
+     */
+    static CraftAsyncPool fromConfig(ConfigurationSection config, Executor sharedExecutor) {
+        final int threads = Math.max(1, config.getInt("threads", 32));
+        final int pluginLimit = Math.max(1, limit(config.getInt("per-plugin-limit", -1)));
+        final int queueSize = limit(config.getInt("queue-size", -1));
+        final Backpressure backpressure = Backpressure.valueOf(config.getString("backpressure", "defer").toUpperCase().replace('-', '_'));
+
+        final Executor executor;
+        final String type = config.getString("executor", "shared");
+        switch(type) {
+            case "shared":
+                executor = sharedExecutor;
+                break;
+            case "fixed":
+                executor = fixedExecutor(threads);
+                break;
+            case "work-stealing":
+                executor = workStealingExecutor(threads);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown async task executor '" + type + "'");
+        }
+        return new CraftAsyncPool(executor, pluginLimit, queueSize, backpressure);
+    }
+
+    private static int limit(int value) {
+        return value < 0 ? Integer.MAX_VALUE : value;
+    }
+
+    private static Executor fixedExecutor(int threads) {
+        final AtomicInteger count = new AtomicInteger();
+        final ThreadFactory factory = runnable -> {
+            final Thread thread = new Thread(runnable, THREAD_NAME + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), factory);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static Executor workStealingExecutor(int threads) {
+        return new ForkJoinPool(threads, pool -> {
+            final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName(THREAD_NAME + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, true);
+    }
+
+    Map<Plugin, AsyncTaskMetrics> metrics() {
+        final Map<Plugin, AsyncTaskMetrics> metrics = new HashMap<Plugin, AsyncTaskMetrics>();
+        for (Map.Entry<Plugin, PluginQueue> entry : queues.entrySet()) {
+            metrics.put(entry.getKey(), entry.getValue().metrics);
+        }
+        return metrics;
+    }
+
+    AsyncTaskMetrics metrics(Plugin plugin) {
+        final PluginQueue queue = queues.get(plugin);
+        return queue == null ? null : queue.metrics;
+    }
+
+    /**
+     * Start the given task, or queue it if its plugin is at its concurrency limit.
+     *
+     * @return false if the plugin's queue is full and the task should be tried again later
+     */
+    boolean execute(CraftAsyncTask task) {
+        PluginQueue queue = queues.get(task.getOwner());
+        if (queue == null) {
+            queue = queues.computeIfAbsent(task.getOwner(), PluginQueue::new);
+        }
+        return queue.offer(task);
+    }
+
+    private class PluginQueue {
+        final Plugin plugin;
+        final AsyncTaskMetrics metrics = new AsyncTaskMetrics();
+        final Queue<Job> waiting = new ArrayDeque<Job>();
+        boolean saturated;
+
+        PluginQueue(Plugin plugin) {
+            this.plugin = plugin;
+        }
+
+        boolean offer(CraftAsyncTask task) {
+            final Job job = new Job(this, task);
+            synchronized (this) {
+                if (metrics.running.get() < pluginLimit) {
+                    metrics.running.incrementAndGet();
+                } else if (waiting.size() < queueSize) {
+                    waiting.add(job);
+                    metrics.queued.incrementAndGet();
+                    return true;
+                } else {
+                    return reject(task);
+                }
+            }
+            start(job);
+            return true;
+        }
+
+        /**
+         * Called with the lock held
+         */
+        private boolean reject(CraftAsyncTask task) {
+            metrics.recordRejected();
+            if (!saturated) {
+                saturated = true;
+                plugin.getLogger().warning(
+                    "Too many async tasks are waiting to run (limit " + pluginLimit + " running, " + queueSize + " queued), " +
+                    (backpressure == Backpressure.DEFER ? "further tasks will be delayed" : "further tasks will be skipped")
+                );
+            }
+            if (backpressure == Backpressure.DEFER) {
+                return false;
+            }
+            if (task.getPeriod() < 0) {
+                task.cancel0();
+            }
+            return true;
+        }
+
+        void start(Job job) {
+            try {
+                executor.execute(job);
+            } catch (RuntimeException ex) {
+                finished();
+                throw ex;
+            }
+        }
+
+        void finished() {
+            final Job next;
+            synchronized (this) {
+                next = waiting.poll();
+                if (next == null) {
+                    metrics.running.decrementAndGet();
+                    saturated = false;
+                    return;
+                }
+                metrics.queued.decrementAndGet();
+            }
+            start(next);
+        }
+    }
+
+    private static class Job implements Runnable {
+        final PluginQueue queue;
+        final CraftAsyncTask task;
+        final long submitted = System.nanoTime();
+
+        Job(PluginQueue queue, CraftAsyncTask task) {
+            this.queue = queue;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            final long start = System.nanoTime();
+            queue.metrics.recordWait(start - submitted);
+            try {
+                task.run();
+            } catch (Throwable ex) {
+                // CraftAsyncTask logs exceptions from the plugin itself, so this is a scheduler bug
+                queue.plugin.getLogger().log(Level.SEVERE, "Exception running async task #" + task.getTaskId(), ex);
+            } finally {
+                queue.metrics.recordRun(System.nanoTime() - start);
+                queue.finished();
+            }
+        }
+    }
+}
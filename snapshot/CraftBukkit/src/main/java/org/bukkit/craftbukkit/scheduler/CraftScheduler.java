@@ -2,10 +2,9 @@ package org.bukkit.craftbukkit.scheduler;
 
 import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
-import java.util.PriorityQueue;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
@@ -27,7 +26,7 @@ import tc.oc.minecraft.api.scheduler.Async;
 /**
  * The fundamental concepts for this implementation:
  * <li>Main thread owns {@link #head} and {@link #currentTick}, but it may be read from any thread</li>
- * <li>Main thread exclusively controls {@link #temp} and {@link #pending}.
+ * <li>Main thread exclusively controls {@link #pending}.
  *     They are never to be accessed outside of the main thread; alternatives exist to prevent locking.</li>
  * <li>{@link #head} to {@link #tail} act as a linked list/queue, with 1 consumer and infinite producers.
  *     Adding to the tail is atomic and very efficient; utility method is {@link #handle(CraftTask, long)} or {@link #addTask(CraftTask)}. </li>
@@ -38,7 +37,7 @@ import tc.oc.minecraft.api.scheduler.Async;
  * <li>{@link #runners} provides a moderately up-to-date view of active tasks.
  *     If the linked head to tail set is read, all remaining tasks that were active at the time execution started will be located in runners.</li>
  * <li>Async tasks are responsible for removing themselves from runners</li>
- * <li>Sync tasks are only to be removed from runners on the main thread when coupled with a removal from pending and temp.</li>
+ * <li>Sync tasks are only to be removed from runners on the main thread when coupled with a removal from pending.</li>
  * <li>Most of the design in this scheduler relies on queuing special tasks to perform any data changes on the main thread.
  *     When executed from inside a synchronous method, the scheduler will be updated before next execution by virtue of the frequent {@link #parsePending()} calls.</li>
  */
@@ -59,19 +58,8 @@ public class CraftScheduler implements BukkitScheduler {
     /**
      * Main thread logic only
      */
-    private final PriorityQueue<CraftTask> pending = new PriorityQueue<CraftTask>(10,
-            new Comparator<CraftTask>() {
-                public int compare(final CraftTask o1, final CraftTask o2) {
-                    int value = (int) (o1.getNextRun() - o2.getNextRun());
-
-                    // If the tasks should run on the same tick they should be run FIFO
-                    return value != 0 ? value : o1.getTaskId() - o2.getTaskId();
-                }
-            });
-    /**
-     * Main thread logic only
-     */
-    private final List<CraftTask> temp = new ArrayList<CraftTask>();
+    private final CraftTaskQueue pending = new CraftTaskQueue();
+    private volatile CraftAsyncPool asyncPool;
     /**
      * These are tasks that are currently active. It's provided for 'viewing' the current state.
      */
@@ -166,31 +154,21 @@ public class CraftScheduler implements BukkitScheduler {
         if (taskId <= 0) {
             return;
         }
-        CraftTask task = runners.get(taskId);
-        if (task != null) {
-            task.cancel0();
+        final CraftTask runner = runners.get(taskId);
+        if (runner != null) {
+            runner.cancel0();
         }
-        task = new CraftTask(
+        final CraftTask task = new CraftTask(
                 new Runnable() {
                     public void run() {
-                        if (!check(CraftScheduler.this.temp)) {
-                            check(CraftScheduler.this.pending);
-                        }
-                    }
-                    private boolean check(final Iterable<CraftTask> collection) {
-                        final Iterator<CraftTask> tasks = collection.iterator();
-                        while (tasks.hasNext()) {
-                            final CraftTask task = tasks.next();
-                            if (task.getTaskId() == taskId) {
-                                task.cancel0();
-                                tasks.remove();
-                                if (task.isSync()) {
-                                    runners.remove(taskId);
-                                }
-                                return true;
+                        // Anything pending is also in runners, unless it was an async task that has already been cancelled
+                        final CraftTask task = runner != null ? runner : runners.get(taskId);
+                        if (task != null && CraftScheduler.this.pending.remove(task)) {
+                            task.cancel0();
+                            if (task.isSync()) {
+                                runners.remove(taskId);
                             }
                         }
-                        return false;
                     }});
         handle(task, 0l);
         for (CraftTask taskPending = head.getNext(); taskPending != null; taskPending = taskPending.getNext()) {
@@ -208,19 +186,10 @@ public class CraftScheduler implements BukkitScheduler {
         final CraftTask task = new CraftTask(
                 new Runnable() {
                     public void run() {
-                        check(CraftScheduler.this.pending);
-                        check(CraftScheduler.this.temp);
-                    }
-                    void check(final Iterable<CraftTask> collection) {
-                        final Iterator<CraftTask> tasks = collection.iterator();
-                        while (tasks.hasNext()) {
-                            final CraftTask task = tasks.next();
-                            if (task.getOwner().equals(plugin)) {
-                                task.cancel0();
-                                tasks.remove();
-                                if (task.isSync()) {
-                                    runners.remove(task.getTaskId());
-                                }
+                        for (final CraftTask task : CraftScheduler.this.pending.removeIf(queued -> queued.getOwner().equals(plugin))) {
+                            task.cancel0();
+                            if (task.isSync()) {
+                                runners.remove(task.getTaskId());
                             }
                         }
                     }
@@ -254,7 +223,6 @@ public class CraftScheduler implements BukkitScheduler {
                             }
                         }
                         CraftScheduler.this.pending.clear();
-                        CraftScheduler.this.temp.clear();
                     }
                 });
         handle(task, 0l);
@@ -338,10 +306,8 @@ public class CraftScheduler implements BukkitScheduler {
      */
     public void mainThreadHeartbeat(final int currentTick) {
         this.currentTick = currentTick;
-        final List<CraftTask> temp = this.temp;
         parsePending();
-        while (isReady(currentTick)) {
-            final CraftTask task = pending.remove();
+        for (CraftTask task = pending.poll(currentTick); task != null; task = pending.poll(currentTick)) {
             if (task.getPeriod() < -1l) {
                 if (task.isSync()) {
                     runners.remove(task.getTaskId(), task);
@@ -363,24 +329,56 @@ public class CraftScheduler implements BukkitScheduler {
                 }
                 parsePending();
             } else {
+                if (!asyncPool().execute((CraftAsyncTask) task)) {
+                    // The plugin has too many async tasks waiting already, try again next tick
+                    task.setNextRun(currentTick + 1);
+                    pending.add(task);
+                    continue;
+                }
                 debugTail = debugTail.setNext(new CraftAsyncDebugger(currentTick + RECENT_TICKS, task.getOwner(), task.getTaskClass()));
-                executor.execute(task);
                 // We don't need to parse pending
                 // (async tasks must live with race-conditions if they attempt to cancel between these few lines of code)
             }
             final long period = task.getPeriod(); // State consistency
             if (period > 0) {
                 task.setNextRun(currentTick + period);
-                temp.add(task);
+                pending.add(task);
             } else if (task.isSync()) {
                 runners.remove(task.getTaskId());
             }
         }
-        pending.addAll(temp);
-        temp.clear();
         debugHead = debugHead.getNextHead(currentTick);
     }
 
+    private CraftAsyncPool asyncPool() {
+        if (asyncPool == null) {
+            asyncPool = CraftAsyncPool.unbounded(executor);
+        }
+        return asyncPool;
+    }
+
+    @Inject void configureAsync(final org.bukkit.craftbukkit.CraftServer server) {
+        try {
+            asyncPool = CraftAsyncPool.fromConfig(server.getAsyncTaskSettings(), executor);
+        } catch (IllegalArgumentException e) {
+            server.getLogger().log(Level.SEVERE, "Invalid async-tasks settings in bukkit.yml, async tasks will not be limited", e);
+        }
+    }
+
+    /**
+     * Return async task statistics for every plugin that has run an async task
+     */
+    public Map<Plugin, AsyncTaskMetrics> getAsyncMetrics() {
+        return asyncPool().metrics();
+    }
+
+    /**
+     * Return async task statistics for the given plugin, or null if it has never run an async task
+     */
+    public AsyncTaskMetrics getAsyncMetrics(final Plugin plugin) {
+        return asyncPool().metrics(plugin);
+    }
+
     private void addTask(final CraftTask task) {
         final AtomicReference<CraftTask> tail = this.tail;
         CraftTask tailTask = tail.get();
@@ -429,10 +427,6 @@ public class CraftScheduler implements BukkitScheduler {
         this.head = lastTask;
     }
 
-    private boolean isReady(final int currentTick) {
-        return !pending.isEmpty() && pending.peek().getNextRun() <= currentTick;
-    }
-
     @Override
     public String toString() {
         int debugTick = currentTick;
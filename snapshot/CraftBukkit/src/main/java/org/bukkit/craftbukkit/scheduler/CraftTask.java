@@ -21,6 +21,11 @@ class CraftTask implements BukkitTask, Runnable {
     private final Runnable task;
     private final Plugin plugin;
     private final int id;
+    /**
+     * Position in {@link CraftTaskQueue}, main thread only
+     */
+    private CraftTask queuePrev, queueNext;
+    private int queueLevel = -1, queueSlot;
 
     CraftTask() {
         this(null, null, -1, -1);
@@ -77,6 +82,32 @@ class CraftTask implements BukkitTask, Runnable {
         this.next = next;
     }
 
+    CraftTask getQueuePrev() {
+        return queuePrev;
+    }
+
+    CraftTask getQueueNext() {
+        return queueNext;
+    }
+
+    void setQueueLinks(CraftTask prev, CraftTask next) {
+        this.queuePrev = prev;
+        this.queueNext = next;
+    }
+
+    int getQueueLevel() {
+        return queueLevel;
+    }
+
+    int getQueueSlot() {
+        return queueSlot;
+    }
+
+    void setQueueSlot(int level, int slot) {
+        this.queueLevel = level;
+        this.queueSlot = slot;
+    }
+
     Class<? extends Runnable> getTaskClass() {
         return task.getClass();
     }
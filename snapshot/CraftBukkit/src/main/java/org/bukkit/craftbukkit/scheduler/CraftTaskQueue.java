@@ -0,0 +1,249 @@
+package org.bukkit.craftbukkit.scheduler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+/**
+ * Pending tasks of a {@link CraftScheduler}, ordered by {@link CraftTask#getNextRun()},
+ * and then by {@link CraftTask#getTaskId()}.
+ *
+ * Tasks that are not due yet are kept in a hierarchical timing wheel, so adding or
+ * removing them takes constant time, no matter how many tasks are pending. Each level
+ * of the wheel has {@link #SLOTS} slots, and each slot of a level spans all of the
+ * slots in the level below it. When the wheel reaches the start of a slot, the tasks in
+ * that slot are moved down a level, until they reach the bottom level, where each slot
+ * is a single tick. Tasks that are too far away for the top level are kept in an
+ * overflow list, which is checked each time the top level wraps around.
+ *
+ * Tasks that are due are moved into a small priority queue, which only ever holds
+ * the tasks for the current tick, so the usual FIFO ordering is preserved.
+ *
+ * Like the rest of the scheduler's pending state, this is only to be used from the main thread.
+ */
+class CraftTaskQueue {
+
+    private static final int SLOT_BITS = 6;
+    static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    static final int LEVELS = 4;
+
+    /**
+     * Total number of ticks covered by the wheel
+     */
+    static final long SPAN = 1L << (SLOT_BITS * LEVELS);
+
+    private static final int OVERFLOW = LEVELS;
+    private static final int NONE = -1;
+    private static final int READY = -2;
+
+    private static final Comparator<CraftTask> ORDER = new Comparator<CraftTask>() {
+        public int compare(final CraftTask o1, final CraftTask o2) {
+            int value = Long.compare(o1.getNextRun(), o2.getNextRun());
+
+            // If the tasks should run on the same tick they should be run FIFO
+            return value != 0 ? value : Integer.compare(o1.getTaskId(), o2.getTaskId());
+        }
+    };
+
+    /**
+     * Heads of the doubly-linked slot lists, indexed by level and slot.
+     * The extra level holds the overflow list in slot 0.
+     */
+    private final CraftTask[][] wheel = new CraftTask[LEVELS + 1][SLOTS];
+    private final PriorityQueue<CraftTask> ready = new PriorityQueue<CraftTask>(10, ORDER);
+    private int size;
+
+    /**
+     * Last tick that has been moved into {@link #ready}
+     */
+    private long now;
+    private boolean started;
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Add a task to the queue, or move it if it is already queued
+     */
+    void add(final CraftTask task) {
+        remove(task);
+        place(task);
+        size++;
+    }
+
+    /**
+     * Remove and return the next task that is due to run at or before the given tick,
+     * or return null if there are no such tasks.
+     */
+    CraftTask poll(final long currentTick) {
+        advance(currentTick);
+        final CraftTask task = ready.peek();
+        if (task == null || task.getNextRun() > currentTick) {
+            return null;
+        }
+        ready.poll();
+        task.setQueueSlot(NONE, 0);
+        size--;
+        return task;
+    }
+
+    /**
+     * Remove the given task from the queue, and return true if it was queued
+     */
+    boolean remove(final CraftTask task) {
+        final int level = task.getQueueLevel();
+        if (level == NONE) {
+            return false;
+        } else if (level == READY) {
+            ready.remove(task);
+        } else {
+            final CraftTask prev = task.getQueuePrev();
+            final CraftTask next = task.getQueueNext();
+            if (prev == null) {
+                wheel[level][task.getQueueSlot()] = next;
+            } else {
+                prev.setQueueLinks(prev.getQueuePrev(), next);
+            }
+            if (next != null) {
+                next.setQueueLinks(prev, next.getQueueNext());
+            }
+            task.setQueueLinks(null, null);
+        }
+        task.setQueueSlot(NONE, 0);
+        size--;
+        return true;
+    }
+
+    /**
+     * Remove and return all of the tasks matching the given filter
+     */
+    List<CraftTask> removeIf(final Predicate<? super CraftTask> filter) {
+        final List<CraftTask> removed = new ArrayList<CraftTask>();
+        for (final CraftTask task : tasks()) {
+            if (filter.test(task)) {
+                remove(task);
+                removed.add(task);
+            }
+        }
+        return removed;
+    }
+
+    void clear() {
+        for (final CraftTask task : tasks()) {
+            task.setQueueSlot(NONE, 0);
+            task.setQueueLinks(null, null);
+        }
+        for (final CraftTask[] level : wheel) {
+            Arrays.fill(level, null);
+        }
+        ready.clear();
+        size = 0;
+    }
+
+    private List<CraftTask> tasks() {
+        final List<CraftTask> tasks = new ArrayList<CraftTask>(size);
+        tasks.addAll(ready);
+        for (final CraftTask[] level : wheel) {
+            for (CraftTask task : level) {
+                for (; task != null; task = task.getQueueNext()) {
+                    tasks.add(task);
+                }
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * Move all tasks due at or before the given tick into {@link #ready}
+     */
+    private void advance(final long tick) {
+        if (!started) {
+            // Nothing can be in the wheel yet, because every task is placed relative to now
+            started = true;
+            now = tick;
+            rebuild();
+            return;
+        }
+        if (tick <= now) {
+            return;
+        }
+        if (tick - now > SLOTS) {
+            // Large jumps are cheaper to handle by placing everything again
+            now = tick;
+            rebuild();
+            return;
+        }
+        while (now < tick) {
+            final long t = ++now;
+            if ((t & (SPAN - 1)) == 0) {
+                cascade(OVERFLOW, 0);
+            }
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((t & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    cascade(level, (int) (t >>> (SLOT_BITS * level)) & SLOT_MASK);
+                }
+            }
+            cascade(0, (int) t & SLOT_MASK);
+        }
+    }
+
+    /**
+     * Detach the given slot, and place all of its tasks again relative to {@link #now}
+     */
+    private void cascade(final int level, final int slot) {
+        CraftTask task = wheel[level][slot];
+        wheel[level][slot] = null;
+        while (task != null) {
+            final CraftTask next = task.getQueueNext();
+            task.setQueueLinks(null, null);
+            place(task);
+            task = next;
+        }
+    }
+
+    private void rebuild() {
+        final List<CraftTask> tasks = tasks();
+        for (final CraftTask[] level : wheel) {
+            Arrays.fill(level, null);
+        }
+        ready.clear();
+        for (final CraftTask task : tasks) {
+            task.setQueueLinks(null, null);
+            place(task);
+        }
+    }
+
+    private void place(final CraftTask task) {
+        final long nextRun = task.getNextRun();
+        final long delta = nextRun - now;
+        if (!started || delta <= 0) {
+            // Tasks added before the first tick are placed properly by the first call to advance
+            task.setQueueSlot(READY, 0);
+            ready.add(task);
+            return;
+        }
+
+        int level = 0;
+        while (level < LEVELS && delta >= (1L << (SLOT_BITS * (level + 1)))) {
+            level++;
+        }
+        final int slot = level == OVERFLOW ? 0 : (int) (nextRun >>> (SLOT_BITS * level)) & SLOT_MASK;
+
+        final CraftTask head = wheel[level][slot];
+        task.setQueueSlot(level, slot);
+        task.setQueueLinks(null, head);
+        if (head != null) {
+            head.setQueueLinks(task, head.getQueueNext());
+        }
+        wheel[level][slot] = task;
+    }
+}
@@ -1,16 +1,21 @@
 package org.bukkit.craftbukkit.util;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.Consumer;
 
 import org.apache.commons.lang.Validate;
 
@@ -19,6 +24,9 @@ import org.apache.commons.lang.Validate;
  * <li \> Stage 1 creates the object from a parameter, and is usually called asynchronously.
  * <li \> Stage 2 takes the parameter and object from stage 1 and does any synchronous processing to prepare it.
  * <li \> Stage 3 takes the parameter and object from stage 1, as well as a callback that was registered, and performs any synchronous calculations.
+ * <p>
+ * Queued parameters are handled in the order they were added, unless a priority is given, in which case they are
+ * handled in priority order, and then in the order they were added. See {@link #reprioritize(Consumer)}.
  *
  * @param <P> The type of parameter you provide to make the object that will be created. It should implement {@link Object#hashCode()} and {@link Object#equals(Object)} if you want to get the value early.
  * @param <T> The type of object you provide. This is created in stage 1, and passed to stage 2, 3, and returned if get() is called.
@@ -73,6 +81,7 @@ public final class AsynchronousExecutor<P, T, C, E extends Throwable> {
 
         volatile int state = PENDING;
         final P parameter;
+        final long sequence = nextSequence++;
         T object;
         final List<C> callbacks = new LinkedList<C>();
         E t = null;
@@ -218,17 +227,43 @@ public final class AsynchronousExecutor<P, T, C, E extends Throwable> {
     final Queue<Task> finished = new ConcurrentLinkedQueue<Task>();
     final Map<P, Task> tasks = new HashMap<P, Task>();
     final ThreadPoolExecutor pool;
+    final boolean prioritized;
+    long nextSequence;
 
     /**
      * Uses a thread pool to pass executions to the provider.
      * @see AsynchronousExecutor
      */
     public AsynchronousExecutor(final CallBackProvider<P, T, C, E> provider, final int coreSize) {
+        this(provider, coreSize, null);
+    }
+
+    /**
+     * Uses a thread pool to pass executions to the provider, taking queued parameters in the given order.
+     * @see AsynchronousExecutor
+     */
+    public AsynchronousExecutor(final CallBackProvider<P, T, C, E> provider, final int coreSize, final Comparator<? super P> priority) {
         Validate.notNull(provider, "Provider cannot be null");
         this.provider = provider;
+        this.prioritized = priority != null;
+
+        final BlockingQueue<Runnable> queue;
+        if (priority == null) {
+            queue = new LinkedBlockingQueue<Runnable>();
+        } else {
+            // Only tasks are ever queued
+            queue = new PriorityBlockingQueue<Runnable>(11, new Comparator<Runnable>() {
+                @SuppressWarnings("unchecked")
+                public int compare(Runnable o1, Runnable o2) {
+                    final Task t1 = (Task) o1, t2 = (Task) o2;
+                    final int value = priority.compare(t1.parameter, t2.parameter);
+                    return value != 0 ? value : Long.compare(t1.sequence, t2.sequence);
+                }
+            });
+        }
 
         // We have an unbound queue size so do not need a max thread size
-        pool = new ThreadPoolExecutor(coreSize, Integer.MAX_VALUE, 60l, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), provider);
+        pool = new ThreadPoolExecutor(coreSize, Integer.MAX_VALUE, 60l, TimeUnit.SECONDS, queue, provider);
     }
 
     /**
@@ -351,4 +386,25 @@ public final class AsynchronousExecutor<P, T, C, E extends Throwable> {
     public void setActiveThreads(final int coreSize) {
         pool.setCorePoolSize(coreSize);
     }
+
+    /**
+     * Updates the priority of every parameter still waiting in the queue, by passing it to the given function,
+     * and discards any that have been dropped. Parameters that are already being processed are not affected.
+     * <p>
+     * This should always be synchronous, and only used when a priority was given.
+     */
+    @SuppressWarnings("unchecked")
+    public void reprioritize(final Consumer<? super P> update) {
+        Validate.isTrue(prioritized, "Executor has no priority");
+        final BlockingQueue<Runnable> queue = pool.getQueue();
+        final List<Runnable> queued = new ArrayList<Runnable>(queue.size());
+        queue.drainTo(queued);
+        for (Runnable runnable : queued) {
+            final Task task = (Task) runnable;
+            if (task.state == Task.PENDING) {
+                update.accept(task.parameter);
+                queue.add(task);
+            }
+        }
+    }
 }
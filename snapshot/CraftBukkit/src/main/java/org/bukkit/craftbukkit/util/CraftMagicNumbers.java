@@ -110,13 +110,49 @@ public final class CraftMagicNumbers implements UnsafeValues {
         return nms.build();
     }
 
-    public static MaterialData nmsBlockStateToMaterialData(IBlockData data) {
+    private static MaterialData createMaterialData(IBlockData data) {
         final Block block = data.getBlock();
         final int legacyId = getId(block);
         final byte legacyData = (byte) block.toLegacyData(data);
         final Material material = Material.getMaterial(legacyId);
-        return material == null ? new MaterialData(legacyId, legacyData)
-                                : material.getNewData(legacyData);
+        return material == null ? new MaterialData(legacyId, legacyData).immutable()
+                                : material.getImmutableData(legacyData);
+    }
+
+    /**
+     * Shared MaterialData for every block state, indexed by state ID.
+     * Built the first time it is needed, after the block registry is complete.
+     */
+    private static class MaterialDataTable {
+        static final MaterialData[] BY_STATE_ID = new MaterialData[4096 << 4];
+
+        static {
+            for(int id = 0; id < BY_STATE_ID.length; id++) {
+                final IBlockData data = Block.REGISTRY_ID.fromId(id);
+                if(data != null) {
+                    BY_STATE_ID[id] = createMaterialData(data);
+                }
+            }
+        }
+    }
+
+    /**
+     * Return a shared, immutable MaterialData for the given block state
+     */
+    public static MaterialData nmsBlockStateToImmutableMaterialData(IBlockData data) {
+        final int id = Block.REGISTRY_ID.getId(data);
+        if(id >= 0 && id < MaterialDataTable.BY_STATE_ID.length) {
+            final MaterialData material = MaterialDataTable.BY_STATE_ID[id];
+            if(material != null) return material;
+        }
+        return createMaterialData(data);
+    }
+
+    /**
+     * Return a new, mutable MaterialData for the given block state
+     */
+    public static MaterialData nmsBlockStateToMaterialData(IBlockData data) {
+        return nmsBlockStateToImmutableMaterialData(data).clone();
     }
 
     @Override
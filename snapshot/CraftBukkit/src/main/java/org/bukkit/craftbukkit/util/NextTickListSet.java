@@ -0,0 +1,168 @@
+package org.bukkit.craftbukkit.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.minecraft.server.BlockPosition;
+import net.minecraft.server.ChunkCoordIntPair;
+import net.minecraft.server.NextTickListEntry;
+import net.minecraft.server.StructureBoundingBox;
+
+/**
+ * The scheduled block ticks of a world, which are also indexed by chunk, so the ticks
+ * in an area can be found without searching every tick in the world.
+ */
+public class NextTickListSet extends HashTreeSet<NextTickListEntry> {
+
+    private final Map<Long, Set<NextTickListEntry>> chunks = new HashMap<Long, Set<NextTickListEntry>>();
+
+    private static long chunkKey(NextTickListEntry entry) {
+        return ChunkCoordIntPair.a(entry.a.getX() >> 4, entry.a.getZ() >> 4);
+    }
+
+    private void index(NextTickListEntry entry) {
+        final long key = chunkKey(entry);
+        Set<NextTickListEntry> entries = chunks.get(key);
+        if (entries == null) {
+            chunks.put(key, entries = new HashSet<NextTickListEntry>());
+        }
+        entries.add(entry);
+    }
+
+    private void unindex(Object o) {
+        if (!(o instanceof NextTickListEntry)) return;
+        final long key = chunkKey((NextTickListEntry) o);
+        final Set<NextTickListEntry> entries = chunks.get(key);
+        if (entries != null && entries.remove(o) && entries.isEmpty()) {
+            chunks.remove(key);
+        }
+    }
+
+    /**
+     * Test if the entry is inside the given box, using the same bounds as
+     * {@link net.minecraft.server.WorldServer#a(StructureBoundingBox, boolean)}
+     */
+    public static boolean contains(StructureBoundingBox box, NextTickListEntry entry) {
+        final BlockPosition pos = entry.a;
+        return pos.getX() >= box.a && pos.getX() < box.d && pos.getZ() >= box.c && pos.getZ() < box.f;
+    }
+
+    /**
+     * Return a new list of the entries inside the given box, in no particular order.
+     * Only the entries in chunks overlapping the box are visited.
+     */
+    public List<NextTickListEntry> getEntries(StructureBoundingBox box) {
+        final List<NextTickListEntry> list = new ArrayList<NextTickListEntry>();
+        if (box.a >= box.d || box.c >= box.f) {
+            return list;
+        }
+
+        final int minX = box.a >> 4, minZ = box.c >> 4;
+        final int maxX = (box.d - 1) >> 4, maxZ = (box.f - 1) >> 4;
+
+        if ((long) (maxX - minX + 1) * (maxZ - minZ + 1) <= chunks.size()) {
+            for (int x = minX; x <= maxX; x++) {
+                for (int z = minZ; z <= maxZ; z++) {
+                    final Set<NextTickListEntry> entries = chunks.get(ChunkCoordIntPair.a(x, z));
+                    if (entries != null) {
+                        addEntries(list, entries, box);
+                    }
+                }
+            }
+        } else {
+            // The box covers more chunks than there are chunks with ticks
+            for (Set<NextTickListEntry> entries : chunks.values()) {
+                addEntries(list, entries, box);
+            }
+        }
+        return list;
+    }
+
+    private static void addEntries(List<NextTickListEntry> list, Set<NextTickListEntry> entries, StructureBoundingBox box) {
+        for (NextTickListEntry entry : entries) {
+            if (contains(box, entry)) {
+                list.add(entry);
+            }
+        }
+    }
+
+    @Override
+    public boolean add(NextTickListEntry entry) {
+        index(entry);
+        return super.add(entry);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        unindex(o);
+        return super.remove(o);
+    }
+
+    @Override
+    public Iterator<NextTickListEntry> iterator() {
+        final Iterator<NextTickListEntry> iterator = super.iterator();
+        return new Iterator<NextTickListEntry>() {
+
+            private NextTickListEntry last;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public NextTickListEntry next() {
+                return last = iterator.next();
+            }
+
+            @Override
+            public void remove() {
+                iterator.remove();
+                unindex(last);
+                last = null;
+            }
+        };
+    }
+
+    @Override
+    public boolean addAll(Collection c) {
+        boolean changed = false;
+        for (Object o : c) {
+            changed |= add((NextTickListEntry) o);
+        }
+        return changed;
+    }
+
+    @Override
+    public boolean removeAll(Collection c) {
+        boolean changed = false;
+        for (Object o : c) {
+            changed |= remove(o);
+        }
+        return changed;
+    }
+
+    @Override
+    public boolean retainAll(Collection c) {
+        boolean changed = false;
+        for (Iterator<NextTickListEntry> iterator = iterator(); iterator.hasNext();) {
+            if (!c.contains(iterator.next())) {
+                iterator.remove();
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        chunks.clear();
+    }
+}
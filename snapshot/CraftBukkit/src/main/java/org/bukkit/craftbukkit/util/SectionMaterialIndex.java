@@ -0,0 +1,124 @@
+package org.bukkit.craftbukkit.util;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import net.minecraft.server.Block;
+import net.minecraft.server.ChunkSection;
+
+/**
+ * The number of blocks of each type in a {@link ChunkSection}, and a bitmap of where they are.
+ *
+ * A section builds its index the first time it is asked for one, and keeps it
+ * up to date from {@link ChunkSection#setType}. Sections that are never searched
+ * by material never have an index. Each block type costs a 512 byte bitmap, so a
+ * section only keeps an index of up to {@link #MAX_KEPT_TYPES} types, and builds
+ * a new one for every search otherwise.
+ *
+ * Bit (y << 8 | z << 4 | x) of a bitmap is set if the block at those section
+ * coordinates is of that type. This is the same layout used by the cells of a
+ * bit {@link org.bukkit.region.BlockRegion}.
+ */
+public class SectionMaterialIndex {
+
+    public static final int WORDS = 64;
+    public static final int MAX_KEPT_TYPES = 16;
+
+    private static class Entry {
+        final long[] bits = new long[WORDS];
+        int count;
+    }
+
+    private final Map<Block, Entry> entries = new IdentityHashMap<>();
+
+    public SectionMaterialIndex(ChunkSection section) {
+        for(int y = 0; y < 16; y++) {
+            for(int z = 0; z < 16; z++) {
+                for(int x = 0; x < 16; x++) {
+                    add(section.getType(x, y, z).getBlock(), bit(x, y, z));
+                }
+            }
+        }
+    }
+
+    private static int bit(int x, int y, int z) {
+        return y << 8 | z << 4 | x;
+    }
+
+    private void add(Block block, int bit) {
+        Entry entry = entries.get(block);
+        if(entry == null) {
+            entries.put(block, entry = new Entry());
+        }
+        entry.bits[bit >> 6] |= 1L << bit;
+        entry.count++;
+    }
+
+    private void remove(Block block, int bit) {
+        final Entry entry = entries.get(block);
+        if(entry == null) return;
+        entry.bits[bit >> 6] &= ~(1L << bit);
+        if(--entry.count <= 0) {
+            entries.remove(block);
+        }
+    }
+
+    /**
+     * Return true if the index is small enough for its section to keep
+     */
+    public boolean isWorthKeeping() {
+        return entries.size() <= MAX_KEPT_TYPES;
+    }
+
+    /**
+     * Called by the section when the block at the given section coordinates changes
+     *
+     * @return false if the index is no longer worth keeping
+     */
+    public boolean update(int x, int y, int z, Block from, Block to) {
+        if(from != to) {
+            final int bit = bit(x, y, z);
+            remove(from, bit);
+            add(to, bit);
+        }
+        return isWorthKeeping();
+    }
+
+    public boolean contains(Block block) {
+        return entries.containsKey(block);
+    }
+
+    public int count(Block block) {
+        final Entry entry = entries.get(block);
+        return entry == null ? 0 : entry.count;
+    }
+
+    /**
+     * Return a copy of the bitmap for the given block type, or null if there are none in the section
+     */
+    public long[] bitmap(Block block) {
+        final Entry entry = entries.get(block);
+        return entry == null ? null : entry.bits.clone();
+    }
+
+    /**
+     * Call the given visitor with the section coordinates of every block of the given type.
+     * The bitmap is copied first, so the visitor can change blocks in the section.
+     */
+    public void forEach(Block block, Visitor visitor) {
+        final long[] bits = bitmap(block);
+        if(bits == null) return;
+        for(int word = 0; word < WORDS; word++) {
+            long w = bits[word];
+            while(w != 0) {
+                final int bit = word << 6 | Long.numberOfTrailingZeros(w);
+                visitor.visit(bit & 15, bit >> 8, (bit >> 4) & 15);
+                w &= w - 1;
+            }
+        }
+    }
+
+    public interface Visitor {
+        void visit(int x, int y, int z);
+    }
+}
@@ -0,0 +1,135 @@
+package org.bukkit.craftbukkit.block;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import com.google.common.collect.ImmutableMap;
+import net.minecraft.server.BlockPosition;
+import net.minecraft.server.Blocks;
+import net.minecraft.server.IBlockData;
+import net.minecraft.server.NBTTagCompound;
+import net.minecraft.server.NextTickListEntry;
+import org.bukkit.Material;
+import org.bukkit.support.AbstractTestingBase;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BlockImageFileTest extends AbstractTestingBase {
+
+    private static final short A = CraftBlockImage.ABSENT;
+
+    private static final IBlockData[] PALETTE = { Blocks.STONE.getBlockData(), Blocks.CHEST.getBlockData() };
+
+    private static short[] page() {
+        final short[] page = new short[SectionIndex.SECTION_BLOCKS];
+        Arrays.fill(page, A);
+        return page;
+    }
+
+    private static CraftBlockImage image() {
+        // 3x2x2 box at (10, 20, 30), by z, then y, then x
+        final short[] box = { 0, 0, 0,  0, A, A,
+                              A, A, 1,  0, 0, 0 };
+        final short[] page = page();
+        for(int i = 0; i < box.length; i++) {
+            page[SectionIndex.local(10 + i % 3, 20 + i / 3 % 2, 30 + i / 6)] = box[i];
+        }
+        final SectionIndex sections = new SectionIndex(new long[]{ SectionIndex.key(10, 20, 30) });
+
+        final NBTTagCompound chest = new NBTTagCompound();
+        chest.setString("CustomName", "Loot");
+
+        final NextTickListEntry tick = new NextTickListEntry(new BlockPosition(10, 20, 30), Blocks.STONE);
+        tick.a(105L);
+        tick.a(2);
+
+        return new CraftBlockImage(10, 20, 30, 3, 2, 2, PALETTE, sections, new short[][]{ page }, 8,
+                                   ImmutableMap.of(sections.indexOf(12, 20, 31), chest),
+                                   new int[]{ sections.indexOf(10, 20, 30) }, new NextTickListEntry[]{ tick }, 100L);
+    }
+
+    /**
+     * Two blocks, millions of blocks apart
+     */
+    private static CraftBlockImage sparseImage() {
+        final long[] keys = { SectionIndex.key(-1000000, 64, 0), SectionIndex.key(1000000, 64, 1000000) };
+        final short[][] pages = { page(), page() };
+        pages[0][SectionIndex.local(-1000000, 64, 0)] = 0;
+        pages[1][SectionIndex.local(1000000, 64, 1000000)] = 1;
+
+        return new CraftBlockImage(-1000000, 64, 0, 2000001, 1, 1000001, PALETTE, new SectionIndex(keys), pages, 2,
+                                   ImmutableMap.<Integer, NBTTagCompound>of(), new int[0], new NextTickListEntry[0], 0L);
+    }
+
+    private static File tempFile() throws Exception {
+        final File file = Files.createTempFile("image", ".sbki").toFile();
+        file.deleteOnExit();
+        return file;
+    }
+
+    @Test
+    public void imagesCanBeReadBack() throws Exception {
+        final CraftBlockImage image = image();
+        final File file = tempFile();
+        CraftBlockImage.save(image, file);
+
+        final CraftBlockImage read = BlockImageFile.read(file);
+        assertEquals(10, read.minX);
+        assertEquals(20, read.minY);
+        assertEquals(30, read.minZ);
+        assertEquals(8, read.size);
+        assertArrayEquals(image.palette, read.palette);
+        assertEquals(1, read.sections.size());
+        assertEquals(image.sections.key(0), read.sections.key(0));
+        assertArrayEquals(image.pages, read.pages);
+        assertEquals("Loot", read.tileEntities.get(image.sections.indexOf(12, 20, 31)).getString("CustomName"));
+        assertArrayEquals(image.tickIndexes, read.tickIndexes);
+        assertSame(Blocks.STONE, read.ticks[0].a());
+        assertEquals(105L, read.ticks[0].b);
+        assertEquals(2, read.ticks[0].c);
+        assertEquals(100L, read.tickTime);
+    }
+
+    @Test
+    public void mappedImagesMatchTheOriginal() throws Exception {
+        final CraftBlockImage image = image();
+        final File file = tempFile();
+        CraftBlockImage.save(image, file);
+
+        final MappedBlockImage mapped = new MappedBlockImage(file);
+        assertEquals(image.region(), mapped.region());
+        assertEquals(8, mapped.region().size());
+        assertEquals(Material.CHEST, mapped.materialAt(new BlockPosition(12, 20, 31)).getItemType());
+        assertEquals(Material.STONE, mapped.materialAt(new BlockPosition(10, 21, 30)).getItemType());
+        assertNull(mapped.materialAt(new BlockPosition(11, 21, 30)));
+        assertNull(mapped.materialAt(new BlockPosition(9, 20, 30)));
+
+        // Saving a mapped image copies its file
+        final File copy = tempFile();
+        CraftBlockImage.save(mapped, copy);
+        assertArrayEquals(Files.readAllBytes(file.toPath()), Files.readAllBytes(copy.toPath()));
+    }
+
+    @Test
+    public void sparseImagesOnlyStoreTheirSections() throws Exception {
+        final CraftBlockImage image = sparseImage();
+        final File file = tempFile();
+        CraftBlockImage.save(image, file);
+
+        // The bounding box has trillions of positions, but only two sections are stored
+        assertTrue(file.length() < 1000);
+        final CraftBlockImage read = BlockImageFile.read(file);
+        assertEquals(2, read.pages.length);
+        assertArrayEquals(image.pages, read.pages);
+        assertEquals(image.region(), read.region());
+
+        final MappedBlockImage mapped = new MappedBlockImage(file);
+        assertEquals(image.region(), mapped.region());
+        assertEquals(2, mapped.region().size());
+        assertEquals(Material.STONE, mapped.materialAt(new BlockPosition(-1000000, 64, 0)).getItemType());
+        assertEquals(Material.CHEST, mapped.materialAt(new BlockPosition(1000000, 64, 1000000)).getItemType());
+        assertNull(mapped.materialAt(new BlockPosition(0, 64, 0)));
+    }
+}
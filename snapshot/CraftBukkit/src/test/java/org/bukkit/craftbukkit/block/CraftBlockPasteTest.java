@@ -0,0 +1,197 @@
+package org.bukkit.craftbukkit.block;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+import net.minecraft.server.Block;
+import net.minecraft.server.BlockPosition;
+import net.minecraft.server.Blocks;
+import net.minecraft.server.IBlockData;
+import net.minecraft.server.NBTTagCompound;
+import org.bukkit.support.AbstractTestingBase;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CraftBlockPasteTest extends AbstractTestingBase {
+
+    private static final int COLUMNS = 3;
+
+    private static final IBlockData[] PALETTE = {
+        Blocks.STONE.getBlockData(), Blocks.DIRT.getBlockData(), Blocks.CHEST.getBlockData()
+    };
+
+    /**
+     * Remembers the final state of everything written to it
+     */
+    private static class RecordingTarget implements CraftBlockPaste.Target {
+        final Map<BlockPosition, IBlockData> blocks = new HashMap<>();
+        final Map<BlockPosition, String> tileEntities = new HashMap<>();
+        final Set<BlockPosition> edges = new HashSet<>();
+        final Set<String> ticks = new HashSet<>();
+        boolean loaded = true;
+        int writes;
+
+        @Override
+        public boolean isLoaded() {
+            return loaded;
+        }
+
+        @Override
+        public int writeBlocks(Iterable<BlockBatch.Chunk> chunks, IntFunction<IBlockData> blockData) {
+            int changed = 0;
+            for(BlockBatch.Chunk chunk : chunks) {
+                for(BlockBatch.Section section : chunk.sections) {
+                    if(section == null) continue;
+                    for(int i = 0; i < section.size; i++) {
+                        final BlockPosition pos = new BlockPosition(chunk.x << 4 | BlockBatch.Section.x(section.blocks[i]),
+                                                                    section.y << 4 | BlockBatch.Section.y(section.blocks[i]),
+                                                                    chunk.z << 4 | BlockBatch.Section.z(section.blocks[i]));
+                        if(blocks.put(pos, blockData.apply(section.values[i])) != blockData.apply(section.values[i])) {
+                            changed++;
+                        }
+                        writes++;
+                    }
+                }
+            }
+            return changed;
+        }
+
+        @Override
+        public void pasteTileEntity(BlockPosition pos, NBTTagCompound tileEntityData) {
+            assertNotNull("tile entity pasted before its block", blocks.get(pos));
+            tileEntities.put(pos, tileEntityData.getString("Id"));
+        }
+
+        @Override
+        public void updateEdge(BlockPosition pos) {
+            edges.add(pos);
+        }
+
+        @Override
+        public void scheduleTick(BlockPosition pos, Block block, int delay, int priority) {
+            ticks.add(pos + " " + Block.getId(block) + " " + delay + " " + priority);
+        }
+    }
+
+    /**
+     * Add some random contents in the given column of chunks
+     */
+    private static void fill(CraftBlockPaste paste, int column) {
+        final Random random = new Random(column);
+        for(int i = 0; i < 500; i++) {
+            paste.addBlock(column << 4 | random.nextInt(16), random.nextInt(40), random.nextInt(48), random.nextInt(PALETTE.length));
+        }
+
+        for(int i = 0; i < 10; i++) {
+            final BlockPosition pos = new BlockPosition(column << 4 | random.nextInt(16), random.nextInt(40), random.nextInt(48));
+            paste.addBlock(pos.getX(), pos.getY(), pos.getZ(), 2);
+
+            final NBTTagCompound tileEntity = new NBTTagCompound();
+            tileEntity.setString("Id", column + "/" + i);
+            paste.addTileEntity(pos, tileEntity);
+            paste.addEdge(pos.up());
+            paste.addTick(pos, Blocks.STONE, random.nextInt(20), random.nextInt(3));
+        }
+    }
+
+    private static CraftBlockPaste paste(CraftBlockPaste.Target target) {
+        final CraftBlockPaste paste = new CraftBlockPaste(null, target, PALETTE, 0, null);
+        for(int column = 0; column < COLUMNS; column++) {
+            fill(paste, column);
+        }
+        return paste;
+    }
+
+    private static void assertSameWrites(RecordingTarget expected, RecordingTarget actual) {
+        assertEquals(expected.blocks, actual.blocks);
+        assertEquals(expected.tileEntities, actual.tileEntities);
+        assertEquals(expected.edges, actual.edges);
+        assertEquals(expected.ticks, actual.ticks);
+    }
+
+    @Test
+    public void incrementalPastesMatchPastingAll() throws Exception {
+        final RecordingTarget all = new RecordingTarget();
+        final CraftBlockPaste allPaste = paste(all);
+        allPaste.pasteAll();
+
+        final RecordingTarget incremental = new RecordingTarget();
+        final CraftBlockPaste incrementalPaste = paste(incremental);
+        incrementalPaste.setBudget(100, Long.MAX_VALUE);
+
+        int ticks = 1;
+        while(!incrementalPaste.tick()) {
+            assertFalse(incrementalPaste.getCompletion().isDone());
+            assertTrue(incrementalPaste.getBlocksPasted() < incrementalPaste.getBlocksTotal());
+            ticks++;
+        }
+
+        assertTrue(ticks > 1);
+        assertFalse(all.blocks.isEmpty());
+        assertEquals(COLUMNS * 10, all.tileEntities.size());
+        assertSameWrites(all, incremental);
+        assertEquals(allPaste.getCompletion().get(), incrementalPaste.getCompletion().get());
+        assertEquals(allPaste.getBlocksTotal(), incrementalPaste.getBlocksPasted());
+    }
+
+    @Test
+    public void pastesFromASourceMatchPastingAll() throws Exception {
+        final RecordingTarget all = new RecordingTarget();
+        final CraftBlockPaste allPaste = paste(all);
+        allPaste.pasteAll();
+
+        final RecordingTarget parts = new RecordingTarget();
+        final CraftBlockPaste partsPaste = new CraftBlockPaste(null, parts, PALETTE, allPaste.getBlocksTotal(), new CraftBlockPaste.Source() {
+            int column;
+
+            @Override
+            public boolean next(CraftBlockPaste paste) {
+                if(column == COLUMNS) return false;
+                fill(paste, column++);
+                return true;
+            }
+        });
+        partsPaste.setBudget(100, Long.MAX_VALUE);
+        while(!partsPaste.tick());
+
+        assertSameWrites(all, parts);
+        assertEquals(allPaste.getCompletion().get(), partsPaste.getCompletion().get());
+        assertEquals(allPaste.getBlocksTotal(), partsPaste.getBlocksPasted());
+    }
+
+    @Test
+    public void cancelledPastesStopWriting() {
+        final RecordingTarget target = new RecordingTarget();
+        final CraftBlockPaste paste = paste(target);
+        paste.setBudget(100, Long.MAX_VALUE);
+
+        assertFalse(paste.tick());
+        final int writes = target.writes;
+        assertTrue(writes > 0);
+
+        assertTrue(paste.cancel());
+        assertTrue(paste.tick());
+        assertEquals(writes, target.writes);
+        assertTrue(paste.getCompletion().isCancelled());
+    }
+
+    @Test
+    public void pastesStopWhenTheTargetUnloads() {
+        final RecordingTarget target = new RecordingTarget();
+        final CraftBlockPaste paste = paste(target);
+        paste.setBudget(100, Long.MAX_VALUE);
+
+        assertFalse(paste.tick());
+        final int writes = target.writes;
+
+        target.loaded = false;
+        assertTrue(paste.tick());
+        assertEquals(writes, target.writes);
+        assertTrue(paste.getCompletion().isCancelled());
+    }
+}
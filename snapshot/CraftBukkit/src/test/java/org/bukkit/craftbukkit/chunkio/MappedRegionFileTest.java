@@ -0,0 +1,89 @@
+package org.bukkit.craftbukkit.chunkio;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Random;
+
+import net.minecraft.server.NBTTagCompound;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MappedRegionFileTest {
+
+    private static NBTTagCompound chunk(int id, int size) {
+        final NBTTagCompound nbt = new NBTTagCompound();
+        nbt.setInt("id", id);
+        // Random bytes don't compress, so the chunk takes about this much space on disk
+        final byte[] data = new byte[size];
+        new Random(id).nextBytes(data);
+        nbt.setByteArray("data", data);
+        return nbt;
+    }
+
+    private static File tempFile() throws Exception {
+        final File folder = Files.createTempDirectory("region").toFile();
+        folder.deleteOnExit();
+        final File file = new File(folder, "r.0.0.mca");
+        file.deleteOnExit();
+        return file;
+    }
+
+    @Test
+    public void chunksCanBeReadBack() throws Exception {
+        final File file = tempFile();
+        final MappedRegionFile region = new MappedRegionFile(file);
+        assertFalse(region.exists(3, 4));
+        assertNull(region.read(3, 4));
+
+        region.write(3, 4, chunk(1, 100));
+        region.write(31, 31, chunk(2, 10000));
+        assertTrue(region.exists(3, 4));
+        assertEquals(1, region.read(3, 4).getInt("id"));
+        assertEquals(2, region.read(31, 31).getInt("id"));
+        region.close();
+
+        final MappedRegionFile reopened = new MappedRegionFile(file);
+        assertEquals(1, reopened.read(3, 4).getInt("id"));
+        assertArrayEquals(chunk(2, 10000).getByteArray("data"), reopened.read(31, 31).getByteArray("data"));
+        assertFalse(reopened.exists(0, 0));
+        reopened.close();
+    }
+
+    @Test
+    public void resizedChunksAreMoved() throws Exception {
+        final MappedRegionFile region = new MappedRegionFile(tempFile());
+        region.write(0, 0, chunk(1, 100));
+        region.write(1, 0, chunk(2, 100));
+        region.write(0, 0, chunk(3, 20000));
+        region.write(1, 0, chunk(4, 100));
+
+        assertEquals(3, region.read(0, 0).getInt("id"));
+        assertEquals(4, region.read(1, 0).getInt("id"));
+        region.close();
+    }
+
+    @Test
+    public void fileGrowsInBatches() throws Exception {
+        final File file = tempFile();
+        final MappedRegionFile region = new MappedRegionFile(file);
+        assertEquals(MappedRegionFile.HEADER_SECTORS * MappedRegionFile.SECTOR_BYTES, file.length());
+
+        region.write(0, 0, chunk(1, 100));
+        final long grown = file.length();
+        assertEquals((MappedRegionFile.HEADER_SECTORS + MappedRegionFile.GROWTH_SECTORS) * MappedRegionFile.SECTOR_BYTES, grown);
+
+        for (int x = 1; x < 10; x++) {
+            region.write(x, 0, chunk(x, 100));
+        }
+        assertEquals(grown, file.length());
+        region.close();
+    }
+
+    @Test(expected = MappedRegionFile.ClosedException.class)
+    public void closedFilesCannotBeRead() throws Exception {
+        final MappedRegionFile region = new MappedRegionFile(tempFile());
+        region.close();
+        region.read(0, 0);
+    }
+}
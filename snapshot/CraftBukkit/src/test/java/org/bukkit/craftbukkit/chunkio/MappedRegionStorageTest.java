@@ -0,0 +1,65 @@
+package org.bukkit.craftbukkit.chunkio;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import net.minecraft.server.NBTTagCompound;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MappedRegionStorageTest {
+
+    private static NBTTagCompound chunk(int id) {
+        final NBTTagCompound nbt = new NBTTagCompound();
+        nbt.setInt("id", id);
+        return nbt;
+    }
+
+    private static File tempWorld() throws Exception {
+        final File folder = Files.createTempDirectory("world").toFile();
+        folder.deleteOnExit();
+        return folder;
+    }
+
+    @Test
+    public void closedWorldsAreNotReopened() throws Exception {
+        final MappedRegionStorage storage = new MappedRegionStorage();
+        final File world = tempWorld();
+        final File nether = new File(world, "DIM-1");
+        storage.write(world, 0, 0, chunk(1));
+        storage.write(nether, 0, 0, chunk(2));
+        storage.close(world);
+
+        try {
+            storage.write(world, 0, 0, chunk(3));
+            fail("wrote to a closed world");
+        } catch (IOException expected) {
+        }
+        try {
+            storage.read(nether, 0, 0);
+            fail("read from a closed world");
+        } catch (IOException expected) {
+        }
+        assertFalse(storage.exists(world, 0, 0));
+
+        storage.open(world);
+        assertEquals(1, storage.read(world, 0, 0).getInt("id"));
+        assertEquals(2, storage.read(nether, 0, 0).getInt("id"));
+        storage.closeAll();
+    }
+
+    @Test
+    public void otherWorldsStayOpen() throws Exception {
+        final MappedRegionStorage storage = new MappedRegionStorage();
+        final File world = tempWorld();
+        final File other = tempWorld();
+        storage.write(world, 0, 0, chunk(1));
+        storage.close(world);
+
+        storage.write(other, 0, 0, chunk(2));
+        assertEquals(2, storage.read(other, 0, 0).getInt("id"));
+        storage.closeAll();
+    }
+}
@@ -0,0 +1,231 @@
+package org.bukkit.craftbukkit.scheduler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CraftTaskQueueTest {
+
+    /**
+     * The order of the PriorityQueue that CraftScheduler used before this queue
+     */
+    private static final Comparator<CraftTask> PRIORITY_ORDER = new Comparator<CraftTask>() {
+        public int compare(final CraftTask o1, final CraftTask o2) {
+            int value = (int) (o1.getNextRun() - o2.getNextRun());
+
+            // If the tasks should run on the same tick they should be run FIFO
+            return value != 0 ? value : o1.getTaskId() - o2.getTaskId();
+        }
+    };
+
+    private static CraftTask task(int id, long nextRun) {
+        final CraftTask task = new CraftTask(null, () -> {}, id, -1);
+        task.setNextRun(nextRun);
+        return task;
+    }
+
+    private static List<Integer> drain(CraftTaskQueue queue, long tick) {
+        final List<Integer> ids = new ArrayList<>();
+        for(CraftTask task = queue.poll(tick); task != null; task = queue.poll(tick)) {
+            ids.add(task.getTaskId());
+        }
+        return ids;
+    }
+
+    @Test
+    public void tasksRunOnTheirTick() throws Exception {
+        final CraftTaskQueue queue = new CraftTaskQueue();
+        assertTrue(drain(queue, 0).isEmpty());
+
+        queue.add(task(1, 5));
+        queue.add(task(2, 100));
+        queue.add(task(3, 5000));
+
+        for(long tick = 1; tick <= 5000; tick++) {
+            final List<Integer> ids = drain(queue, tick);
+            if(tick == 5) {
+                assertEquals(1, (int) ids.get(0));
+            } else if(tick == 100) {
+                assertEquals(2, (int) ids.get(0));
+            } else if(tick == 5000) {
+                assertEquals(3, (int) ids.get(0));
+            } else {
+                assertTrue("Nothing should run on tick " + tick, ids.isEmpty());
+            }
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void tasksOnTheSameTickRunInIdOrder() throws Exception {
+        final CraftTaskQueue queue = new CraftTaskQueue();
+        drain(queue, 0);
+
+        // Added in different orders, and from different distances
+        queue.add(task(3, 64));
+        drain(queue, 10);
+        queue.add(task(1, 64));
+        queue.add(task(2, 64));
+
+        assertTrue(drain(queue, 63).isEmpty());
+        assertEquals(Arrays.asList(1, 2, 3), drain(queue, 64));
+    }
+
+    @Test
+    public void overdueTasksRunImmediately() throws Exception {
+        final CraftTaskQueue queue = new CraftTaskQueue();
+        queue.add(task(2, -1));
+        queue.add(task(1, 3));
+        drain(queue, 10);
+        assertTrue(queue.isEmpty());
+
+        queue.add(task(3, 5));
+        assertEquals(Arrays.asList(3), drain(queue, 10));
+    }
+
+    @Test
+    public void removedTasksDoNotRun() throws Exception {
+        final CraftTaskQueue queue = new CraftTaskQueue();
+        drain(queue, 0);
+
+        final CraftTask two = task(2, 10), four = task(4, 1000000000L);
+        queue.add(task(1, 10));
+        queue.add(two);
+        queue.add(task(3, 10));
+        queue.add(four);
+
+        assertTrue(queue.remove(two));
+        assertFalse(queue.remove(two));
+        assertTrue(queue.remove(four));
+        assertEquals(2, queue.size());
+
+        assertEquals(Arrays.asList(1, 3), drain(queue, 10));
+    }
+
+    @Test
+    public void addingAQueuedTaskMovesIt() throws Exception {
+        final CraftTaskQueue queue = new CraftTaskQueue();
+        drain(queue, 0);
+
+        final CraftTask task = task(1, 10);
+        queue.add(task);
+        task.setNextRun(200);
+        queue.add(task);
+        assertEquals(1, queue.size());
+
+        assertTrue(drain(queue, 199).isEmpty());
+        assertEquals(Arrays.asList(1), drain(queue, 200));
+    }
+
+    @Test
+    public void matchesPriorityQueueOrder() throws Exception {
+        final Random random = new Random(1234);
+        final CraftTaskQueue queue = new CraftTaskQueue();
+        final PriorityQueue<CraftTask> expected = new PriorityQueue<>(
+            Comparator.comparingLong(CraftTask::getNextRun).thenComparingInt(CraftTask::getTaskId)
+        );
+
+        int nextId = 1;
+        long tick = 1000;
+        drain(queue, tick);
+        for(int round = 0; round < 20000; round++) {
+            // Mostly single ticks, with the occasional jump
+            tick += random.nextInt(50) == 0 ? random.nextInt(300) : 1;
+
+            for(int i = random.nextInt(5); i > 0; i--) {
+                final long delay;
+                switch(random.nextInt(4)) {
+                    case 0: delay = random.nextInt(64); break;
+                    case 1: delay = random.nextInt(5000); break;
+                    case 2: delay = random.nextInt(300000); break;
+                    default: delay = random.nextInt(3) * CraftTaskQueue.SPAN + random.nextInt(1000); break;
+                }
+                final CraftTask task = task(nextId++, tick - 1 + delay);
+                queue.add(task);
+                expected.add(task);
+            }
+
+            if(!expected.isEmpty() && random.nextInt(10) == 0) {
+                final CraftTask victim = new ArrayList<>(expected).get(random.nextInt(expected.size()));
+                expected.remove(victim);
+                assertTrue(queue.remove(victim));
+            }
+
+            final List<Integer> want = new ArrayList<>();
+            while(!expected.isEmpty() && expected.peek().getNextRun() <= tick) {
+                want.add(expected.poll().getTaskId());
+            }
+            assertEquals("Tick " + tick, want, drain(queue, tick));
+            assertEquals(expected.size(), queue.size());
+        }
+    }
+
+    /**
+     * Repeating tasks with periods of 1 to 1200 ticks, spread out over their first period
+     */
+    private static List<CraftTask> repeatingTasks(Random random, int count) {
+        final List<CraftTask> tasks = new ArrayList<>();
+        for(int id = 1; id <= count; id++) {
+            final long period = 1 + random.nextInt(1200);
+            final CraftTask task = new CraftTask(null, () -> {}, id, period);
+            task.setNextRun(random.nextInt((int) period));
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    @Ignore("Benchmark, run manually")
+    @Test
+    public void benchmark() throws Exception {
+        final int count = 100000, ticks = 20000;
+
+        for(int round = 0; round < 5; round++) {
+            // The heartbeat as it was, with repeating tasks held back in a temp list until the tick is done
+            final PriorityQueue<CraftTask> priorityQueue = new PriorityQueue<>(10, PRIORITY_ORDER);
+            priorityQueue.addAll(repeatingTasks(new Random(round), count));
+            final List<CraftTask> temp = new ArrayList<>();
+            long priorityRuns = 0;
+
+            long start = System.nanoTime();
+            for(int tick = 0; tick < ticks; tick++) {
+                while(!priorityQueue.isEmpty() && priorityQueue.peek().getNextRun() <= tick) {
+                    final CraftTask task = priorityQueue.remove();
+                    task.setNextRun(tick + task.getPeriod());
+                    temp.add(task);
+                    priorityRuns++;
+                }
+                priorityQueue.addAll(temp);
+                temp.clear();
+            }
+            final long priority = System.nanoTime() - start;
+
+            final CraftTaskQueue wheel = new CraftTaskQueue();
+            for(CraftTask task : repeatingTasks(new Random(round), count)) {
+                wheel.add(task);
+            }
+            long wheelRuns = 0;
+
+            start = System.nanoTime();
+            for(int tick = 0; tick < ticks; tick++) {
+                for(CraftTask task = wheel.poll(tick); task != null; task = wheel.poll(tick)) {
+                    task.setNextRun(tick + task.getPeriod());
+                    wheel.add(task);
+                    wheelRuns++;
+                }
+            }
+            final long timingWheel = System.nanoTime() - start;
+
+            assertEquals(priorityRuns, wheelRuns);
+            System.out.printf("%d tasks, %d runs/tick: priority queue %d us/tick, timing wheel %d us/tick%n",
+                              count, priorityRuns / ticks, priority / ticks / 1000, timingWheel / ticks / 1000);
+        }
+    }
+}
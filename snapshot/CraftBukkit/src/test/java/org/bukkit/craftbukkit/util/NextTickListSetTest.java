@@ -0,0 +1,63 @@
+package org.bukkit.craftbukkit.util;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+
+import com.google.common.collect.Sets;
+import net.minecraft.server.BlockPosition;
+import net.minecraft.server.Blocks;
+import net.minecraft.server.NextTickListEntry;
+import net.minecraft.server.StructureBoundingBox;
+import org.bukkit.support.AbstractTestingBase;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class NextTickListSetTest extends AbstractTestingBase {
+
+    private static NextTickListEntry tick(int x, int z, long time) {
+        final NextTickListEntry entry = new NextTickListEntry(new BlockPosition(x, 64, z), Blocks.WATER);
+        entry.a(time);
+        return entry;
+    }
+
+    @Test
+    public void entriesAreFoundByBox() {
+        final NextTickListSet set = new NextTickListSet();
+        final NextTickListEntry inside = tick(5, 5, 10), edge = tick(15, 31, 20), outside = tick(16, 5, 30), far = tick(-1000, 1000, 40);
+        set.add(inside);
+        set.add(edge);
+        set.add(outside);
+        set.add(far);
+
+        final StructureBoundingBox box = new StructureBoundingBox(0, 0, 16, 32);
+        assertEquals(Sets.newHashSet(inside, edge), new HashSet<NextTickListEntry>(set.getEntries(box)));
+
+        final StructureBoundingBox everything = new StructureBoundingBox(Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        assertEquals(4, set.getEntries(everything).size());
+        assertTrue(set.getEntries(new StructureBoundingBox(0, 0, 0, 0)).isEmpty());
+    }
+
+    @Test
+    public void removedEntriesAreNotFound() {
+        final NextTickListSet set = new NextTickListSet();
+        final NextTickListEntry first = tick(1, 1, 10), second = tick(2, 2, 20), third = tick(3, 3, 30);
+        set.add(first);
+        set.add(second);
+        set.add(third);
+        final StructureBoundingBox box = new StructureBoundingBox(0, 0, 16, 16);
+
+        set.remove(second);
+        final Iterator<NextTickListEntry> iterator = set.iterator();
+        assertSame(first, iterator.next());
+        iterator.remove();
+
+        final List<NextTickListEntry> entries = set.getEntries(box);
+        assertEquals(1, entries.size());
+        assertSame(third, entries.get(0));
+
+        set.clear();
+        assertTrue(set.getEntries(box).isEmpty());
+    }
+}
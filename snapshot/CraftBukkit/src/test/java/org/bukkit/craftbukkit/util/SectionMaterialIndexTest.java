@@ -0,0 +1,104 @@
+package org.bukkit.craftbukkit.util;
+
+import java.util.Random;
+
+import net.minecraft.server.Block;
+import net.minecraft.server.BlockPosition;
+import net.minecraft.server.Blocks;
+import net.minecraft.server.ChunkSection;
+import org.bukkit.region.BlockRegion;
+import org.bukkit.support.AbstractTestingBase;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SectionMaterialIndexTest extends AbstractTestingBase {
+
+    private static final Block[] BLOCKS = { Blocks.STONE, Blocks.DIRT, Blocks.GOLD_BLOCK };
+
+    private static ChunkSection randomSection(Random random) {
+        final ChunkSection section = new ChunkSection(16, true);
+        for(int i = 0; i < 2000; i++) {
+            section.setType(random.nextInt(16), random.nextInt(16), random.nextInt(16),
+                            BLOCKS[random.nextInt(BLOCKS.length)].getBlockData());
+        }
+        return section;
+    }
+
+    private static void assertMatchesSection(ChunkSection section) {
+        final SectionMaterialIndex index = section.getMaterialIndex();
+        for(Block block : new Block[]{ Blocks.AIR, Blocks.STONE, Blocks.DIRT, Blocks.GOLD_BLOCK, Blocks.DIAMOND_BLOCK }) {
+            int count = 0;
+            final long[] bits = index.bitmap(block);
+            for(int y = 0; y < 16; y++) {
+                for(int z = 0; z < 16; z++) {
+                    for(int x = 0; x < 16; x++) {
+                        final int bit = y << 8 | z << 4 | x;
+                        final boolean expected = section.getType(x, y, z).getBlock() == block;
+                        assertEquals(expected, bits != null && (bits[bit >> 6] & (1L << bit)) != 0);
+                        if(expected) count++;
+                    }
+                }
+            }
+            assertEquals(count, index.count(block));
+            assertEquals(count > 0, index.contains(block));
+        }
+    }
+
+    @Test
+    public void indexMatchesSection() throws Exception {
+        assertMatchesSection(randomSection(new Random(1)));
+    }
+
+    @Test
+    public void indexFollowsChanges() throws Exception {
+        final Random random = new Random(2);
+        final ChunkSection section = randomSection(random);
+        section.getMaterialIndex();
+
+        for(int i = 0; i < 2000; i++) {
+            section.setType(random.nextInt(16), random.nextInt(16), random.nextInt(16),
+                            BLOCKS[random.nextInt(BLOCKS.length)].getBlockData());
+        }
+        assertMatchesSection(section);
+
+        section.getMaterialIndex().forEach(Blocks.GOLD_BLOCK, (x, y, z) -> section.setType(x, y, z, Blocks.DIAMOND_BLOCK.getBlockData()));
+        assertFalse(section.getMaterialIndex().contains(Blocks.GOLD_BLOCK));
+        assertMatchesSection(section);
+    }
+
+    @Test
+    public void onlySmallIndexesAreKept() throws Exception {
+        final ChunkSection section = randomSection(new Random(4));
+        assertSame(section.getMaterialIndex(), section.getMaterialIndex());
+
+        final Block[] types = { Blocks.GRASS, Blocks.COBBLESTONE, Blocks.PLANKS, Blocks.SAND, Blocks.GRAVEL, Blocks.GOLD_ORE,
+                                Blocks.IRON_ORE, Blocks.COAL_ORE, Blocks.LOG, Blocks.LEAVES, Blocks.SPONGE, Blocks.GLASS,
+                                Blocks.LAPIS_ORE, Blocks.LAPIS_BLOCK, Blocks.SANDSTONE, Blocks.WOOL, Blocks.IRON_BLOCK };
+        assertTrue(types.length > SectionMaterialIndex.MAX_KEPT_TYPES);
+        for(int i = 0; i < types.length; i++) {
+            section.setType(i & 15, i >> 4, 0, types[i].getBlockData());
+        }
+        assertNotSame(section.getMaterialIndex(), section.getMaterialIndex());
+        assertFalse(section.getMaterialIndex().isWorthKeeping());
+        assertMatchesSection(section);
+    }
+
+    @Test
+    public void bitmapsMakeRegions() throws Exception {
+        final ChunkSection section = randomSection(new Random(3));
+        final long[][] bitmaps = new long[16][];
+        bitmaps[1] = section.getMaterialIndex().bitmap(Blocks.STONE);
+
+        final BlockRegion region = BlockRegion.ofChunkSections(-3, 5, bitmaps);
+        assertEquals(section.getMaterialIndex().count(Blocks.STONE), region.size());
+        for(int y = 0; y < 16; y++) {
+            for(int z = 0; z < 16; z++) {
+                for(int x = 0; x < 16; x++) {
+                    assertEquals(section.getType(x, y, z).getBlock() == Blocks.STONE,
+                                 region.contains(new BlockPosition(-48 + x, 16 + y, 80 + z)));
+                }
+            }
+        }
+    }
+}
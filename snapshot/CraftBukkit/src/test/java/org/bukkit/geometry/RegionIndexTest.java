@@ -0,0 +1,149 @@
+package org.bukkit.geometry;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.bukkit.support.BukkitRuntimeTest;
+import org.bukkit.util.ImVector;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RegionIndexTest extends BukkitRuntimeTest {
+
+    private static Cuboid randomCuboid(Random random, double range, double maxSize) {
+        return Cuboid.fromMinAndSize(ImVector.of(random.nextDouble() * range - range / 2,
+                                                 random.nextDouble() * 256,
+                                                 random.nextDouble() * range - range / 2),
+                                     ImVector.of(random.nextDouble() * maxSize,
+                                                 random.nextDouble() * maxSize,
+                                                 random.nextDouble() * maxSize));
+    }
+
+    private static ImVector randomPoint(Random random, double range) {
+        return ImVector.of(random.nextDouble() * range - range / 2,
+                           random.nextDouble() * 256,
+                           random.nextDouble() * range - range / 2);
+    }
+
+    private static List<Cuboid> linearContaining(List<Cuboid> regions, Vec3 point) {
+        final List<Cuboid> list = new ArrayList<>();
+        for(Cuboid region : regions) {
+            if(region.contains(point)) list.add(region);
+        }
+        return list;
+    }
+
+    private static boolean boundsIntersect(Cuboid a, Cuboid b) {
+        return a.minimum().fineX() <= b.maximum().fineX() && a.maximum().fineX() >= b.minimum().fineX() &&
+               a.minimum().fineY() <= b.maximum().fineY() && a.maximum().fineY() >= b.minimum().fineY() &&
+               a.minimum().fineZ() <= b.maximum().fineZ() && a.maximum().fineZ() >= b.minimum().fineZ();
+    }
+
+    private static List<Cuboid> randomRegions(Random random, int count) {
+        final List<Cuboid> regions = new ArrayList<>();
+        for(int i = 0; i < count; i++) {
+            regions.add(randomCuboid(random, 1000, i % 10 == 0 ? 2000 : 50));
+        }
+        regions.add(Cuboid.unbounded());
+        return regions;
+    }
+
+    @Test
+    public void pointQueriesMatchLinearScan() throws Exception {
+        final Random random = new Random(1);
+        final List<Cuboid> regions = randomRegions(random, 500);
+        final RegionIndex<Cuboid> index = new RegionIndex<>();
+        regions.forEach(index::add);
+        assertEquals(regions.size(), index.size());
+
+        for(int i = 0; i < 2000; i++) {
+            final ImVector point = randomPoint(random, 1200);
+            final List<Cuboid> expected = linearContaining(regions, point);
+            assertEquals(new HashSet<>(expected), new HashSet<>(index.containing(point)));
+            assertEquals(!expected.isEmpty(), index.anyContains(point));
+        }
+    }
+
+    @Test
+    public void removedRegionsAreNotFound() throws Exception {
+        final Random random = new Random(2);
+        final List<Cuboid> regions = randomRegions(random, 200);
+        final RegionIndex<Cuboid> index = new RegionIndex<>();
+        regions.forEach(index::add);
+        assertFalse(index.add(regions.get(0)));
+
+        final List<Cuboid> remaining = new ArrayList<>();
+        for(int i = 0; i < regions.size(); i++) {
+            if(i % 2 == 0) {
+                assertTrue(index.remove(regions.get(i)));
+            } else {
+                remaining.add(regions.get(i));
+            }
+        }
+        assertFalse(index.remove(regions.get(0)));
+        assertEquals(remaining.size(), index.size());
+
+        for(int i = 0; i < 1000; i++) {
+            final ImVector point = randomPoint(random, 1200);
+            assertEquals(new HashSet<>(linearContaining(remaining, point)), new HashSet<>(index.containing(point)));
+        }
+    }
+
+    @Test
+    public void cuboidQueriesMatchLinearScan() throws Exception {
+        final Random random = new Random(3);
+        final List<Cuboid> regions = randomRegions(random, 500);
+        final RegionIndex<Cuboid> index = new RegionIndex<>();
+        regions.forEach(index::add);
+
+        for(int i = 0; i < 500; i++) {
+            final Cuboid box = randomCuboid(random, 1200, i % 2 == 0 ? 20 : 500);
+            final List<Cuboid> expected = new ArrayList<>();
+            for(Cuboid region : regions) {
+                if(boundsIntersect(region, box)) expected.add(region);
+            }
+
+            final List<Cuboid> found = index.intersecting(box);
+            assertEquals("Duplicate results", new HashSet<>(found).size(), found.size());
+            assertEquals(new HashSet<>(expected), new HashSet<>(found));
+        }
+    }
+
+    @Ignore("Benchmark, run manually")
+    @Test
+    public void benchmark() throws Exception {
+        final Random random = new Random(4);
+        final List<Cuboid> regions = randomRegions(random, 500);
+        final RegionIndex<Cuboid> index = new RegionIndex<>();
+        regions.forEach(index::add);
+
+        final ImVector[] points = new ImVector[100000];
+        for(int i = 0; i < points.length; i++) {
+            points[i] = randomPoint(random, 1200);
+        }
+
+        for(int round = 0; round < 5; round++) {
+            int linearHits = 0, indexHits = 0;
+
+            long start = System.nanoTime();
+            for(ImVector point : points) {
+                linearHits += linearContaining(regions, point).size();
+            }
+            final long linear = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for(ImVector point : points) {
+                indexHits += index.containing(point).size();
+            }
+            final long indexed = System.nanoTime() - start;
+
+            assertEquals(linearHits, indexHits);
+            System.out.printf("%d regions: linear scan %d ns/query, index %d ns/query%n",
+                              regions.size(), linear / points.length, indexed / points.length);
+        }
+    }
+}
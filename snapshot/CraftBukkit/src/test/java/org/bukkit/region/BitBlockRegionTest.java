@@ -0,0 +1,101 @@
+package org.bukkit.region;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.bukkit.Bukkit;
+import org.bukkit.geometry.Vec3;
+import org.bukkit.support.BukkitRuntimeTest;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BitBlockRegionTest extends BukkitRuntimeTest {
+
+    private static Set<Vec3> randomPositions(Random random, int count, int range) {
+        final Set<Vec3> positions = new HashSet<>();
+        for(int i = 0; i < count; i++) {
+            positions.add(Bukkit.vectors().coarse(random.nextInt(range) - range / 2,
+                                                  random.nextInt(range) - range / 2,
+                                                  random.nextInt(range) - range / 2));
+        }
+        return positions;
+    }
+
+    @Test
+    public void copiesMatchTheirPositions() throws Exception {
+        final Random random = new Random(1);
+        for(int range : new int[]{ 10, 1000 }) { // Dense grid and sparse table
+            final Set<Vec3> positions = randomPositions(random, 2000, range);
+            final BlockRegion region = BlockRegion.copyOf(positions);
+
+            assertTrue(region instanceof BitBlockRegion);
+            assertFalse(region.isMutable());
+            assertEquals(positions.size(), region.size());
+            assertEquals(positions, new HashSet<>(region));
+            assertEquals(positions, region);
+            assertEquals(region, positions);
+            assertEquals(positions.hashCode(), region.hashCode());
+
+            for(Vec3 pos : randomPositions(random, 500, range)) {
+                assertEquals(positions.contains(pos), region.contains(pos));
+            }
+        }
+    }
+
+    @Test
+    public void sparsePositionsDontUseWholeBitsets() throws Exception {
+        final Set<Vec3> positions = randomPositions(new Random(3), 2000, 1000); // About one position per cell
+        final BitBlockRegion region = (BitBlockRegion) BlockRegion.copyOf(positions);
+        assertEquals(positions, region);
+
+        // A bitset per cell would take over 1 MB
+        final long bytes = region.estimateBytes();
+        assertTrue("sparse region takes " + bytes + " bytes", bytes < 64L * positions.size());
+    }
+
+    @Test
+    public void cuboidsCanBeCopied() throws Exception {
+        final BlockRegion cuboid = CuboidBlockRegion.fromMinAndSize(Bukkit.vectors().coarse(-20, 0, 5), Bukkit.vectors().coarse(40, 10, 30));
+        final BlockRegion copy = BlockRegion.copyOf(cuboid.iterator());
+        assertEquals(cuboid.size(), copy.size());
+        assertTrue(copy.containsAll(cuboid));
+        assertTrue(cuboid.containsAll(copy));
+    }
+
+    @Test
+    public void setOperationsMatchSets() throws Exception {
+        final Random random = new Random(2);
+        final Set<Vec3> a = randomPositions(random, 3000, 40), b = randomPositions(random, 3000, 40);
+        final BlockRegion regionA = BlockRegion.copyOf(a), regionB = BlockRegion.copyOf(b);
+
+        final Set<Vec3> union = new HashSet<>(a);
+        union.addAll(b);
+        assertEquals(union, BlockRegion.union(regionA, regionB));
+
+        final Set<Vec3> intersection = new HashSet<>(a);
+        intersection.retainAll(b);
+        assertEquals(intersection, BlockRegion.intersect(regionA, regionB));
+
+        final Set<Vec3> difference = new HashSet<>(a);
+        difference.removeAll(b);
+        assertEquals(difference, BlockRegion.difference(regionA, regionB));
+
+        assertTrue(BlockRegion.union(regionA, regionB).containsAll(regionA));
+        assertTrue(BlockRegion.difference(regionA, regionA).isEmpty());
+    }
+
+    @Test
+    public void distantPositionsAreStillCopied() throws Exception {
+        final Vec3 near = Bukkit.vectors().coarse(1, 2, 3), far = Bukkit.vectors().coarse(0, Integer.MAX_VALUE, 0);
+        final Set<Vec3> positions = new HashSet<>();
+        positions.add(near);
+        positions.add(far);
+
+        final BlockRegion region = BlockRegion.copyOf(positions);
+        assertEquals(2, region.size());
+        assertTrue(region.contains(near));
+        assertTrue(region.contains(far));
+    }
+}